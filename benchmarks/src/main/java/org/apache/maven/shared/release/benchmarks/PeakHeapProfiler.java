@@ -0,0 +1,74 @@
+package org.apache.maven.shared.release.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage of each iteration, summed over the heap memory pools. Enable it with
+ * <code>-prof org.apache.maven.shared.release.benchmarks.PeakHeapProfiler</code>; the allocation rate is reported
+ * by the <code>gc</code> profiler which ships with JMH.
+ */
+public class PeakHeapProfiler
+    implements InternalProfiler
+{
+    public String getDescription()
+    {
+        return "Peak heap usage per iteration, from the heap memory pools";
+    }
+
+    public void beforeIteration( BenchmarkParams benchmarkParams, IterationParams iterationParams )
+    {
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP )
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public Collection<? extends Result> afterIteration( BenchmarkParams benchmarkParams,
+                                                        IterationParams iterationParams, IterationResult result )
+    {
+        long peak = 0;
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP )
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Collections.singletonList( new ScalarResult( "heap.peak", peak / ( 1024.0 * 1024.0 ), "MB",
+                                                            AggregationPolicy.MAX ) );
+    }
+}
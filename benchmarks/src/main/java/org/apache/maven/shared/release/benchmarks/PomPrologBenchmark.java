@@ -0,0 +1,107 @@
+package org.apache.maven.shared.release.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.shared.release.util.PomPrologScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link PomPrologScanner} with the regular expression the rewrite phases used before to split a POM into
+ * the text before its root element, the root element and the text after it. Each invocation splits all POMs of a
+ * synthetic reactor.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class PomPrologBenchmark
+{
+    /**
+     * The pattern of the legacy implementation, compiled for every POM as it was.
+     */
+    private static final String LEGACY_PATTERN =
+        "(?s)((?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)"
+            + "|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)"
+            + "|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)(.*?)"
+            + "((?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")"
+            + "|(?:'[^']*+'))*+>))*)";
+
+    @Param( { "10", "100", "1000" } )
+    private int modules;
+
+    private List<String> contents;
+
+    @Setup( Level.Trial )
+    public void createPoms()
+        throws Exception
+    {
+        File basedir = File.createTempFile( "synthetic-reactor", "" );
+        basedir.delete();
+
+        SyntheticReactor reactor = new SyntheticReactor( basedir, modules, SyntheticReactor.SNAPSHOT_VERSION );
+        contents = reactor.getContents();
+        reactor.delete();
+    }
+
+    @Benchmark
+    public void scanner( Blackhole blackhole )
+    {
+        for ( String content : contents )
+        {
+            int[] root = PomPrologScanner.findRootElement( content );
+            blackhole.consume( content.substring( 0, root[0] ) );
+            blackhole.consume( content.substring( root[1] ) );
+        }
+    }
+
+    @Benchmark
+    public void legacyRegex( Blackhole blackhole )
+    {
+        for ( String content : contents )
+        {
+            Matcher matcher = Pattern.compile( LEGACY_PATTERN ).matcher( content );
+            if ( matcher.matches() )
+            {
+                blackhole.consume( matcher.group( 1 ) );
+                blackhole.consume( matcher.group( 3 ) );
+            }
+        }
+    }
+}
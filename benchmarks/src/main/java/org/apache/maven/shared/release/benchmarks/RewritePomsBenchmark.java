@@ -0,0 +1,185 @@
+package org.apache.maven.shared.release.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.ReleaseContext;
+import org.apache.maven.shared.release.ReleaseResult;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.phase.AbstractRewritePomsPhase;
+import org.apache.maven.shared.release.phase.RewritePomsForBranchPhase;
+import org.apache.maven.shared.release.phase.RewritePomsForDevelopmentPhase;
+import org.apache.maven.shared.release.phase.RewritePomsForReleasePhase;
+import org.apache.maven.shared.release.scm.GitScmTranslator;
+import org.apache.maven.shared.release.scm.ScmTranslator;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one rewrite of all POMs of a synthetic reactor, as done by the <code>rewrite-poms-for-release</code>
+ * (<code>tag</code>), <code>rewrite-poms-for-development</code> (<code>next</code>) and
+ * <code>rewrite-poms-for-branch</code> (<code>branch</code>) phases, in simulate mode or not.
+ * <p/>
+ * Every measured invocation starts from the generated POMs and a fresh release context, as the first rewrite of a
+ * release run would. Run with <code>-prof gc</code> for the allocation rate and with {@link PeakHeapProfiler} for the
+ * peak heap usage.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 10 )
+@Fork( 1 )
+public class RewritePomsBenchmark
+{
+    @Param( { "10", "100", "1000", "5000" } )
+    private int modules;
+
+    @Param( { "tag", "next", "branch" } )
+    private String rewrite;
+
+    @Param( { "false", "true" } )
+    private boolean simulate;
+
+    @Param( { "1" } )
+    private int transformParallelism;
+
+    private SyntheticReactor reactor;
+
+    private AbstractRewritePomsPhase phase;
+
+    private DefaultReleaseEnvironment releaseEnvironment;
+
+    private List<MavenProject> reactorProjects;
+
+    private ReleaseDescriptor releaseDescriptor;
+
+    @Setup( Level.Trial )
+    public void createReactor()
+        throws Exception
+    {
+        File basedir = File.createTempFile( "synthetic-reactor", "" );
+        basedir.delete();
+
+        if ( "tag".equals( rewrite ) )
+        {
+            phase = new RewritePomsForReleasePhase();
+        }
+        else if ( "next".equals( rewrite ) )
+        {
+            phase = new RewritePomsForDevelopmentPhase();
+        }
+        else if ( "branch".equals( rewrite ) )
+        {
+            phase = new RewritePomsForBranchPhase();
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown rewrite: " + rewrite );
+        }
+        inject( phase, "scmRepositoryConfigurator", new StubScmRepositoryConfigurator() );
+        inject( phase, "scmTranslators", Collections.<String, ScmTranslator>singletonMap( "git",
+                                                                                           new GitScmTranslator() ) );
+        inject( phase, "pomSuffix", rewrite );
+        phase.enableLogging( new ConsoleLogger( Logger.LEVEL_DISABLED, "benchmark" ) );
+
+        // the development rewrite runs on the released POMs
+        String version = "next".equals( rewrite ) ? SyntheticReactor.RELEASE_VERSION
+                        : SyntheticReactor.SNAPSHOT_VERSION;
+        reactor = new SyntheticReactor( basedir, modules, version );
+
+        releaseEnvironment = new DefaultReleaseEnvironment().setTransformParallelism( transformParallelism );
+    }
+
+    @Setup( Level.Iteration )
+    public void openRelease()
+        throws IOException
+    {
+        reactor.restore();
+        reactorProjects = reactor.createReactorProjects();
+        releaseDescriptor = reactor.createReleaseDescriptor();
+        ReleaseContext.open( releaseDescriptor );
+    }
+
+    @TearDown( Level.Iteration )
+    public void closeRelease()
+    {
+        ReleaseContext.close( releaseDescriptor );
+    }
+
+    @TearDown( Level.Trial )
+    public void deleteReactor()
+        throws IOException
+    {
+        reactor.delete();
+    }
+
+    @Benchmark
+    public ReleaseResult rewritePoms()
+        throws Exception
+    {
+        if ( simulate )
+        {
+            return phase.simulate( releaseDescriptor, releaseEnvironment, reactorProjects );
+        }
+        return phase.execute( releaseDescriptor, releaseEnvironment, reactorProjects );
+    }
+
+    private static void inject( Object target, String name, Object value )
+        throws Exception
+    {
+        for ( Class<?> type = target.getClass(); type != null; type = type.getSuperclass() )
+        {
+            try
+            {
+                Field field = type.getDeclaredField( name );
+                field.setAccessible( true );
+                field.set( target, value );
+                return;
+            }
+            catch ( NoSuchFieldException e )
+            {
+                // declared higher up
+            }
+        }
+        throw new NoSuchFieldException( name );
+    }
+}
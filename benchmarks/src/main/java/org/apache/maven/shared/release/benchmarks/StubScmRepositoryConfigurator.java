@@ -0,0 +1,73 @@
+package org.apache.maven.shared.release.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.maven.scm.provider.ScmProvider;
+import org.apache.maven.scm.provider.ScmProviderRepository;
+import org.apache.maven.scm.repository.ScmRepository;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
+
+/**
+ * Hands out a git repository whose provider does nothing, so that the benchmarks measure the rewrite and not the SCM.
+ */
+public class StubScmRepositoryConfigurator
+    implements ScmRepositoryConfigurator
+{
+    private final ScmRepository repository = new ScmRepository( "git", new ScmProviderRepository()
+    {
+    } );
+
+    private final ScmProvider provider =
+        (ScmProvider) Proxy.newProxyInstance( ScmProvider.class.getClassLoader(), new Class[]{ ScmProvider.class },
+                                              new InvocationHandler()
+                                              {
+                                                  public Object invoke( Object proxy, Method method, Object[] args )
+                                                  {
+                                                      Class<?> type = method.getReturnType();
+                                                      if ( type == boolean.class )
+                                                      {
+                                                          return Boolean.FALSE;
+                                                      }
+                                                      return type.isPrimitive() ? Integer.valueOf( 0 ) : null;
+                                                  }
+                                              } );
+
+    public ScmRepository getConfiguredRepository( ReleaseDescriptor releaseDescriptor, Settings settings )
+    {
+        return repository;
+    }
+
+    public ScmRepository getConfiguredRepository( String url, ReleaseDescriptor releaseDescriptor,
+                                                  Settings settings )
+    {
+        return repository;
+    }
+
+    public ScmProvider getRepositoryProvider( ScmRepository repository )
+    {
+        return provider;
+    }
+}
@@ -0,0 +1,394 @@
+package org.apache.maven.shared.release.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Scm;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * A generated multi-module project on disk: an aggregator parent with properties, dependency and plugin management,
+ * profiles and an SCM section, and jar modules depending on each other through managed, property based and
+ * <code>${project.version}</code> versions.
+ */
+public class SyntheticReactor
+{
+    static final String GROUP_ID = "org.example.synthetic";
+
+    static final String SNAPSHOT_VERSION = "1.0-SNAPSHOT";
+
+    static final String RELEASE_VERSION = "1.0";
+
+    static final String NEXT_VERSION = "1.1-SNAPSHOT";
+
+    static final String SCM_URL = "scm:git:https://git.example.org/synthetic.git";
+
+    private static final int LIBRARIES = 20;
+
+    private final File basedir;
+
+    private final int modules;
+
+    private final String version;
+
+    private final List<File> pomFiles = new ArrayList<File>();
+
+    private final List<byte[]> contents = new ArrayList<byte[]>();
+
+    /**
+     * Writes the POMs of a new reactor.
+     *
+     * @param basedir The directory to create the reactor in.
+     * @param modules The number of modules, including the parent.
+     * @param version The version of all modules.
+     * @throws IOException If a POM could not be written.
+     */
+    public SyntheticReactor( File basedir, int modules, String version )
+        throws IOException
+    {
+        this.basedir = basedir;
+        this.modules = modules;
+        this.version = version;
+
+        for ( int i = 0; i < modules; i++ )
+        {
+            File dir = i == 0 ? basedir : new File( basedir, artifactId( i ) );
+            dir.mkdirs();
+            pomFiles.add( new File( dir, "pom.xml" ) );
+            contents.add( ( i == 0 ? parentPom() : modulePom( i ) ).getBytes( "UTF-8" ) );
+        }
+        restore();
+    }
+
+    /**
+     * Writes the generated POMs back, undoing what a rewrite changed.
+     *
+     * @throws IOException If a POM could not be written.
+     */
+    public void restore()
+        throws IOException
+    {
+        for ( int i = 0; i < modules; i++ )
+        {
+            OutputStream out = new FileOutputStream( pomFiles.get( i ) );
+            try
+            {
+                out.write( contents.get( i ) );
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+
+    public void delete()
+        throws IOException
+    {
+        FileUtils.deleteDirectory( basedir );
+    }
+
+    /**
+     * @return The POM contents, in reactor order.
+     */
+    public List<String> getContents()
+        throws IOException
+    {
+        List<String> result = new ArrayList<String>( modules );
+        for ( byte[] content : contents )
+        {
+            result.add( new String( content, "UTF-8" ) );
+        }
+        return result;
+    }
+
+    /**
+     * Builds the projects the way the reactor would, with the models holding what the rewrite phases read from them.
+     *
+     * @return The reactor projects, parent first.
+     */
+    public List<MavenProject> createReactorProjects()
+    {
+        List<MavenProject> projects = new ArrayList<MavenProject>( modules );
+        MavenProject parentProject = null;
+        for ( int i = 0; i < modules; i++ )
+        {
+            Model model = new Model();
+            model.setModelVersion( "4.0.0" );
+            model.setGroupId( GROUP_ID );
+            model.setArtifactId( artifactId( i ) );
+            model.setVersion( version );
+            model.setPackaging( i == 0 ? "pom" : "jar" );
+
+            MavenProject project = new MavenProject( model );
+            project.setFile( pomFiles.get( i ) );
+            project.setOriginalModel( model );
+            if ( i == 0 )
+            {
+                model.setScm( createScm() );
+                parentProject = project;
+            }
+            else
+            {
+                Parent parent = new Parent();
+                parent.setGroupId( GROUP_ID );
+                parent.setArtifactId( artifactId( 0 ) );
+                parent.setVersion( version );
+                model.setParent( parent );
+                project.setParent( parentProject );
+            }
+            projects.add( project );
+        }
+        return projects;
+    }
+
+    /**
+     * @return A descriptor mapping every module to its release and next development version.
+     */
+    public ReleaseDescriptor createReleaseDescriptor()
+    {
+        ReleaseDescriptor descriptor = new ReleaseDescriptor();
+        descriptor.setWorkingDirectory( basedir.getAbsolutePath() );
+        descriptor.setScmSourceUrl( SCM_URL );
+        descriptor.setScmReleaseLabel( artifactId( 0 ) + "-" + RELEASE_VERSION );
+        descriptor.setScmBranchBase( "https://git.example.org/synthetic/branches" );
+        for ( int i = 0; i < modules; i++ )
+        {
+            String key = GROUP_ID + ":" + artifactId( i );
+            descriptor.mapReleaseVersion( key, RELEASE_VERSION );
+            descriptor.mapDevelopmentVersion( key, NEXT_VERSION );
+        }
+        descriptor.mapOriginalScmInfo( GROUP_ID + ":" + artifactId( 0 ), createScm() );
+        return descriptor;
+    }
+
+    private static Scm createScm()
+    {
+        Scm scm = new Scm();
+        scm.setConnection( SCM_URL );
+        scm.setDeveloperConnection( SCM_URL );
+        scm.setUrl( "https://git.example.org/synthetic" );
+        scm.setTag( "HEAD" );
+        return scm;
+    }
+
+    private static String artifactId( int module )
+    {
+        return module == 0 ? "synthetic-parent" : "module-" + module;
+    }
+
+    private String parentPom()
+    {
+        StringBuilder pom = new StringBuilder();
+        header( pom, 0 );
+        pom.append( "  <packaging>pom</packaging>\n\n" );
+        pom.append( "  <modules>\n" );
+        for ( int i = 1; i < modules; i++ )
+        {
+            pom.append( "    <module>" ).append( artifactId( i ) ).append( "</module>\n" );
+        }
+        pom.append( "  </modules>\n\n" );
+
+        pom.append( "  <scm>\n" );
+        pom.append( "    <connection>" ).append( SCM_URL ).append( "</connection>\n" );
+        pom.append( "    <developerConnection>" ).append( SCM_URL ).append( "</developerConnection>\n" );
+        pom.append( "    <url>https://git.example.org/synthetic</url>\n" );
+        pom.append( "    <tag>HEAD</tag>\n" );
+        pom.append( "  </scm>\n\n" );
+
+        pom.append( "  <properties>\n" );
+        pom.append( "    <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n" );
+        pom.append( "    <synthetic.version>" ).append( version ).append( "</synthetic.version>\n" );
+        for ( int i = 0; i < LIBRARIES; i++ )
+        {
+            pom.append( "    <library" ).append( i ).append( ".version>" ).append( 1 + i % 4 ).append( '.' )
+                .append( i ).append( ".0</library" ).append( i ).append( ".version>\n" );
+        }
+        pom.append( "  </properties>\n\n" );
+
+        pom.append( "  <dependencyManagement>\n    <dependencies>\n" );
+        for ( int i = 1; i < modules; i++ )
+        {
+            String moduleVersion;
+            switch ( i % 3 )
+            {
+                case 0:
+                    moduleVersion = "${project.version}";
+                    break;
+                case 1:
+                    moduleVersion = "${synthetic.version}";
+                    break;
+                default:
+                    moduleVersion = version;
+            }
+            dependency( pom, "      ", GROUP_ID, artifactId( i ), moduleVersion, null );
+        }
+        for ( int i = 0; i < LIBRARIES; i++ )
+        {
+            dependency( pom, "      ", "org.example.library", "library-" + i, "${library" + i + ".version}",
+                        i % 5 == 0 ? "test" : null );
+        }
+        pom.append( "    </dependencies>\n  </dependencyManagement>\n\n" );
+
+        pom.append( "  <build>\n    <pluginManagement>\n      <plugins>\n" );
+        plugin( pom, "        ", "maven-compiler-plugin", "3.1",
+                "<configuration>\n            <source>1.6</source>\n            <target>1.6</target>\n"
+                    + "          </configuration>" );
+        plugin( pom, "        ", "maven-surefire-plugin", "2.18.1", null );
+        plugin( pom, "        ", "maven-jar-plugin", "2.6", null );
+        plugin( pom, "        ", "maven-release-plugin", "2.5.3",
+                "<configuration>\n            <autoVersionSubmodules>true</autoVersionSubmodules>\n"
+                    + "          </configuration>" );
+        pom.append( "      </plugins>\n    </pluginManagement>\n  </build>\n\n" );
+
+        pom.append( "  <profiles>\n" );
+        pom.append( "    <profile>\n      <id>release</id>\n      <build>\n        <plugins>\n" );
+        plugin( pom, "          ", "maven-source-plugin", "2.4", null );
+        plugin( pom, "          ", "maven-javadoc-plugin", "2.10.3", null );
+        pom.append( "        </plugins>\n      </build>\n    </profile>\n" );
+        pom.append( "    <profile>\n      <id>integration</id>\n      <dependencies>\n" );
+        dependency( pom, "        ", GROUP_ID, artifactId( modules - 1 ), "${synthetic.version}", "test" );
+        pom.append( "      </dependencies>\n    </profile>\n" );
+        pom.append( "  </profiles>\n" );
+        footer( pom );
+        return pom.toString();
+    }
+
+    private String modulePom( int module )
+    {
+        StringBuilder pom = new StringBuilder();
+        header( pom, module );
+
+        if ( module % 10 == 0 )
+        {
+            pom.append( "  <properties>\n    <sibling.version>" ).append( version )
+                .append( "</sibling.version>\n  </properties>\n\n" );
+        }
+
+        pom.append( "  <dependencies>\n" );
+        if ( module > 1 )
+        {
+            dependency( pom, "    ", GROUP_ID, artifactId( module - 1 ), null, null );
+        }
+        if ( module > 2 )
+        {
+            dependency( pom, "    ", GROUP_ID, artifactId( module - 2 ), "${project.version}", null );
+        }
+        if ( module > 3 )
+        {
+            String siblingVersion = module % 10 == 0 ? "${sibling.version}" : version;
+            dependency( pom, "    ", GROUP_ID, artifactId( module / 2 ), siblingVersion, "test" );
+        }
+        dependency( pom, "    ", "org.example.library", "library-" + module % LIBRARIES, null, null );
+        dependency( pom, "    ", "org.example.library", "library-" + ( module * 7 ) % LIBRARIES, null, null );
+        pom.append( "  </dependencies>\n\n" );
+
+        pom.append( "  <build>\n    <plugins>\n" );
+        plugin( pom, "      ", "maven-jar-plugin", null,
+                "<configuration>\n          <archive>\n            <manifestEntries>\n"
+                    + "              <Implementation-Version>${project.version}</Implementation-Version>\n"
+                    + "            </manifestEntries>\n          </archive>\n        </configuration>" );
+        pom.append( "    </plugins>\n  </build>\n\n" );
+
+        pom.append( "  <profiles>\n    <profile>\n      <id>coverage</id>\n      <build>\n        <plugins>\n" );
+        plugin( pom, "          ", "jacoco-maven-plugin", "0.7.5.201505241946", null );
+        pom.append( "        </plugins>\n      </build>\n    </profile>\n  </profiles>\n" );
+        footer( pom );
+        return pom.toString();
+    }
+
+    private void header( StringBuilder pom, int module )
+    {
+        pom.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        pom.append( "<!--\n  Synthetic module " ).append( module ).append( " of " ).append( modules )
+            .append( ".\n  -->\n\n" );
+        pom.append( "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" "
+                        + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+                        + "xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 "
+                        + "http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" );
+        pom.append( "  <modelVersion>4.0.0</modelVersion>\n\n" );
+        if ( module > 0 )
+        {
+            pom.append( "  <parent>\n" );
+            pom.append( "    <groupId>" ).append( GROUP_ID ).append( "</groupId>\n" );
+            pom.append( "    <artifactId>" ).append( artifactId( 0 ) ).append( "</artifactId>\n" );
+            pom.append( "    <version>" ).append( version ).append( "</version>\n" );
+            pom.append( "  </parent>\n\n" );
+        }
+        else
+        {
+            pom.append( "  <groupId>" ).append( GROUP_ID ).append( "</groupId>\n" );
+        }
+        pom.append( "  <artifactId>" ).append( artifactId( module ) ).append( "</artifactId>\n" );
+        if ( module == 0 )
+        {
+            pom.append( "  <version>" ).append( version ).append( "</version>\n" );
+        }
+        pom.append( "  <name>Synthetic " ).append( artifactId( module ) ).append( "</name>\n" );
+    }
+
+    private static void footer( StringBuilder pom )
+    {
+        pom.append( "</project>\n" );
+    }
+
+    private static void dependency( StringBuilder pom, String indent, String groupId, String artifactId,
+                                    String version, String scope )
+    {
+        pom.append( indent ).append( "<dependency>\n" );
+        pom.append( indent ).append( "  <groupId>" ).append( groupId ).append( "</groupId>\n" );
+        pom.append( indent ).append( "  <artifactId>" ).append( artifactId ).append( "</artifactId>\n" );
+        if ( version != null )
+        {
+            pom.append( indent ).append( "  <version>" ).append( version ).append( "</version>\n" );
+        }
+        if ( scope != null )
+        {
+            pom.append( indent ).append( "  <scope>" ).append( scope ).append( "</scope>\n" );
+        }
+        pom.append( indent ).append( "</dependency>\n" );
+    }
+
+    private static void plugin( StringBuilder pom, String indent, String artifactId, String version,
+                                String configuration )
+    {
+        pom.append( indent ).append( "<plugin>\n" );
+        pom.append( indent ).append( "  <artifactId>" ).append( artifactId ).append( "</artifactId>\n" );
+        if ( version != null )
+        {
+            pom.append( indent ).append( "  <version>" ).append( version ).append( "</version>\n" );
+        }
+        if ( configuration != null )
+        {
+            pom.append( indent ).append( "  " ).append( configuration ).append( '\n' );
+        }
+        pom.append( indent ).append( "</plugin>\n" );
+    }
+}
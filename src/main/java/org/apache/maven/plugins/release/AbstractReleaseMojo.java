@@ -21,6 +21,7 @@ package org.apache.maven.plugins.release;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -29,11 +30,14 @@ import java.util.List;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Profile;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.apache.maven.shared.release.ReleaseManager;
+import org.apache.maven.shared.release.ReleaseManagerListener;
+import org.apache.maven.shared.release.ReleaseServerClient;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
 import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
@@ -110,7 +114,9 @@ public abstract class AbstractReleaseMojo
     private File localRepoDirectory;
 
     /**
-     * Role hint of the {@link org.apache.maven.shared.release.exec.MavenExecutor} implementation to use.
+     * Role hint of the {@link org.apache.maven.shared.release.exec.MavenExecutor} implementation to use:
+     * <code>invoker</code> and <code>forked-path</code> fork a new Maven for every goal run, <code>embedded</code>
+     * runs the goals inside the current build (Maven 3 only) and <code>mvnd</code> runs them on a Maven daemon.
      *
      * @since 2.0-beta-8
      */
@@ -123,6 +129,84 @@ public abstract class AbstractReleaseMojo
     @Parameter( defaultValue = "${session}", readonly = true, required = true )
     protected MavenSession session;
 
+    /**
+     * The number of threads used to rewrite the reactor POMs. With the default of <code>1</code> the POMs are
+     * rewritten one after the other.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "1", property = "transformParallelism" )
+    private int transformParallelism;
+
+    /**
+     * The maximum number of POMs put in edit mode by a single SCM call, for SCMs which require it. <code>0</code> puts
+     * all modified POMs of a rewrite in edit mode at once.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "100", property = "scmEditBatchSize" )
+    private int scmEditBatchSize;
+
+    /**
+     * The number of lines of output of a forked Maven buffered before they are logged, so that the threads reading
+     * the output do not wait for the log. <code>0</code> logs every line as soon as it is read.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "8192", property = "outputBufferSize" )
+    private int outputBufferSize;
+
+    /**
+     * What to do with a line of output of a forked Maven when the output buffer is full: <code>block</code> waits
+     * until the line fits, holding the forked Maven meanwhile, <code>drop</code> discards the line.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "block", property = "outputOverflowPolicy" )
+    private String outputOverflowPolicy;
+
+    /**
+     * Whether to build the preparation, completion and perform goals with as many threads as the widest layer of the
+     * reactor dependency graph can use, up to the number of available cores. A thread count given with
+     * <code>-T</code> in the <code>arguments</code> takes precedence.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "false", property = "adaptiveThreads" )
+    private boolean adaptiveThreads;
+
+    /**
+     * Whether to deploy the artifacts built by the preparation goals instead of building the tag again in perform.
+     * Prepare records the artifacts with their checksums and a hash of the sources of the tag in
+     * <code>release-artifacts.properties</code>. Perform deploys them as they are when the perform goals are
+     * <code>deploy</code>, the checkout of the tag has the same sources and the artifacts are unchanged, and builds
+     * the tag otherwise. Artifacts which only perform would attach, like signatures, are not deployed.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "false", property = "reuseArtifacts" )
+    private boolean reuseArtifacts;
+
+    /**
+     * The URL of a release server started with <code>release:server</code>, to run the goal on instead of in this
+     * build. The server keeps the release manager, the SCM providers, the Maven executor and the parsed POMs warm
+     * across releases, and builds the reactor from the POM in the working directory. The goal is run with the release
+     * environment of the server, like its Maven executor and tuning options.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( property = "releaseServer" )
+    private String releaseServer;
+
+    /**
+     * The token of the release server given with <code>releaseServer</code>, found on the second line of the file the
+     * server wrote its URL to.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( property = "releaseServerToken" )
+    private String releaseServerToken;
+
     /**
      * Gets the enviroment settings configured for this release.
      *
@@ -130,13 +214,79 @@ public abstract class AbstractReleaseMojo
      */
     protected ReleaseEnvironment getReleaseEnvironment()
     {
-        return new DefaultReleaseEnvironment().setSettings( settings )
+        return new DefaultReleaseEnvironment().setTransformParallelism( transformParallelism )
+                                              .setScmEditBatchSize( scmEditBatchSize )
+                                              .setOutputBufferSize( outputBufferSize )
+                                              .setOutputOverflowPolicy( outputOverflowPolicy )
+                                              .setAdaptiveThreads( adaptiveThreads )
+                                              .setReuseArtifacts( reuseArtifacts )
+                                              .setSettings( settings )
                                               .setJavaHome( javaHome )
                                               .setMavenHome( mavenHome )
                                               .setLocalRepositoryDirectory( localRepoDirectory )
                                               .setMavenExecutorId( mavenExecutorId );
     }
 
+    /**
+     * Gets the client of the release server the goal is run on.
+     *
+     * @return The client, or <code>null</code> if the goal is run in this build.
+     * @throws MojoExecutionException If the URL of the server is not valid.
+     */
+    protected ReleaseServerClient getReleaseServerClient()
+        throws MojoExecutionException
+    {
+        if ( StringUtils.isEmpty( releaseServer ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new ReleaseServerClient( releaseServer, releaseServerToken );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Invalid release server URL: " + releaseServer, e );
+        }
+    }
+
+    /**
+     * @return A listener logging the progress of a goal run on the release server.
+     */
+    protected ReleaseManagerListener getReleaseServerListener()
+    {
+        return new ReleaseManagerListener()
+        {
+            public void goalStart( String goal, List<String> phases )
+            {
+                getLog().info( "Running " + goal + " on the release server at " + releaseServer );
+            }
+
+            public void phaseStart( String name )
+            {
+                getLog().info( "[" + name + "]" );
+            }
+
+            public void phaseEnd()
+            {
+            }
+
+            public void phaseSkip( String name )
+            {
+                getLog().info( "[" + name + "] skipped" );
+            }
+
+            public void goalEnd()
+            {
+            }
+
+            public void error( String reason )
+            {
+                getLog().error( reason );
+            }
+        };
+    }
+
     /**
      * Creates the release descriptor from the various goal parameters.
      *
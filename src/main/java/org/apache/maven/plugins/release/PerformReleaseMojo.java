@@ -30,7 +30,10 @@ import org.apache.maven.scm.manager.ScmManager;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseFailureException;
 import org.apache.maven.shared.release.ReleasePerformRequest;
+import org.apache.maven.shared.release.ReleaseServerClient;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
 import org.codehaus.plexus.util.StringUtils;
 
 /**
@@ -131,6 +134,35 @@ public class PerformReleaseMojo
     @Component
     private ScmManager scmManager;
 
+    /**
+     * The maximum number of Maven processes running the perform goals side by side. With more than <code>1</code>,
+     * the modules with <code>pom</code> packaging are performed first, then the other modules are split into groups
+     * which don't depend on each other, each performed by its own Maven process. The processes share the local
+     * repository and lock it with the file locks of Maven 3.9 and later.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "1", property = "performShards" )
+    private int performShards;
+
+    /**
+     * How to get the sources of the tag: <code>scm</code> checks it out through the SCM provider, <code>clone</code>
+     * clones the local git repository with hard links to its objects and <code>worktree</code> adds a worktree of the
+     * local git repository. <code>clone</code> and <code>worktree</code> don't use the network, and fall back to
+     * <code>scm</code> when the project is not in a git repository holding the tag.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "scm", property = "checkoutStrategy" )
+    private String checkoutStrategy;
+
+    @Override
+    protected ReleaseEnvironment getReleaseEnvironment()
+    {
+        return ( (DefaultReleaseEnvironment) super.getReleaseEnvironment() ).setPerformShards( performShards )
+                                                                           .setCheckoutStrategy( checkoutStrategy );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -190,12 +222,20 @@ public class PerformReleaseMojo
             createGoals();
             releaseDescriptor.setPerformGoals( goals );
             
-            ReleasePerformRequest performRequest  = new ReleasePerformRequest();
-            performRequest.setReleaseDescriptor( releaseDescriptor );
-            performRequest.setReleaseEnvironment( getReleaseEnvironment() );
-            performRequest.setReactorProjects( getReactorProjects() );
-            performRequest.setDryRun( dryRun );
-            releaseManager.perform( performRequest );
+            ReleaseServerClient releaseServer = getReleaseServerClient();
+            if ( releaseServer != null )
+            {
+                releaseServer.perform( releaseDescriptor, dryRun, true, getReleaseServerListener() );
+            }
+            else
+            {
+                ReleasePerformRequest performRequest  = new ReleasePerformRequest();
+                performRequest.setReleaseDescriptor( releaseDescriptor );
+                performRequest.setReleaseEnvironment( getReleaseEnvironment() );
+                performRequest.setReactorProjects( getReactorProjects() );
+                performRequest.setDryRun( dryRun );
+                releaseManager.perform( performRequest );
+            }
         }
         catch ( ReleaseExecutionException e )
         {
@@ -27,8 +27,11 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseFailureException;
+import org.apache.maven.shared.release.ReleaseServerClient;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
 import org.apache.maven.shared.release.config.ReleaseUtils;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
 
 /**
  * Prepare for a release in SCM. Steps through several phases to ensure the POM is ready to be released and then
@@ -225,6 +228,43 @@ public class PrepareReleaseMojo
     @Parameter( defaultValue = "default", property = "projectVersionPolicyId" )
     private String projectVersionPolicyId;
 
+    /**
+     * Whether to skip the preparation goals when they already passed on the same project tree, with the same goals,
+     * arguments, JDK and Maven, for instance when prepare is run again after a rollback. The output of the run which
+     * passed is replayed instead. The passing runs are kept in <code>~/.m2/release-verify-cache</code>.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "false", property = "verifyCache" )
+    private boolean verifyCache;
+
+    /**
+     * Whether to run the preparation goals even when the verify cache knows that they pass.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "false", property = "forceVerify" )
+    private boolean forceVerify;
+
+    /**
+     * The maximum number of prepare phases running at the same time. The read-only checks of the POMs, of the local
+     * modifications and of the snapshot dependencies, which don't depend on each other, then run side by side. The
+     * other phases still run one after the other, and a resumed release starts after the last phase completed along
+     * with all the phases before it.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "1", property = "phaseParallelism" )
+    private int phaseParallelism;
+
+    @Override
+    protected ReleaseEnvironment getReleaseEnvironment()
+    {
+        return ( (DefaultReleaseEnvironment) super.getReleaseEnvironment() ).setVerifyCache( verifyCache )
+                                                                           .setForceVerify( forceVerify )
+                                                                           .setPhaseParallelism( phaseParallelism );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -283,7 +323,15 @@ public class PrepareReleaseMojo
 
         try
         {
-            releaseManager.prepare( config, getReleaseEnvironment(), getReactorProjects(), resume, dryRun );
+            ReleaseServerClient releaseServer = getReleaseServerClient();
+            if ( releaseServer != null )
+            {
+                releaseServer.prepare( config, resume, dryRun, getReleaseServerListener() );
+            }
+            else
+            {
+                releaseManager.prepare( config, getReleaseEnvironment(), getReactorProjects(), resume, dryRun );
+            }
         }
         catch ( ReleaseExecutionException e )
         {
@@ -24,6 +24,7 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseFailureException;
+import org.apache.maven.shared.release.ReleaseServerClient;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
 
 /**
@@ -53,7 +54,15 @@ public class RollbackReleaseMojo
 
         try
         {
-            releaseManager.rollback( config, getReleaseEnvironment(), getReactorProjects() );
+            ReleaseServerClient releaseServer = getReleaseServerClient();
+            if ( releaseServer != null )
+            {
+                releaseServer.rollback( config, getReleaseServerListener() );
+            }
+            else
+            {
+                releaseManager.rollback( config, getReleaseEnvironment(), getReactorProjects() );
+            }
         }
         catch ( ReleaseExecutionException e )
         {
@@ -0,0 +1,180 @@
+package org.apache.maven.plugins.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.DuplicateProjectException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuilder;
+import org.apache.maven.project.ProjectBuildingException;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.ProjectBuildingResult;
+import org.apache.maven.project.ProjectSorter;
+import org.apache.maven.shared.release.ReleaseExecutionException;
+import org.apache.maven.shared.release.ReleaseServer;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.util.ParsedPomCache;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.dag.CycleDetectedException;
+
+/**
+ * Run a release server: a long-lived process which runs the prepare, perform and rollback goals of builds given the
+ * <code>releaseServer</code> parameter, instead of each build running them itself. The release manager, the SCM
+ * providers, the Maven executor and the parsed POMs stay warm from one release to the next. The server listens on the
+ * loopback interface only, runs the releases one at a time with the release environment configured here, and stops
+ * on a <code>POST</code> to <code>/shutdown</code>.
+ * <p/>
+ * A release runs arbitrary Maven goals as the user of the server, so the server only accepts requests carrying the
+ * random token it generates when it starts. The URL of the server and its token are written on the first and second
+ * line of <code>serverUrlFile</code>, which only its owner can read, for the builds to pass as
+ * <code>releaseServer</code> and <code>releaseServerToken</code>. The file is deleted when the server stops.
+ *
+ * @since 2.5.3.1
+ */
+@Mojo( name = "server", aggregator = true, requiresProject = false )
+public class ServerReleaseMojo
+    extends AbstractReleaseMojo
+{
+    /**
+     * The port to listen to on the loopback interface, <code>0</code> for any free port.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "0", property = "serverPort" )
+    private int serverPort;
+
+    /**
+     * The file to write the URL and the token of the server to once it listens, readable by its owner only.
+     *
+     * @since 2.5.3.1
+     */
+    @Parameter( defaultValue = "${project.build.directory}/release-server", property = "serverUrlFile",
+                required = true )
+    private File serverUrlFile;
+
+    @Component
+    private ProjectBuilder projectBuilder;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        DefaultReleaseEnvironment releaseEnvironment =
+            ( (DefaultReleaseEnvironment) getReleaseEnvironment() ).setPomCache( new ParsedPomCache( true ) );
+
+        ReleaseServer server = new ReleaseServer( releaseManager, releaseEnvironment, new ReleaseServer.ReactorLoader()
+        {
+            public List<MavenProject> load( File pomFile )
+                throws ReleaseExecutionException
+            {
+                return buildReactor( pomFile );
+            }
+        } );
+
+        try
+        {
+            server.start( serverPort );
+            writeServerUrlFile( server );
+            getLog().info( "Release server listening on " + server.getUrl() + ", its token is in " + serverUrlFile );
+
+            server.awaitShutdown();
+            getLog().info( "Release server stopped" );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to start the release server: " + e.getMessage(), e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            server.stop();
+            serverUrlFile.delete();
+        }
+    }
+
+    private void writeServerUrlFile( ReleaseServer server )
+        throws IOException
+    {
+        serverUrlFile.getAbsoluteFile().getParentFile().mkdirs();
+        serverUrlFile.delete();
+        if ( !serverUrlFile.createNewFile() )
+        {
+            throw new IOException( "Unable to create " + serverUrlFile );
+        }
+
+        // the token lets anyone run releases: restrict the file to its owner before anything is written to it
+        serverUrlFile.setReadable( false, false );
+        serverUrlFile.setReadable( true, true );
+        serverUrlFile.setWritable( false, false );
+        serverUrlFile.setWritable( true, true );
+
+        FileUtils.fileWrite( serverUrlFile.getAbsolutePath(), "UTF-8", server.getUrl() + "\n" + server.getToken()
+            + "\n" );
+    }
+
+    private List<MavenProject> buildReactor( File pomFile )
+        throws ReleaseExecutionException
+    {
+        ProjectBuildingRequest request = new DefaultProjectBuildingRequest( session.getProjectBuildingRequest() );
+        request.setProject( null );
+
+        try
+        {
+            List<MavenProject> projects = new ArrayList<MavenProject>();
+            for ( ProjectBuildingResult result : projectBuilder.build( Collections.singletonList( pomFile ), true,
+                                                                       request ) )
+            {
+                projects.add( result.getProject() );
+            }
+            return new ProjectSorter( projects ).getSortedProjects();
+        }
+        catch ( ProjectBuildingException e )
+        {
+            throw new ReleaseExecutionException( "Unable to build the reactor of " + pomFile + ": " + e.getMessage(),
+                                                 e );
+        }
+        catch ( CycleDetectedException e )
+        {
+            throw new ReleaseExecutionException( "Unable to build the reactor of " + pomFile + ": " + e.getMessage(),
+                                                 e );
+        }
+        catch ( DuplicateProjectException e )
+        {
+            throw new ReleaseExecutionException( "Unable to build the reactor of " + pomFile + ": " + e.getMessage(),
+                                                 e );
+        }
+    }
+}
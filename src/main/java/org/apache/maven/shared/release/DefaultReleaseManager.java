@@ -29,17 +29,21 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.config.PropertiesReleaseDescriptorStore;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
 import org.apache.maven.shared.release.config.ReleaseDescriptorStore;
 import org.apache.maven.shared.release.config.ReleaseDescriptorStoreException;
 import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.exec.SettingsSnapshotCache;
 import org.apache.maven.shared.release.phase.ReleasePhase;
 import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
+import org.apache.maven.shared.release.util.ReleaseJournal;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.codehaus.plexus.util.StringUtils;
 
@@ -113,6 +117,10 @@ public class DefaultReleaseManager
         prepare( releaseDescriptor, releaseEnvironment, reactorProjects, resume, dryRun, null );
     }
 
+    /**
+     * Prepares the release, returning its outcome and output. Only the tail of the output is held in memory: the whole
+     * output is read from {@link ReleaseResult#getOutputSink()}, whose spill file the caller deletes.
+     */
     public ReleaseResult prepareWithResult( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
             List<MavenProject> reactorProjects, boolean resume, boolean dryRun,
             ReleaseManagerListener listener )
@@ -138,6 +146,7 @@ public class DefaultReleaseManager
         finally
         {
             result.setEndTime( System.currentTimeMillis() );
+            result.getOutputSink().close();
         }
 
         return result;
@@ -156,7 +165,16 @@ public class DefaultReleaseManager
     public void prepare( ReleasePrepareRequest prepareRequest )
             throws ReleaseExecutionException, ReleaseFailureException
     {
-        prepare( prepareRequest, new ReleaseResult() );
+        ReleaseResult result = new ReleaseResult();
+        try
+        {
+            prepare( prepareRequest, result );
+        }
+        finally
+        {
+            // nobody reads the output
+            result.getOutputSink().delete();
+        }
     }
 
     private void prepare( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
@@ -191,81 +209,137 @@ public class DefaultReleaseManager
             config = prepareRequest.getReleaseDescriptor();
         }
 
-        // Later, it would be a good idea to introduce a proper workflow tool so that the release can be made up of a
-        // more flexible set of steps.
-
-        String completedPhase = config.getCompletedPhase();
-        int index = preparePhases.indexOf( completedPhase );
-
-        for ( int idx = 0; idx <= index; idx++ )
-        {
-            updateListener( prepareRequest.getReleaseManagerListener(), preparePhases.get( idx ), PHASE_SKIP );
-        }
-
-        if ( index == preparePhases.size() - 1 )
-        {
-            logInfo( result, "Release preparation already completed. You can now continue with release:perform, "
-                    + "or start again using the -Dresume=false flag" );
-        }
-        else if ( index >= 0 )
+        final ReleaseContext context =
+            ReleaseContext.open( config, DefaultReleaseEnvironment.getPomCache( prepareRequest.getReleaseEnvironment() ) )
+                          .setReactorProjects( prepareRequest.getReactorProjects() );
+        final ReleaseMetrics metrics = new ReleaseMetrics( "prepare" );
+        if ( result != null )
         {
-            logInfo( result, "Resuming release from phase '" + preparePhases.get( index + 1 ) + "'" );
+            result.setMetrics( metrics );
         }
-
-        // start from next phase
-        for ( int i = index + 1; i < preparePhases.size(); i++ )
+        final Map<String, ReleaseMetrics.Phase> measuredPhases = new ConcurrentHashMap<String, ReleaseMetrics.Phase>();
+        SettingsSnapshotCache.open( prepareRequest.getReleaseEnvironment() );
+        try
         {
-            String name = preparePhases.get( i );
+            // Later, it would be a good idea to introduce a proper workflow tool so that the release can be made up of
+            // a more flexible set of steps.
 
-            ReleasePhase phase = releasePhases.get( name );
+            String completedPhase = config.getCompletedPhase();
+            int index = preparePhases.indexOf( completedPhase );
 
-            if ( phase == null )
+            for ( int idx = 0; idx <= index; idx++ )
             {
-                throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                updateListener( prepareRequest.getReleaseManagerListener(), preparePhases.get( idx ), PHASE_SKIP );
             }
 
-            /*if("org.apache.maven.shared.release.phase.ScmCommitDevelopmentPhase".equals(phase.getClass().getName())){
-                continue;
-            }*/
-
-            updateListener( prepareRequest.getReleaseManagerListener(), name, PHASE_START );
+            if ( index == preparePhases.size() - 1 )
+            {
+                logInfo( result, "Release preparation already completed. You can now continue with release:perform, "
+                        + "or start again using the -Dresume=false flag" );
+            }
+            else if ( index >= 0 )
+            {
+                logInfo( result, "Resuming release from phase '" + preparePhases.get( index + 1 ) + "'" );
+            }
 
-            ReleaseResult phaseResult = null;
-            try
+            // start from next phase
+            final ReleasePrepareRequest request = prepareRequest;
+            final ReleaseDescriptor descriptor = config;
+            final ReleaseResult prepareResult = result;
+            final ReleaseJournal journal = getJournal( config );
+            int parallelism = DefaultReleaseEnvironment.getPhaseParallelism( prepareRequest.getReleaseEnvironment() );
+            if ( parallelism > 1 )
+            {
+                logInfo( result, "Running the independent prepare phases on up to " + parallelism + " threads." );
+            }
+            new PhaseScheduler( preparePhases.subList( index + 1, preparePhases.size() ), releasePhases,
+                                parallelism ).run( new PhaseScheduler.Callback()
             {
-                if ( BooleanUtils.isTrue( prepareRequest.getDryRun() ) )
+                public void started( String name )
                 {
-                    phaseResult = phase.simulate( config,
-                            prepareRequest.getReleaseEnvironment(),
-                            prepareRequest.getReactorProjects() );
+                    updateListener( request.getReleaseManagerListener(), name, PHASE_START );
                 }
-                else
+
+                public ReleaseResult run( String name, ReleasePhase phase )
+                    throws ReleaseExecutionException, ReleaseFailureException
                 {
-                    phaseResult = phase.execute( config,
-                            prepareRequest.getReleaseEnvironment(),
-                            prepareRequest.getReactorProjects() );
+                    ReleaseMetrics.Phase measured = ReleaseMetrics.start( name, context );
+                    boolean completed = false;
+                    try
+                    {
+                        ReleaseResult phaseResult;
+                        if ( BooleanUtils.isTrue( request.getDryRun() ) )
+                        {
+                            phaseResult = phase.simulate( descriptor, request.getReleaseEnvironment(),
+                                                          request.getReactorProjects() );
+                        }
+                        else
+                        {
+                            phaseResult = phase.execute( descriptor, request.getReleaseEnvironment(),
+                                                         request.getReactorProjects() );
+                        }
+                        completed = true;
+                        return phaseResult;
+                    }
+                    finally
+                    {
+                        measuredPhases.put( name, measured.stop( completed ) );
+                    }
                 }
-            }
-            finally
-            {
-                if ( result != null && phaseResult != null )
+
+                public void completed( String name, ReleaseResult phaseResult )
+                    throws ReleaseExecutionException
                 {
-                    result.appendOutput(  phaseResult.getOutput() );
+                    if ( prepareResult != null && phaseResult != null )
+                    {
+                        prepareResult.appendOutput( phaseResult );
+                    }
+                    else if ( phaseResult != null )
+                    {
+                        phaseResult.getOutputSink().delete();
+                    }
+
+                    descriptor.setCompletedPhase( name );
+                    checkpoint( descriptor, journal, name );
+
+                    updateListener( request.getReleaseManagerListener(), name, PHASE_END );
+                    recordMetrics( metrics, measuredPhases.remove( name ), request.getReleaseManagerListener() );
                 }
-            }
+            } );
 
-            config.setCompletedPhase( name );
-            try
+            if ( journal != null && journal.isOpen() )
             {
-                configStore.write( config );
+                // compact the journal into release.properties
+                try
+                {
+                    configStore.write( config );
+                    journal.delete();
+                }
+                catch ( ReleaseDescriptorStoreException e )
+                {
+                    throw new ReleaseExecutionException( "Error writing release properties", e );
+                }
+                catch ( IOException e )
+                {
+                    throw new ReleaseExecutionException( "Error deleting the release journal: " + e.getMessage(), e );
+                }
             }
-            catch ( ReleaseDescriptorStoreException e )
+        }
+        finally
+        {
+            // the phases which failed, or which completed after the one which failed
+            for ( String name : preparePhases )
             {
-                // TODO: rollback?
-                throw new ReleaseExecutionException( "Error writing release properties after completing phase", e );
+                ReleaseMetrics.Phase measured = measuredPhases.remove( name );
+                if ( measured != null )
+                {
+                    recordMetrics( metrics, measured, prepareRequest.getReleaseManagerListener() );
+                }
             }
+            writeMetrics( metrics, config );
 
-            updateListener( prepareRequest.getReleaseManagerListener(), name, PHASE_END );
+            SettingsSnapshotCache.close( prepareRequest.getReleaseEnvironment() );
+            ReleaseContext.close( config );
         }
 
         updateListener( prepareRequest.getReleaseManagerListener(), "prepare", GOAL_END );
@@ -301,26 +375,53 @@ public class DefaultReleaseManager
 
         ReleaseDescriptor releaseDescriptor = loadReleaseDescriptor( rollbackRequest.getReleaseDescriptor(), null );
 
-        for ( String name : rollbackPhases )
+        ReleaseContext context = ReleaseContext.open( releaseDescriptor,
+            DefaultReleaseEnvironment.getPomCache( rollbackRequest.getReleaseEnvironment() ) );
+        ReleaseMetrics metrics = new ReleaseMetrics( "rollback" );
+        try
         {
-            ReleasePhase phase = releasePhases.get( name );
-
-            if ( phase == null )
+            for ( String name : rollbackPhases )
             {
-                throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                ReleasePhase phase = releasePhases.get( name );
+
+                if ( phase == null )
+                {
+                    throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                }
+
+                updateListener( rollbackRequest.getReleaseManagerListener(), name, PHASE_START );
+                ReleaseMetrics.Phase measured = ReleaseMetrics.start( name, context );
+                boolean completed = false;
+                try
+                {
+                    discard( phase.execute( releaseDescriptor,
+                            rollbackRequest.getReleaseEnvironment(),
+                            rollbackRequest.getReactorProjects() ) );
+                    completed = true;
+                }
+                finally
+                {
+                    measured.stop( completed );
+                    if ( !completed )
+                    {
+                        recordMetrics( metrics, measured, rollbackRequest.getReleaseManagerListener() );
+                    }
+                }
+                updateListener( rollbackRequest.getReleaseManagerListener(), name, PHASE_END );
+                recordMetrics( metrics, measured, rollbackRequest.getReleaseManagerListener() );
             }
 
-            updateListener( rollbackRequest.getReleaseManagerListener(), name, PHASE_START );
-            phase.execute( releaseDescriptor,
-                    rollbackRequest.getReleaseEnvironment(),
+            //call release:clean so that resume will not be possible anymore after a rollback
+            clean( releaseDescriptor,
+                    rollbackRequest.getReleaseManagerListener(),
                     rollbackRequest.getReactorProjects() );
-            updateListener( rollbackRequest.getReleaseManagerListener(), name, PHASE_END );
+        }
+        finally
+        {
+            writeMetrics( metrics, releaseDescriptor );
+            ReleaseContext.close( releaseDescriptor );
         }
 
-        //call release:clean so that resume will not be possible anymore after a rollback
-        clean( releaseDescriptor,
-                rollbackRequest.getReleaseManagerListener(),
-                rollbackRequest.getReactorProjects() );
         updateListener( rollbackRequest.getReleaseManagerListener(), "rollback", GOAL_END );
     }
 
@@ -352,9 +453,22 @@ public class DefaultReleaseManager
             List<MavenProject> reactorProjects, ReleaseManagerListener listener, boolean clean )
             throws ReleaseExecutionException, ReleaseFailureException
     {
-        perform( releaseDescriptor, releaseEnvironment, reactorProjects, listener, new ReleaseResult(), clean );
+        ReleaseResult result = new ReleaseResult();
+        try
+        {
+            perform( releaseDescriptor, releaseEnvironment, reactorProjects, listener, result, clean );
+        }
+        finally
+        {
+            // nobody reads the output
+            result.getOutputSink().delete();
+        }
     }
 
+    /**
+     * Performs the release, returning its outcome and output. Only the tail of the output is held in memory: the whole
+     * output is read from {@link ReleaseResult#getOutputSink()}, whose spill file the caller deletes.
+     */
     public ReleaseResult performWithResult( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
             List<MavenProject> reactorProjects, ReleaseManagerListener listener )
     {
@@ -378,6 +492,7 @@ public class DefaultReleaseManager
         finally
         {
             result.setEndTime( System.currentTimeMillis() );
+            result.getOutputSink().close();
         }
 
         return result;
@@ -387,7 +502,16 @@ public class DefaultReleaseManager
     public void perform( ReleasePerformRequest performRequest )
             throws ReleaseExecutionException, ReleaseFailureException
     {
-        perform( performRequest, new ReleaseResult() );
+        ReleaseResult result = new ReleaseResult();
+        try
+        {
+            perform( performRequest, result );
+        }
+        finally
+        {
+            // nobody reads the output
+            result.getOutputSink().delete();
+        }
     }
     private void perform( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
             List<MavenProject> reactorProjects, ReleaseManagerListener listener, ReleaseResult result,
@@ -410,47 +534,80 @@ public class DefaultReleaseManager
         ReleaseDescriptor releaseDescriptor = loadReleaseDescriptor( performRequest.getReleaseDescriptor(),
                 performRequest.getReleaseManagerListener() );
 
-        for ( String name : performPhases )
+        ReleaseContext context =
+            ReleaseContext.open( releaseDescriptor,
+                DefaultReleaseEnvironment.getPomCache( performRequest.getReleaseEnvironment() ) )
+                          .setReactorProjects( performRequest.getReactorProjects() );
+        ReleaseMetrics metrics = new ReleaseMetrics( "perform" );
+        if ( result != null )
         {
-            ReleasePhase phase = releasePhases.get( name );
-            if ( phase == null )
+            result.setMetrics( metrics );
+        }
+        SettingsSnapshotCache.open( performRequest.getReleaseEnvironment() );
+        try
+        {
+            for ( String name : performPhases )
             {
-                throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
-            }
+                ReleasePhase phase = releasePhases.get( name );
+                if ( phase == null )
+                {
+                    throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                }
 
-            updateListener( performRequest.getReleaseManagerListener(), name, PHASE_START );
+                updateListener( performRequest.getReleaseManagerListener(), name, PHASE_START );
 
-            ReleaseResult phaseResult = null;
-            try
-            {
-                if ( BooleanUtils.isTrue( performRequest.getDryRun() ) )
+                ReleaseResult phaseResult = null;
+                ReleaseMetrics.Phase measured = ReleaseMetrics.start( name, context );
+                boolean completed = false;
+                try
                 {
-                    phaseResult = phase.simulate( releaseDescriptor,
-                            performRequest.getReleaseEnvironment(),
-                            performRequest.getReactorProjects() );
+                    if ( BooleanUtils.isTrue( performRequest.getDryRun() ) )
+                    {
+                        phaseResult = phase.simulate( releaseDescriptor,
+                                performRequest.getReleaseEnvironment(),
+                                performRequest.getReactorProjects() );
+                    }
+                    else
+                    {
+                        phaseResult = phase.execute( releaseDescriptor,
+                                performRequest.getReleaseEnvironment(),
+                                performRequest.getReactorProjects() );
+                    }
+                    completed = true;
                 }
-                else
+                finally
                 {
-                    phaseResult = phase.execute( releaseDescriptor,
-                            performRequest.getReleaseEnvironment(),
-                            performRequest.getReactorProjects() );
+                    measured.stop( completed );
+                    if ( result != null && phaseResult != null )
+                    {
+                        result.appendOutput( phaseResult );
+                    }
+                    else if ( phaseResult != null )
+                    {
+                        phaseResult.getOutputSink().delete();
+                    }
+                    if ( !completed )
+                    {
+                        recordMetrics( metrics, measured, performRequest.getReleaseManagerListener() );
+                    }
                 }
+
+                updateListener( performRequest.getReleaseManagerListener(), name, PHASE_END );
+                recordMetrics( metrics, measured, performRequest.getReleaseManagerListener() );
             }
-            finally
+
+            if ( BooleanUtils.isNotFalse( performRequest.getClean() ) )
             {
-                if ( result != null && phaseResult != null )
-                {
-                    result.appendOutput( phaseResult.getOutput() );
-                }
+                // call release:clean so that resume will not be possible anymore after a perform
+                clean( releaseDescriptor, performRequest.getReleaseManagerListener(),
+                        performRequest.getReactorProjects() );
             }
-
-            updateListener( performRequest.getReleaseManagerListener(), name, PHASE_END );
         }
-
-        if ( BooleanUtils.isNotFalse( performRequest.getClean() ) )
+        finally
         {
-            // call release:clean so that resume will not be possible anymore after a perform
-            clean( releaseDescriptor, performRequest.getReleaseManagerListener(), performRequest.getReactorProjects() );
+            writeMetrics( metrics, releaseDescriptor );
+            SettingsSnapshotCache.close( performRequest.getReleaseEnvironment() );
+            ReleaseContext.close( releaseDescriptor );
         }
 
         updateListener( performRequest.getReleaseManagerListener(), "perform", GOAL_END );
@@ -490,37 +647,63 @@ public class DefaultReleaseManager
 
         boolean dryRun = BooleanUtils.isTrue( branchRequest.getDryRun() );
 
-        for ( String name : branchPhases )
+        ReleaseContext context = ReleaseContext.open( releaseDescriptor,
+            DefaultReleaseEnvironment.getPomCache( branchRequest.getReleaseEnvironment() ) );
+        ReleaseMetrics metrics = new ReleaseMetrics( "branch" );
+        try
         {
-            ReleasePhase phase = releasePhases.get( name );
-
-            if ( phase == null )
+            for ( String name : branchPhases )
             {
-                throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
-            }
+                ReleasePhase phase = releasePhases.get( name );
 
-            updateListener( branchRequest.getReleaseManagerListener(), name, PHASE_START );
+                if ( phase == null )
+                {
+                    throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                }
 
-            if ( dryRun )
-            {
-                phase.simulate( releaseDescriptor,
-                        branchRequest.getReleaseEnvironment(),
-                        branchRequest.getReactorProjects() );
+                updateListener( branchRequest.getReleaseManagerListener(), name, PHASE_START );
+
+                ReleaseMetrics.Phase measured = ReleaseMetrics.start( name, context );
+                boolean completed = false;
+                try
+                {
+                    if ( dryRun )
+                    {
+                        discard( phase.simulate( releaseDescriptor,
+                                branchRequest.getReleaseEnvironment(),
+                                branchRequest.getReactorProjects() ) );
+                    }
+                    else // getDryRun is null or FALSE
+                    {
+                        discard( phase.execute( releaseDescriptor,
+                                branchRequest.getReleaseEnvironment(),
+                                branchRequest.getReactorProjects() ) );
+                    }
+                    completed = true;
+                }
+                finally
+                {
+                    measured.stop( completed );
+                    if ( !completed )
+                    {
+                        recordMetrics( metrics, measured, branchRequest.getReleaseManagerListener() );
+                    }
+                }
+                updateListener( branchRequest.getReleaseManagerListener(), name, PHASE_END );
+                recordMetrics( metrics, measured, branchRequest.getReleaseManagerListener() );
             }
-            else // getDryRun is null or FALSE
+
+            if ( !dryRun )
             {
-                phase.execute( releaseDescriptor,
-                        branchRequest.getReleaseEnvironment(),
+                clean( releaseDescriptor,
+                        branchRequest.getReleaseManagerListener(),
                         branchRequest.getReactorProjects() );
             }
-            updateListener( branchRequest.getReleaseManagerListener(), name, PHASE_END );
         }
-
-        if ( !dryRun )
+        finally
         {
-            clean( releaseDescriptor,
-                    branchRequest.getReleaseManagerListener(),
-                    branchRequest.getReactorProjects() );
+            writeMetrics( metrics, releaseDescriptor );
+            ReleaseContext.close( releaseDescriptor );
         }
 
         updateListener( branchRequest.getReleaseManagerListener(), "branch", GOAL_END );
@@ -547,25 +730,34 @@ public class DefaultReleaseManager
         ReleaseDescriptor releaseDescriptor = loadReleaseDescriptor( updateVersionsRequest.getReleaseDescriptor(),
                 updateVersionsRequest.getReleaseManagerListener() );
 
-        for ( String name : updateVersionsPhases )
+        ReleaseContext.open( releaseDescriptor,
+            DefaultReleaseEnvironment.getPomCache( updateVersionsRequest.getReleaseEnvironment() ) );
+        try
         {
-            ReleasePhase phase = releasePhases.get( name );
-
-            if ( phase == null )
+            for ( String name : updateVersionsPhases )
             {
-                throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                ReleasePhase phase = releasePhases.get( name );
+
+                if ( phase == null )
+                {
+                    throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+                }
+
+                updateListener( updateVersionsRequest.getReleaseManagerListener(), name, PHASE_START );
+                discard( phase.execute( releaseDescriptor,
+                        updateVersionsRequest.getReleaseEnvironment(),
+                        updateVersionsRequest.getReactorProjects() ) );
+                updateListener( updateVersionsRequest.getReleaseManagerListener(), name, PHASE_END );
             }
 
-            updateListener( updateVersionsRequest.getReleaseManagerListener(), name, PHASE_START );
-            phase.execute( releaseDescriptor,
-                    updateVersionsRequest.getReleaseEnvironment(),
+            clean( releaseDescriptor,
+                    updateVersionsRequest.getReleaseManagerListener(),
                     updateVersionsRequest.getReactorProjects() );
-            updateListener( updateVersionsRequest.getReleaseManagerListener(), name, PHASE_END );
         }
-
-        clean( releaseDescriptor,
-                updateVersionsRequest.getReleaseManagerListener(),
-                updateVersionsRequest.getReactorProjects() );
+        finally
+        {
+            ReleaseContext.close( releaseDescriptor );
+        }
 
         updateListener( updateVersionsRequest.getReleaseManagerListener(), "updateVersions", GOAL_END );
     }
@@ -592,6 +784,53 @@ public class DefaultReleaseManager
         }
     }
 
+    /**
+     * Writes the release descriptor after a phase: in full the first time, then only its changes to the journal.
+     */
+    private void checkpoint( ReleaseDescriptor releaseDescriptor, ReleaseJournal journal, String name )
+            throws ReleaseExecutionException
+    {
+        try
+        {
+            if ( journal == null )
+            {
+                configStore.write( releaseDescriptor );
+            }
+            else if ( !journal.isOpen() )
+            {
+                journal.open( releaseDescriptor );
+                configStore.write( releaseDescriptor );
+            }
+            else
+            {
+                journal.checkpoint( releaseDescriptor, name );
+            }
+        }
+        catch ( ReleaseDescriptorStoreException e )
+        {
+            // TODO: rollback?
+            throw new ReleaseExecutionException( "Error writing release properties after completing phase", e );
+        }
+        catch ( IOException e )
+        {
+            throw new ReleaseExecutionException( "Error writing the release journal after completing phase: "
+                + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @return The journal next to <code>release.properties</code>, or <code>null</code> if the release descriptor
+     *         is not stored there.
+     */
+    private ReleaseJournal getJournal( ReleaseDescriptor releaseDescriptor )
+    {
+        if ( configStore instanceof PropertiesReleaseDescriptorStore && releaseDescriptor.getWorkingDirectory() != null )
+        {
+            return new ReleaseJournal( new File( releaseDescriptor.getWorkingDirectory() ) );
+        }
+        return null;
+    }
+
     private ReleaseDescriptor loadReleaseDescriptor( ReleaseDescriptor releaseDescriptor,
             ReleaseManagerListener listener )
             throws ReleaseExecutionException
@@ -599,6 +838,13 @@ public class DefaultReleaseManager
         try
         {
             updateListener( listener, "verify-release-configuration", PHASE_START );
+            ReleaseJournal journal = getJournal( releaseDescriptor );
+            if ( journal != null && journal.exists() )
+            {
+                int checkpoints = journal.compact();
+                getLogger().info( "Replayed " + checkpoints + " checkpoints of the release journal into "
+                    + "release.properties." );
+            }
             ReleaseDescriptor descriptor = configStore.read( releaseDescriptor );
             updateListener( listener, "verify-release-configuration", PHASE_END );
             return descriptor;
@@ -609,6 +855,12 @@ public class DefaultReleaseManager
 
             throw new ReleaseExecutionException( "Error reading stored configuration: " + e.getMessage(), e );
         }
+        catch ( IOException e )
+        {
+            updateListener( listener, e.getMessage(), ERROR );
+
+            throw new ReleaseExecutionException( "Error replaying the release journal: " + e.getMessage(), e );
+        }
     }
 
     /** {@inheritDoc} */
@@ -631,6 +883,18 @@ public class DefaultReleaseManager
         getLogger().info( "Cleaning up after release..." );
 
         configStore.delete( cleanRequest.getReleaseDescriptor() );
+        ReleaseJournal journal = getJournal( cleanRequest.getReleaseDescriptor() );
+        if ( journal != null )
+        {
+            try
+            {
+                journal.delete();
+            }
+            catch ( IOException e )
+            {
+                getLogger().warn( e.getMessage() );
+            }
+        }
         Set<String> phases = new LinkedHashSet<String>( preparePhases );
         phases.addAll( branchPhases );
 
@@ -644,6 +908,17 @@ public class DefaultReleaseManager
         updateListener( cleanRequest.getReleaseManagerListener(), "cleanup", PHASE_END );
     }
 
+    /**
+     * Deletes the output of a phase result nobody reads, so that its spill file doesn't outlive the release.
+     */
+    private static void discard( ReleaseResult phaseResult )
+    {
+        if ( phaseResult != null )
+        {
+            phaseResult.getOutputSink().delete();
+        }
+    }
+
     void setConfigStore( ReleaseDescriptorStore configStore )
     {
         this.configStore = configStore;
@@ -676,6 +951,40 @@ public class DefaultReleaseManager
         }
     }
 
+    private void recordMetrics( ReleaseMetrics metrics, ReleaseMetrics.Phase phase, ReleaseManagerListener listener )
+    {
+        metrics.add( phase );
+        if ( listener instanceof ReleaseMetricsListener )
+        {
+            ( (ReleaseMetricsListener) listener ).phaseMetrics( phase );
+        }
+    }
+
+    /**
+     * Writes the metrics of a goal to the <code>target</code> directory next to <code>release.properties</code>, as
+     * <code>release-metrics-<i>goal</i>.json</code>.
+     */
+    private void writeMetrics( ReleaseMetrics metrics, ReleaseDescriptor releaseDescriptor )
+    {
+        if ( releaseDescriptor.getWorkingDirectory() == null )
+        {
+            return;
+        }
+
+        File file = new File( new File( releaseDescriptor.getWorkingDirectory(), "target" ),
+                              "release-metrics-" + metrics.getGoal() + ".json" );
+        try
+        {
+            file.getParentFile().mkdirs();
+            metrics.writeJson( file );
+            getLogger().debug( "Release metrics written to " + file );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "Unable to write the release metrics to " + file + ": " + e.getMessage() );
+        }
+    }
+
     private List<String> getGoalPhases( String name )
     {
         List<String> phases = new ArrayList<String>();
@@ -0,0 +1,380 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.shared.release.phase.ReleasePhase;
+
+/**
+ * Runs a list of release phases, running the phases which don't depend on each other at the same time.
+ * <p/>
+ * A phase depends on every earlier phase which writes what it reads or writes, or reads what it writes, as declared
+ * below by role hint. A phase without a declaration depends on every earlier phase, and every later phase depends on
+ * it. The phases start in the order of the list, each as soon as the phases it depends on have completed and a thread
+ * is free, and they complete in the order of the list: a phase is only reported completed, and checkpointed, once
+ * every earlier phase is. So the completed phase of the release descriptor is always the last of a run of completed
+ * phases, and the listener sees the starts and the ends of the phases in the order of the list. Since a checkpoint
+ * serializes the release descriptor, a phase is not completed while a phase which may write the descriptor is running.
+ */
+final class PhaseScheduler
+{
+    /**
+     * What the phases read and write: the POMs, the SCM configuration of the descriptor, the versions of the
+     * descriptor, the working copy and the console, for the prompts.
+     */
+    private static final Map<String, Resources> DECLARATIONS = new HashMap<String, Resources>();
+
+    static
+    {
+        declare( "check-poms", new String[] { "poms" }, new String[] { "descriptor.scm" } );
+        declare( "scm-check-modifications", new String[] { "descriptor.scm", "working-copy" }, new String[0] );
+        declare( "check-dependency-snapshots", new String[] { "poms", "descriptor.versions" },
+                 new String[] { "descriptor.snapshots", "console" } );
+        declare( "create-backup-poms", new String[] { "poms" }, new String[] { "working-copy" } );
+    }
+
+    /**
+     * What the scheduler reports back to the release manager.
+     */
+    interface Callback
+    {
+        /**
+         * Called on the thread of the release manager, in the order of the phases.
+         */
+        void started( String name );
+
+        /**
+         * Runs a phase, on a thread of the scheduler.
+         */
+        ReleaseResult run( String name, ReleasePhase phase )
+            throws ReleaseExecutionException, ReleaseFailureException;
+
+        /**
+         * Called on the thread of the release manager, in the order of the phases.
+         */
+        void completed( String name, ReleaseResult phaseResult )
+            throws ReleaseExecutionException;
+    }
+
+    private final List<String> names;
+
+    private final Map<String, ReleasePhase> phases;
+
+    private final int parallelism;
+
+    /**
+     * @param names The role hints of the phases to run, in order.
+     * @param phases The phases by role hint.
+     * @param parallelism The maximum number of phases running at the same time.
+     */
+    PhaseScheduler( List<String> names, Map<String, ReleasePhase> phases, int parallelism )
+    {
+        this.names = names;
+        this.phases = phases;
+        this.parallelism = Math.max( 1, parallelism );
+    }
+
+    private static void declare( String name, String[] reads, String[] writes )
+    {
+        DECLARATIONS.put( name, new Resources( new HashSet<String>( Arrays.asList( reads ) ),
+                                               new HashSet<String>( Arrays.asList( writes ) ) ) );
+    }
+
+    void run( Callback callback )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        if ( parallelism == 1 || names.size() < 2 )
+        {
+            for ( String name : names )
+            {
+                ReleasePhase phase = getPhase( name );
+                callback.started( name );
+                callback.completed( name, callback.run( name, phase ) );
+            }
+            return;
+        }
+
+        List<ReleasePhase> list = new ArrayList<ReleasePhase>();
+        for ( String name : names )
+        {
+            list.add( getPhase( name ) );
+        }
+        runConcurrently( list, getDependencies(), callback );
+    }
+
+    private ReleasePhase getPhase( String name )
+        throws ReleaseExecutionException
+    {
+        ReleasePhase phase = phases.get( name );
+        if ( phase == null )
+        {
+            throw new ReleaseExecutionException( "Unable to find phase '" + name + "' to execute" );
+        }
+        return phase;
+    }
+
+    /**
+     * @return For each phase, the earlier phases it depends on.
+     */
+    List<Set<Integer>> getDependencies()
+    {
+        List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>();
+        for ( int i = 0; i < names.size(); i++ )
+        {
+            Set<Integer> earlier = new HashSet<Integer>();
+            Resources later = DECLARATIONS.get( names.get( i ) );
+            for ( int j = 0; j < i; j++ )
+            {
+                Resources before = DECLARATIONS.get( names.get( j ) );
+                if ( later == null || before == null || before.conflictsWith( later ) )
+                {
+                    earlier.add( Integer.valueOf( j ) );
+                }
+            }
+            dependencies.add( earlier );
+        }
+        return dependencies;
+    }
+
+    private void runConcurrently( final List<ReleasePhase> list, List<Set<Integer>> dependencies,
+                                  final Callback callback )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        int count = names.size();
+        final ReleaseResult[] results = new ReleaseResult[count];
+        final Throwable[] failures = new Throwable[count];
+        boolean[] done = new boolean[count];
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( parallelism, count ), new ThreadFactory()
+        {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "release-phase-" + threads.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>( executor );
+
+        int submitted = 0;
+        int running = 0;
+        int committed = 0;
+        boolean failed = false;
+        try
+        {
+            while ( committed < count )
+            {
+                // complete the phases in order before starting the next ones, and only once no running phase may be
+                // writing the descriptor they checkpoint
+                while ( committed < count && done[committed] && failures[committed] == null
+                    && !isWritingDescriptor( committed, submitted, done ) )
+                {
+                    callback.completed( names.get( committed ), results[committed] );
+                    committed++;
+                }
+
+                // start the next phases in order, as long as their dependencies are done and a thread is free
+                while ( !failed && submitted < count && running < parallelism
+                    && isDone( dependencies.get( submitted ), done ) )
+                {
+                    final int index = submitted++;
+                    callback.started( names.get( index ) );
+                    completion.submit( new Callable<Integer>()
+                    {
+                        public Integer call()
+                        {
+                            try
+                            {
+                                results[index] = callback.run( names.get( index ), list.get( index ) );
+                            }
+                            catch ( Throwable e )
+                            {
+                                failures[index] = e;
+                            }
+                            return Integer.valueOf( index );
+                        }
+                    } );
+                    running++;
+                }
+
+                if ( committed == count || running == 0 )
+                {
+                    break;
+                }
+
+                int finished;
+                try
+                {
+                    finished = completion.take().get().intValue();
+                }
+                catch ( ExecutionException e )
+                {
+                    // the phases catch their failures
+                    throw new IllegalStateException( e.getCause() );
+                }
+                running--;
+                done[finished] = true;
+                failed |= failures[finished] != null;
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ReleaseExecutionException( "Interrupted while running the release phases.", e );
+        }
+        finally
+        {
+            shutdown( executor );
+        }
+
+        for ( Throwable failure : failures )
+        {
+            if ( failure instanceof ReleaseExecutionException )
+            {
+                throw (ReleaseExecutionException) failure;
+            }
+            if ( failure instanceof ReleaseFailureException )
+            {
+                throw (ReleaseFailureException) failure;
+            }
+            if ( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) failure;
+            }
+            if ( failure instanceof Error )
+            {
+                throw (Error) failure;
+            }
+            if ( failure != null )
+            {
+                throw new ReleaseExecutionException( failure.getMessage(), failure );
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a phase between <code>from</code> and <code>to</code> is running and declares that
+     *         it writes the descriptor, or declares nothing.
+     */
+    private boolean isWritingDescriptor( int from, int to, boolean[] done )
+    {
+        for ( int i = from; i < to; i++ )
+        {
+            if ( !done[i] )
+            {
+                Resources resources = DECLARATIONS.get( names.get( i ) );
+                if ( resources == null || resources.writesDescriptor() )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDone( Set<Integer> dependencies, boolean[] done )
+    {
+        for ( Integer dependency : dependencies )
+        {
+            if ( !done[dependency.intValue()] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the running phases, so that none outlives the release manager call.
+     */
+    private static void shutdown( ExecutorService executor )
+    {
+        executor.shutdown();
+        boolean interrupted = false;
+        while ( !executor.isTerminated() )
+        {
+            try
+            {
+                executor.awaitTermination( 1, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Resources
+    {
+        private final Set<String> reads;
+
+        private final Set<String> writes;
+
+        Resources( Set<String> reads, Set<String> writes )
+        {
+            this.reads = reads;
+            this.writes = writes;
+        }
+
+        boolean writesDescriptor()
+        {
+            for ( String resource : writes )
+            {
+                if ( resource.startsWith( "descriptor." ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return <code>true</code> if a later phase with the given resources has to wait for this one.
+         */
+        boolean conflictsWith( Resources later )
+        {
+            return !Collections.disjoint( writes, later.reads ) || !Collections.disjoint( writes, later.writes )
+                || !Collections.disjoint( reads, later.writes );
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.scm.manager.NoSuchScmProviderException;
+import org.apache.maven.scm.repository.ScmRepositoryException;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.scm.ReleaseScmSession;
+import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
+import org.apache.maven.shared.release.util.ParsedPomCache;
+import org.apache.maven.shared.release.util.ReactorLayers;
+import org.apache.maven.shared.release.util.ReactorLayout;
+
+/**
+ * State shared by the phases of a single release run.
+ * <p/>
+ * {@link DefaultReleaseManager} opens a context for the release descriptor it passes to its phases and closes it when
+ * the goal finishes. Phases look it up with {@link #get(ReleaseDescriptor)}.
+ */
+public class ReleaseContext
+{
+    /**
+     * The count of POMs parsed.
+     */
+    public static final String POMS_PARSED = "pomsParsed";
+
+    /**
+     * The count of POMs written.
+     */
+    public static final String POMS_WRITTEN = "pomsWritten";
+
+    /**
+     * The count of calls to the SCM provider.
+     */
+    public static final String SCM_CALLS = "scmCalls";
+
+    private static final Map<ReleaseDescriptor, ReleaseContext> CONTEXTS =
+        Collections.synchronizedMap( new IdentityHashMap<ReleaseDescriptor, ReleaseContext>() );
+
+    private final ParsedPomCache pomCache;
+
+    private final boolean sharedPomCache;
+
+    private final Map<String, String> propertyVersionMap = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, String> originalVersionMap = new ConcurrentHashMap<String, String>();
+
+    private final Set<String> unchangedPoms =
+        Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    private final Map<String, ReleaseScmSession> scmSessions = new HashMap<String, ReleaseScmSession>();
+
+    private ReactorLayout reactorLayout;
+
+    private List<MavenProject> reactorProjects;
+
+    private ReactorLayers reactorLayers;
+
+    private final Map<Model, Map<String, String>> interpolationCaches = new IdentityHashMap<Model, Map<String, String>>();
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * Opens the context of a release run, or returns the one already open for this descriptor.
+     *
+     * @param releaseDescriptor The descriptor passed to every phase of the run.
+     * @return The open context.
+     */
+    public static ReleaseContext open( ReleaseDescriptor releaseDescriptor )
+    {
+        return open( releaseDescriptor, null );
+    }
+
+    /**
+     * Opens the context of a release run, or returns the one already open for this descriptor.
+     *
+     * @param releaseDescriptor The descriptor passed to every phase of the run.
+     * @param pomCache The cache of parsed POMs kept across runs, which closing the context leaves alone, or
+     *            <code>null</code> to give the run a cache of its own.
+     * @return The open context.
+     */
+    public static ReleaseContext open( ReleaseDescriptor releaseDescriptor, ParsedPomCache pomCache )
+    {
+        synchronized ( CONTEXTS )
+        {
+            ReleaseContext context = CONTEXTS.get( releaseDescriptor );
+            if ( context == null )
+            {
+                context = new ReleaseContext( pomCache );
+                CONTEXTS.put( releaseDescriptor, context );
+            }
+            return context;
+        }
+    }
+
+    /**
+     * Closes the context of a release run and releases everything it holds.
+     *
+     * @param releaseDescriptor The descriptor the context was opened for.
+     */
+    public static void close( ReleaseDescriptor releaseDescriptor )
+    {
+        ReleaseContext context = CONTEXTS.remove( releaseDescriptor );
+        if ( context != null && !context.sharedPomCache )
+        {
+            context.pomCache.clear();
+        }
+    }
+
+    /**
+     * Gets the context of the running release. When a phase is executed outside of a release run, a fresh context is
+     * returned which lives as long as the caller keeps it.
+     *
+     * @param releaseDescriptor The descriptor passed to the phase.
+     * @return The context, never <code>null</code>.
+     */
+    public static ReleaseContext get( ReleaseDescriptor releaseDescriptor )
+    {
+        ReleaseContext context = CONTEXTS.get( releaseDescriptor );
+        return context != null ? context : new ReleaseContext( null );
+    }
+
+    private ReleaseContext( ParsedPomCache pomCache )
+    {
+        this.sharedPomCache = pomCache != null;
+        this.pomCache = pomCache != null ? pomCache : new ParsedPomCache();
+    }
+
+    public ParsedPomCache getPomCache()
+    {
+        return pomCache;
+    }
+
+    /**
+     * @return The next development value of each version property found in the reactor POMs, keyed by property name.
+     */
+    public Map<String, String> getPropertyVersionMap()
+    {
+        return propertyVersionMap;
+    }
+
+    /**
+     * @return The release value of each version property found in the reactor POMs, keyed by property name.
+     */
+    public Map<String, String> getOriginalVersionMap()
+    {
+        return originalVersionMap;
+    }
+
+    /**
+     * Records whether the last rewrite of a POM changed its content.
+     *
+     * @param pomFile The POM file.
+     * @param changed <code>false</code> if the rewrite left the file as it was.
+     */
+    public void setPomChanged( File pomFile, boolean changed )
+    {
+        if ( changed )
+        {
+            unchangedPoms.remove( pomFile.getAbsolutePath() );
+        }
+        else
+        {
+            unchangedPoms.add( pomFile.getAbsolutePath() );
+        }
+    }
+
+    /**
+     * @param pomFile The POM file.
+     * @return <code>false</code> only if the last rewrite of this POM in the current run left it unchanged.
+     */
+    public boolean isPomChanged( File pomFile )
+    {
+        return !unchangedPoms.contains( pomFile.getAbsolutePath() );
+    }
+
+    /**
+     * Gets the SCM session of an SCM URL, creating it the first time it is asked for in this run.
+     *
+     * @param configurator The configurator used to build the repository.
+     * @param url The SCM URL.
+     * @param releaseDescriptor The descriptor holding the SCM credentials.
+     * @param settings The Maven settings holding the server credentials.
+     * @return The session, never <code>null</code>.
+     * @throws ScmRepositoryException If the repository could not be configured.
+     * @throws NoSuchScmProviderException If there is no provider for the URL.
+     */
+    public synchronized ReleaseScmSession getScmSession( ScmRepositoryConfigurator configurator, String url,
+                                                        ReleaseDescriptor releaseDescriptor, Settings settings )
+        throws ScmRepositoryException, NoSuchScmProviderException
+    {
+        ReleaseScmSession session = scmSessions.get( url );
+        if ( session == null )
+        {
+            session = ReleaseScmSession.create( configurator, url, releaseDescriptor, settings );
+            scmSessions.put( url, session );
+        }
+        return session;
+    }
+
+    /**
+     * Gets the layout of the reactor, computing it the first time it is asked for in this run.
+     *
+     * @param reactorProjects The reactor projects passed to the phase.
+     * @return The layout, never <code>null</code>.
+     * @throws ReleaseExecutionException If the basedir of a project could not be resolved.
+     */
+    public synchronized ReactorLayout getReactorLayout( List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException
+    {
+        if ( reactorLayout == null || !reactorLayout.isLayoutOf( reactorProjects ) )
+        {
+            reactorLayout = ReactorLayout.build( reactorProjects );
+        }
+        return reactorLayout;
+    }
+
+    /**
+     * @param reactorProjects The reactor projects of the goal running the release.
+     * @return This context.
+     */
+    public synchronized ReleaseContext setReactorProjects( List<MavenProject> reactorProjects )
+    {
+        this.reactorProjects = reactorProjects;
+        this.reactorLayers = null;
+        return this;
+    }
+
+    /**
+     * Gets the layers of the reactor dependency graph, computing them the first time they are asked for in this run.
+     *
+     * @return The layers, or <code>null</code> if the reactor projects of the run are not known.
+     */
+    public synchronized ReactorLayers getReactorLayers()
+    {
+        if ( reactorLayers == null && reactorProjects != null && !reactorProjects.isEmpty() )
+        {
+            reactorLayers = ReactorLayers.build( reactorProjects );
+        }
+        return reactorLayers;
+    }
+
+    /**
+     * Gets the cache of interpolated values of a project model. The models of the reactor projects don't change during
+     * a run, so the values can be reused by every rewrite phase.
+     *
+     * @param model The model values are interpolated against.
+     * @return The interpolated values keyed by the raw value, safe for concurrent use.
+     */
+    public Map<String, String> getInterpolationCache( Model model )
+    {
+        synchronized ( interpolationCaches )
+        {
+            Map<String, String> cache = interpolationCaches.get( model );
+            if ( cache == null )
+            {
+                cache = new ConcurrentHashMap<String, String>();
+                interpolationCaches.put( model, cache );
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Counts some work done by the run, like {@link #POMS_PARSED}.
+     *
+     * @param name The name of the count.
+     */
+    public void count( String name )
+    {
+        AtomicLong count = counts.get( name );
+        if ( count == null )
+        {
+            synchronized ( counts )
+            {
+                count = counts.get( name );
+                if ( count == null )
+                {
+                    count = new AtomicLong();
+                    counts.put( name, count );
+                }
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return The counts of the work done by the run so far, by name.
+     */
+    public Map<String, Long> getCounts()
+    {
+        Map<String, Long> snapshot = new TreeMap<String, Long>();
+        for ( Map.Entry<String, AtomicLong> count : counts.entrySet() )
+        {
+            snapshot.put( count.getKey(), Long.valueOf( count.getValue().get() ) );
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,300 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * The cost of each phase run by a release goal: its wall time, the CPU time and the bytes allocated by the thread
+ * which ran it, and the counts of the work it did, like the POMs it parsed and wrote and the SCM calls it made.
+ * <p/>
+ * The metrics of a goal are set on its {@link ReleaseResult} when it has one, passed phase by phase to a
+ * {@link ReleaseMetricsListener}, and written as JSON to the <code>target</code> directory next to
+ * <code>release.properties</code> when the goal ends. The CPU time and the allocated bytes only cover the thread of
+ * the phase, not the threads it hands work to, and are <code>-1</code> when the JVM can't measure them. The counts of
+ * phases running side by side include each other's.
+ */
+public class ReleaseMetrics
+{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final Method ALLOCATED_BYTES = getAllocatedBytesMethod();
+
+    private final String goal;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    /**
+     * @param goal The name of the goal, like <code>prepare</code>.
+     */
+    public ReleaseMetrics( String goal )
+    {
+        this.goal = goal;
+    }
+
+    /**
+     * Starts measuring a phase on the current thread, which has to be the one running it.
+     *
+     * @param name The name of the phase.
+     * @param context The context of the release, holding the counts.
+     * @return The phase being measured.
+     */
+    public static Phase start( String name, ReleaseContext context )
+    {
+        return new Phase( name, context );
+    }
+
+    public String getGoal()
+    {
+        return goal;
+    }
+
+    public synchronized List<Phase> getPhases()
+    {
+        return new ArrayList<Phase>( phases );
+    }
+
+    public synchronized void add( Phase phase )
+    {
+        phases.add( phase );
+    }
+
+    /**
+     * Writes the metrics as JSON.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void writeJson( File file )
+        throws IOException
+    {
+        Writer writer = null;
+        try
+        {
+            writer = WriterFactory.newWriter( file, "UTF-8" );
+            writer.write( toJson() );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * @return The metrics as JSON.
+     */
+    public synchronized String toJson()
+    {
+        StringBuilder json = new StringBuilder( 128 + 256 * phases.size() );
+        json.append( "{\n  \"goal\": \"" ).append( goal ).append( '"' );
+        json.append( ",\n  \"startTime\": " ).append( startTime );
+        json.append( ",\n  \"phases\": [" );
+        for ( int i = 0; i < phases.size(); i++ )
+        {
+            Phase phase = phases.get( i );
+            json.append( i > 0 ? "," : "" ).append( "\n    {\n      \"name\": \"" ).append( phase.getName() );
+            json.append( "\",\n      \"success\": " ).append( phase.isSuccess() );
+            json.append( ",\n      \"wallMillis\": " ).append( phase.getWallMillis() );
+            json.append( ",\n      \"cpuMillis\": " ).append( phase.getCpuMillis() );
+            json.append( ",\n      \"allocatedBytes\": " ).append( phase.getAllocatedBytes() );
+            json.append( ",\n      \"counts\": {" );
+            int j = 0;
+            for ( Map.Entry<String, Long> count : phase.getCounts().entrySet() )
+            {
+                json.append( j++ > 0 ? ", " : " " ).append( '"' ).append( count.getKey() ).append( "\": " );
+                json.append( count.getValue() );
+            }
+            json.append( j > 0 ? " }" : "}" ).append( "\n    }" );
+        }
+        json.append( phases.isEmpty() ? "]" : "\n  ]" ).append( "\n}\n" );
+        return json.toString();
+    }
+
+    private static Method getAllocatedBytesMethod()
+    {
+        try
+        {
+            // only HotSpot and its descendants measure the allocations of a thread
+            Class<?> type = Class.forName( "com.sun.management.ThreadMXBean" );
+            if ( type.isInstance( THREADS )
+                && Boolean.TRUE.equals( type.getMethod( "isThreadAllocatedMemoryEnabled" ).invoke( THREADS ) ) )
+            {
+                return type.getMethod( "getThreadAllocatedBytes", long.class );
+            }
+        }
+        catch ( Exception e )
+        {
+            // not measured
+        }
+        return null;
+    }
+
+    private static long getCurrentThreadCpuTime()
+    {
+        if ( THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled() )
+        {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    private static long getCurrentThreadAllocatedBytes()
+    {
+        if ( ALLOCATED_BYTES != null )
+        {
+            try
+            {
+                return ( (Long) ALLOCATED_BYTES.invoke( THREADS, Thread.currentThread().getId() ) ).longValue();
+            }
+            catch ( Exception e )
+            {
+                // not measured
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The metrics of a phase.
+     */
+    public static class Phase
+    {
+        private final String name;
+
+        private final ReleaseContext context;
+
+        private final Map<String, Long> startCounts;
+
+        private final long startNanos;
+
+        private final long startCpuTime;
+
+        private final long startAllocatedBytes;
+
+        private boolean success;
+
+        private long wallMillis = -1;
+
+        private long cpuMillis = -1;
+
+        private long allocatedBytes = -1;
+
+        private Map<String, Long> counts = Collections.emptyMap();
+
+        Phase( String name, ReleaseContext context )
+        {
+            this.name = name;
+            this.context = context;
+            this.startCounts = context.getCounts();
+            this.startCpuTime = getCurrentThreadCpuTime();
+            this.startAllocatedBytes = getCurrentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Stops measuring the phase, on the thread which started measuring it.
+         *
+         * @param success <code>true</code> if the phase completed.
+         * @return This phase.
+         */
+        public Phase stop( boolean success )
+        {
+            this.wallMillis = ( System.nanoTime() - startNanos ) / 1000000L;
+            long cpuTime = getCurrentThreadCpuTime();
+            if ( startCpuTime >= 0 && cpuTime >= 0 )
+            {
+                this.cpuMillis = ( cpuTime - startCpuTime ) / 1000000L;
+            }
+            long bytes = getCurrentThreadAllocatedBytes();
+            if ( startAllocatedBytes >= 0 && bytes >= 0 )
+            {
+                this.allocatedBytes = bytes - startAllocatedBytes;
+            }
+            this.success = success;
+
+            Map<String, Long> delta = new TreeMap<String, Long>();
+            for ( Map.Entry<String, Long> count : context.getCounts().entrySet() )
+            {
+                Long start = startCounts.get( count.getKey() );
+                long value = count.getValue().longValue() - ( start != null ? start.longValue() : 0 );
+                if ( value != 0 )
+                {
+                    delta.put( count.getKey(), Long.valueOf( value ) );
+                }
+            }
+            this.counts = delta;
+            return this;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public boolean isSuccess()
+        {
+            return success;
+        }
+
+        public long getWallMillis()
+        {
+            return wallMillis;
+        }
+
+        /**
+         * @return The CPU time of the thread of the phase, or <code>-1</code> if it was not measured.
+         */
+        public long getCpuMillis()
+        {
+            return cpuMillis;
+        }
+
+        /**
+         * @return The bytes allocated by the thread of the phase, or <code>-1</code> if they were not measured.
+         */
+        public long getAllocatedBytes()
+        {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return The counts of the work done during the phase, by name, like {@link ReleaseContext#POMS_PARSED}.
+         */
+        public Map<String, Long> getCounts()
+        {
+            return Collections.unmodifiableMap( counts );
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A listener which is also told what each phase cost.
+ */
+public interface ReleaseMetricsListener
+    extends ReleaseManagerListener
+{
+    /**
+     * Called after {@link #phaseEnd()}, or before {@link #error(String)} for the phase which failed.
+     *
+     * @param phase The metrics of the phase.
+     */
+    void phaseMetrics( ReleaseMetrics.Phase phase );
+}
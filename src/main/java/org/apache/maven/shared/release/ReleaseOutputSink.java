@@ -0,0 +1,315 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The output of a release result, holding only its last characters in memory.
+ * <p/>
+ * The last {@link #getTailSize()} characters are kept in a ring buffer, which starts small and grows with the output
+ * up to that size, since most results only hold a few lines. As soon as the output outgrows it, the whole
+ * output is also written to a gzipped temporary file, which {@link #openReader()} reads back. The file is deleted by
+ * {@link #delete()} or {@link #transferTo(ReleaseOutputSink)}, and not when the JVM exits, since the list of files to
+ * delete then only grows in a long-lived process. If the file can't be written, only the tail is kept.
+ */
+public class ReleaseOutputSink
+{
+    /**
+     * The number of characters kept in memory by default.
+     */
+    public static final int DEFAULT_TAIL_SIZE = 64 * 1024;
+
+    private static final int INITIAL_TAIL_SIZE = 256;
+
+    private final int tailSize;
+
+    private char[] tail = new char[0];
+
+    /**
+     * The index of the first character of the tail in the ring buffer.
+     */
+    private int start;
+
+    private int size;
+
+    private long length;
+
+    private File spillFile;
+
+    private Writer spill;
+
+    private boolean spillFailed;
+
+    private boolean closed;
+
+    public ReleaseOutputSink()
+    {
+        this( DEFAULT_TAIL_SIZE );
+    }
+
+    /**
+     * @param tailSize The number of characters to keep in memory.
+     */
+    public ReleaseOutputSink( int tailSize )
+    {
+        this.tailSize = Math.max( 1, tailSize );
+    }
+
+    /**
+     * @param text The output to append.
+     * @throws IllegalStateException If the sink was closed.
+     */
+    public synchronized void append( CharSequence text )
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "The output was closed" );
+        }
+        String value = text.toString();
+        if ( value.length() == 0 )
+        {
+            return;
+        }
+
+        if ( spill == null && !spillFailed && size + value.length() > tailSize )
+        {
+            openSpill();
+        }
+        if ( spill != null )
+        {
+            try
+            {
+                spill.write( value );
+            }
+            catch ( IOException e )
+            {
+                discardSpill();
+            }
+        }
+
+        length += value.length();
+        int from = Math.max( 0, value.length() - tailSize );
+        ensureCapacity( Math.min( tailSize, size + value.length() - from ) );
+        for ( int i = from; i < value.length(); i++ )
+        {
+            if ( size < tail.length )
+            {
+                tail[( start + size++ ) % tail.length] = value.charAt( i );
+            }
+            else
+            {
+                tail[start] = value.charAt( i );
+                start = ( start + 1 ) % tail.length;
+            }
+        }
+    }
+
+    public int getTailSize()
+    {
+        return tailSize;
+    }
+
+    /**
+     * @return The number of characters appended so far.
+     */
+    public synchronized long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return <code>true</code> if the output is longer than the tail kept in memory.
+     */
+    public synchronized boolean isTruncated()
+    {
+        return length > size;
+    }
+
+    /**
+     * @return The last characters of the output.
+     */
+    public synchronized String getTail()
+    {
+        StringBuilder buffer = new StringBuilder( size );
+        int end = start + size;
+        if ( end <= tail.length )
+        {
+            buffer.append( tail, start, size );
+        }
+        else
+        {
+            buffer.append( tail, start, tail.length - start ).append( tail, 0, end - tail.length );
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return The gzipped file holding the whole output, or <code>null</code> if the output fits in memory or the file
+     *         could not be written. It is only complete once the sink is closed.
+     */
+    public synchronized File getSpillFile()
+    {
+        return spillFile;
+    }
+
+    /**
+     * Closes the sink, then opens the whole output: from the spill file if there is one, else from memory. If the
+     * spill file could not be written, only the tail is read.
+     *
+     * @return A reader of the output, to be closed by the caller.
+     * @throws IOException If the spill file could not be read.
+     */
+    public synchronized Reader openReader()
+        throws IOException
+    {
+        close();
+        if ( spillFile == null )
+        {
+            return new StringReader( getTail() );
+        }
+        return new InputStreamReader( new GZIPInputStream( new FileInputStream( spillFile ) ), "UTF-8" );
+    }
+
+    /**
+     * Appends the whole output to another sink, then deletes this one.
+     *
+     * @param target The sink to append to.
+     */
+    public synchronized void transferTo( ReleaseOutputSink target )
+    {
+        if ( spillFile == null )
+        {
+            target.append( getTail() );
+        }
+        else
+        {
+            Reader reader = null;
+            try
+            {
+                reader = openReader();
+                char[] buffer = new char[8192];
+                for ( int n = reader.read( buffer ); n >= 0; n = reader.read( buffer ) )
+                {
+                    target.append( new String( buffer, 0, n ) );
+                }
+            }
+            catch ( IOException e )
+            {
+                // lost with the spill file, keep what is in memory
+                target.append( getTail() );
+            }
+            finally
+            {
+                IOUtil.close( reader );
+            }
+        }
+        delete();
+    }
+
+    /**
+     * Completes the spill file. No output can be appended afterwards.
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        if ( spill != null )
+        {
+            try
+            {
+                spill.close();
+            }
+            catch ( IOException e )
+            {
+                discardSpill();
+            }
+            spill = null;
+        }
+    }
+
+    /**
+     * Closes the sink and deletes its spill file.
+     */
+    public synchronized void delete()
+    {
+        close();
+        if ( spillFile != null )
+        {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+    /**
+     * Grows the ring buffer, which only wraps around once it has reached the tail size.
+     */
+    private void ensureCapacity( int capacity )
+    {
+        if ( capacity > tail.length )
+        {
+            int grown = Math.max( capacity, Math.max( INITIAL_TAIL_SIZE, tail.length * 2 ) );
+            tail = Arrays.copyOf( tail, Math.min( tailSize, grown ) );
+        }
+    }
+
+    private void openSpill()
+    {
+        FileOutputStream out = null;
+        try
+        {
+            spillFile = File.createTempFile( "release-output", ".log.gz" );
+            out = new FileOutputStream( spillFile );
+            spill = new BufferedWriter( new OutputStreamWriter( new GZIPOutputStream( out ), "UTF-8" ) );
+            // nothing has left the tail yet
+            spill.write( getTail() );
+        }
+        catch ( IOException e )
+        {
+            IOUtil.close( out );
+            discardSpill();
+        }
+    }
+
+    private void discardSpill()
+    {
+        IOUtil.close( spill );
+        spill = null;
+        if ( spillFile != null )
+        {
+            spillFile.delete();
+            spillFile = null;
+        }
+        spillFailed = true;
+    }
+}
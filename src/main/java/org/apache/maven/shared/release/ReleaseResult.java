@@ -0,0 +1,194 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * The result of a release goal or phase.
+ * <p/>
+ * The output is held by a {@link ReleaseOutputSink}, which only keeps its last characters in memory and spills the
+ * whole output to disk: {@link #getOutput()} returns the tail, and {@link #getOutputSink()} gives access to the whole
+ * output.
+ */
+public class ReleaseResult
+{
+    /**
+     * The result of the build.
+     */
+    public static final int UNDEFINED = -1, SUCCESS = 0, ERROR = 1;
+
+    private final ReleaseOutputSink output = new ReleaseOutputSink();
+
+    private int resultCode = UNDEFINED;
+
+    private long startTime;
+
+    private long endTime;
+
+    private ReleaseMetrics metrics;
+
+    private static final String LS = System.getProperty( "line.separator" );
+
+    public void appendInfo( String message )
+    {
+        output.append( "[INFO] " + message + LS );
+    }
+
+    public void appendWarn( String message )
+    {
+        output.append( "[WARN] " + message + LS );
+    }
+
+    public void appendDebug( String message )
+    {
+        output.append( "[DEBUG] " + message + LS );
+    }
+
+    public void appendDebug( String message, Exception e )
+    {
+        appendDebug( message );
+
+        output.append( getStackTrace( e ) + LS );
+    }
+
+    public void appendError( String message )
+    {
+        output.append( "[ERROR] " + message + LS );
+
+        setResultCode( ERROR );
+    }
+
+    public void appendError( Exception e )
+    {
+        appendError( getStackTrace( e ) );
+    }
+
+    public void appendError( String message, Exception e )
+    {
+        appendError( message );
+
+        output.append( getStackTrace( e ) + LS );
+    }
+
+    public void appendOutput( String output )
+    {
+        this.output.append( output );
+    }
+
+    /**
+     * Appends the whole output of another result, which is discarded.
+     *
+     * @param result The result whose output to append, like the result of a phase.
+     */
+    public void appendOutput( ReleaseResult result )
+    {
+        result.getOutputSink().transferTo( output );
+    }
+
+    /**
+     * @return The output, or only its last {@link ReleaseOutputSink#getTailSize()} characters, behind a line telling
+     *         where the whole output is, if it is longer.
+     */
+    public String getOutput()
+    {
+        if ( !output.isTruncated() )
+        {
+            return output.getTail();
+        }
+        String tail = output.getTail();
+        return "[INFO] " + ( output.getLength() - tail.length() ) + " characters of output left out"
+            + ( output.getSpillFile() != null ? ", the whole output is in " + output.getSpillFile() : "" ) + LS
+            + tail;
+    }
+
+    /**
+     * @return The sink holding the output.
+     */
+    public ReleaseOutputSink getOutputSink()
+    {
+        return output;
+    }
+
+    public int getResultCode()
+    {
+        return resultCode;
+    }
+
+    public void setResultCode( int resultCode )
+    {
+        this.resultCode = resultCode;
+    }
+
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    public void setStartTime( long startTime )
+    {
+        this.startTime = startTime;
+    }
+
+    public long getEndTime()
+    {
+        return endTime;
+    }
+
+    public void setEndTime( long endTime )
+    {
+        this.endTime = endTime;
+    }
+
+    /**
+     * @return The metrics of the phases of the goal, or <code>null</code> if this is not the result of a goal.
+     */
+    public ReleaseMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public void setMetrics( ReleaseMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
+    private String getStackTrace( Exception e )
+    {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+
+        PrintStream stream = new PrintStream( byteStream );
+
+        e.printStackTrace( stream );
+
+        stream.flush();
+
+        return byteStream.toString();
+    }
+
+    /**
+     * @return The output, or its tail, as {@link #getOutput()}.
+     */
+    public StringBuffer getOutputBuffer()
+    {
+        return new StringBuffer( getOutput() );
+    }
+}
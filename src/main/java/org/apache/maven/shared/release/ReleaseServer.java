@@ -0,0 +1,573 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.config.io.xpp3.ReleaseDescriptorXpp3Reader;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.util.ReactorProjectCache;
+import org.apache.maven.shared.release.util.Sha256;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Hosts a release manager in a long-lived process, behind an HTTP API bound to the loopback interface.
+ * <p/>
+ * The release manager, its phases, the SCM providers and the Maven executor are looked up once and stay loaded, and
+ * the parsed POMs and reactor projects are kept from one request to the next for as long as the POMs don't change.
+ * <p/>
+ * A goal is run with a <code>POST</code> to <code>/prepare</code>, <code>/perform</code> or <code>/rollback</code>,
+ * whose body is the release descriptor as written by
+ * {@link org.apache.maven.shared.release.config.io.xpp3.ReleaseDescriptorXpp3Writer}, and whose query holds the options
+ * of the goal: <code>resume</code> and <code>dryRun</code> for prepare, <code>dryRun</code> and <code>clean</code> for
+ * perform. The reactor is built by the server from the POM in the working directory of the descriptor. The response
+ * streams the events of the goal as they happen, one line each, with the fields separated by tabs:
+ * <code>goalStart</code> with the goal and its phases separated by commas, <code>phaseStart</code>,
+ * <code>phaseEnd</code>, <code>phaseSkip</code>, <code>goalEnd</code> and <code>error</code>. The last line is
+ * <code>result</code>, followed by <code>SUCCESS</code>, or by <code>FAILURE</code> or <code>ERROR</code> and a
+ * message. A <code>POST</code> to <code>/shutdown</code> stops the server.
+ * <p/>
+ * Since a release runs arbitrary Maven goals, every request has to carry the token generated when the server starts in
+ * the {@value #TOKEN_HEADER} header, and to be sent as <code>application/xml</code> without an <code>Origin</code>
+ * header, so that neither other local users nor web pages opened on the same machine can run anything.
+ * <p/>
+ * Requests are run one at a time, in the order they arrive, with the environment of the server. A release goes on when
+ * its client goes away, since stopping it halfway would leave the working copy in a worse state.
+ *
+ * @see ReleaseServerClient
+ */
+public class ReleaseServer
+{
+    public static final String PREPARE = "prepare";
+
+    public static final String PERFORM = "perform";
+
+    public static final String ROLLBACK = "rollback";
+
+    public static final String SHUTDOWN = "shutdown";
+
+    /**
+     * The header holding the token of the server.
+     */
+    public static final String TOKEN_HEADER = "X-Release-Token";
+
+    static final String CONTENT_TYPE = "application/xml";
+
+    static final String GOAL_START = "goalStart";
+
+    static final String PHASE_START = "phaseStart";
+
+    static final String PHASE_END = "phaseEnd";
+
+    static final String PHASE_SKIP = "phaseSkip";
+
+    static final String GOAL_END = "goalEnd";
+
+    static final String ERROR = "error";
+
+    static final String RESULT = "result";
+
+    static final String SUCCESS = "SUCCESS";
+
+    static final String FAILURE = "FAILURE";
+
+    static final String EXECUTION_ERROR = "ERROR";
+
+    private final ReleaseManager releaseManager;
+
+    private final ReleaseEnvironment releaseEnvironment;
+
+    private final ReactorLoader reactorLoader;
+
+    private final ReactorProjectCache reactorCache = new ReactorProjectCache();
+
+    private final CountDownLatch shutdown = new CountDownLatch( 1 );
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private String token;
+
+    /**
+     * @param releaseManager The release manager running the goals.
+     * @param releaseEnvironment The environment of every goal.
+     * @param reactorLoader Builds the reactor of a release.
+     */
+    public ReleaseServer( ReleaseManager releaseManager, ReleaseEnvironment releaseEnvironment,
+                          ReactorLoader reactorLoader )
+    {
+        this.releaseManager = releaseManager;
+        this.releaseEnvironment = releaseEnvironment;
+        this.reactorLoader = reactorLoader;
+    }
+
+    /**
+     * Starts serving requests on the loopback interface.
+     *
+     * @param port The port to listen to, <code>0</code> for any free port.
+     * @throws IOException If the port could not be bound.
+     */
+    public synchronized void start( int port )
+        throws IOException
+    {
+        if ( server != null )
+        {
+            throw new IllegalStateException( "The release server is already started" );
+        }
+
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        executor = Executors.newSingleThreadExecutor( new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "release-server" );
+                thread.setContextClassLoader( classLoader );
+                return thread;
+            }
+        } );
+
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes( bytes );
+        token = Sha256.toHex( bytes );
+
+        server = HttpServer.create( new InetSocketAddress( InetAddress.getByName( "127.0.0.1" ), port ), 0 );
+        server.setExecutor( executor );
+        server.createContext( "/", new HttpHandler()
+        {
+            public void handle( HttpExchange exchange )
+                throws IOException
+            {
+                try
+                {
+                    ReleaseServer.this.handle( exchange );
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        } );
+        server.start();
+    }
+
+    /**
+     * @return The URL of the server.
+     */
+    public synchronized String getUrl()
+    {
+        if ( server == null )
+        {
+            throw new IllegalStateException( "The release server is not started" );
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return The token every request has to carry in the {@value #TOKEN_HEADER} header, to be kept from other users.
+     */
+    public synchronized String getToken()
+    {
+        if ( server == null )
+        {
+            throw new IllegalStateException( "The release server is not started" );
+        }
+        return token;
+    }
+
+    /**
+     * Waits until a shutdown is requested.
+     *
+     * @throws InterruptedException If the current thread was interrupted while waiting.
+     */
+    public void awaitShutdown()
+        throws InterruptedException
+    {
+        shutdown.await();
+    }
+
+    /**
+     * Stops listening. A shutdown is run after the requests which arrived before it, so none is left running then.
+     */
+    public synchronized void stop()
+    {
+        if ( server != null )
+        {
+            server.stop( 0 );
+            executor.shutdown();
+            server = null;
+            executor = null;
+        }
+        reactorCache.clear();
+        shutdown.countDown();
+    }
+
+    private void handle( HttpExchange exchange )
+        throws IOException
+    {
+        String goal = exchange.getRequestURI().getPath().substring( 1 );
+        if ( !"POST".equals( exchange.getRequestMethod() ) )
+        {
+            reply( exchange, 405, "Only POST is supported" );
+            return;
+        }
+        if ( !isAuthorized( exchange ) )
+        {
+            reply( exchange, 403, "Forbidden" );
+            return;
+        }
+        String contentType = exchange.getRequestHeaders().getFirst( "Content-Type" );
+        if ( contentType == null || !contentType.toLowerCase( Locale.ENGLISH ).startsWith( CONTENT_TYPE ) )
+        {
+            reply( exchange, 415, "Only " + CONTENT_TYPE + " is supported" );
+            return;
+        }
+        if ( SHUTDOWN.equals( goal ) )
+        {
+            reply( exchange, 200, "Stopping" );
+            shutdown.countDown();
+            return;
+        }
+        if ( !PREPARE.equals( goal ) && !PERFORM.equals( goal ) && !ROLLBACK.equals( goal ) )
+        {
+            reply( exchange, 404, "Unknown goal: " + goal );
+            return;
+        }
+
+        ReleaseDescriptor releaseDescriptor;
+        try
+        {
+            releaseDescriptor =
+                new ReleaseDescriptorXpp3Reader().read( new InputStreamReader( exchange.getRequestBody(), "UTF-8" ) );
+        }
+        catch ( XmlPullParserException e )
+        {
+            reply( exchange, 400, "Invalid release descriptor: " + e.getMessage() );
+            return;
+        }
+        if ( releaseDescriptor.getWorkingDirectory() == null )
+        {
+            reply( exchange, 400, "The release descriptor has no working directory" );
+            return;
+        }
+        Map<String, String> options = getOptions( exchange.getRequestURI().getRawQuery() );
+
+        exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=UTF-8" );
+        exchange.sendResponseHeaders( 200, 0 );
+        EventWriter events = new EventWriter( new OutputStreamWriter( exchange.getResponseBody(), "UTF-8" ) );
+        try
+        {
+            run( goal, releaseDescriptor, options, events );
+            events.write( RESULT, SUCCESS );
+        }
+        catch ( ReleaseFailureException e )
+        {
+            events.write( RESULT, FAILURE, e.getMessage() );
+        }
+        catch ( ReleaseExecutionException e )
+        {
+            events.write( RESULT, EXECUTION_ERROR, e.getMessage() );
+        }
+        catch ( RuntimeException e )
+        {
+            events.write( RESULT, EXECUTION_ERROR, e.toString() );
+        }
+    }
+
+    private boolean isAuthorized( HttpExchange exchange )
+        throws UnsupportedEncodingException
+    {
+        // browsers always send an Origin with the requests of a page to another origin
+        if ( exchange.getRequestHeaders().containsKey( "Origin" ) )
+        {
+            return false;
+        }
+        String expected;
+        synchronized ( this )
+        {
+            expected = token;
+        }
+        String actual = exchange.getRequestHeaders().getFirst( TOKEN_HEADER );
+        return expected != null && actual != null
+            && MessageDigest.isEqual( expected.getBytes( "UTF-8" ), actual.getBytes( "UTF-8" ) );
+    }
+
+    private void run( String goal, ReleaseDescriptor releaseDescriptor, Map<String, String> options,
+                      ReleaseManagerListener listener )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        List<MavenProject> reactorProjects = getReactorProjects( releaseDescriptor );
+
+        if ( PREPARE.equals( goal ) )
+        {
+            ReleasePrepareRequest prepareRequest = new ReleasePrepareRequest();
+            prepareRequest.setReleaseDescriptor( releaseDescriptor );
+            prepareRequest.setReleaseEnvironment( releaseEnvironment );
+            prepareRequest.setReactorProjects( reactorProjects );
+            prepareRequest.setReleaseManagerListener( listener );
+            prepareRequest.setResume( getOption( options, "resume", true ) );
+            prepareRequest.setDryRun( getOption( options, "dryRun", false ) );
+            releaseManager.prepare( prepareRequest );
+        }
+        else if ( PERFORM.equals( goal ) )
+        {
+            ReleasePerformRequest performRequest = new ReleasePerformRequest();
+            performRequest.setReleaseDescriptor( releaseDescriptor );
+            performRequest.setReleaseEnvironment( releaseEnvironment );
+            performRequest.setReactorProjects( reactorProjects );
+            performRequest.setReleaseManagerListener( listener );
+            performRequest.setDryRun( getOption( options, "dryRun", false ) );
+            performRequest.setClean( getOption( options, "clean", true ) );
+            releaseManager.perform( performRequest );
+        }
+        else
+        {
+            ReleaseRollbackRequest rollbackRequest = new ReleaseRollbackRequest();
+            rollbackRequest.setReleaseDescriptor( releaseDescriptor );
+            rollbackRequest.setReleaseEnvironment( releaseEnvironment );
+            rollbackRequest.setReactorProjects( reactorProjects );
+            rollbackRequest.setReleaseManagerListener( listener );
+            releaseManager.rollback( rollbackRequest );
+        }
+    }
+
+    private List<MavenProject> getReactorProjects( ReleaseDescriptor releaseDescriptor )
+        throws ReleaseExecutionException
+    {
+        String pomFileName = StringUtils.isNotEmpty( releaseDescriptor.getPomFileName() )
+                        ? releaseDescriptor.getPomFileName() : "pom.xml";
+        File pomFile = new File( releaseDescriptor.getWorkingDirectory(), pomFileName );
+
+        List<MavenProject> reactorProjects = reactorCache.get( pomFile );
+        if ( reactorProjects == null )
+        {
+            reactorProjects = reactorLoader.load( pomFile );
+            try
+            {
+                reactorCache.put( pomFile, reactorProjects );
+            }
+            catch ( IOException e )
+            {
+                // built again next time
+            }
+        }
+        return reactorProjects;
+    }
+
+    private static Boolean getOption( Map<String, String> options, String name, boolean defaultValue )
+    {
+        String value = options.get( name );
+        return Boolean.valueOf( value != null ? Boolean.parseBoolean( value ) : defaultValue );
+    }
+
+    private static Map<String, String> getOptions( String query )
+        throws UnsupportedEncodingException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        if ( query != null )
+        {
+            for ( String parameter : query.split( "&" ) )
+            {
+                int index = parameter.indexOf( '=' );
+                if ( index > 0 )
+                {
+                    options.put( URLDecoder.decode( parameter.substring( 0, index ), "UTF-8" ),
+                                 URLDecoder.decode( parameter.substring( index + 1 ), "UTF-8" ) );
+                }
+            }
+        }
+        return options;
+    }
+
+    private static void reply( HttpExchange exchange, int status, String message )
+        throws IOException
+    {
+        byte[] body = ( message + "\n" ).getBytes( "UTF-8" );
+        exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=UTF-8" );
+        exchange.sendResponseHeaders( status, body.length );
+        exchange.getResponseBody().write( body );
+    }
+
+    static String escape( String value )
+    {
+        StringBuilder buffer = new StringBuilder( value.length() );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '\\':
+                    buffer.append( "\\\\" );
+                    break;
+                case '\t':
+                    buffer.append( "\\t" );
+                    break;
+                case '\n':
+                    buffer.append( "\\n" );
+                    break;
+                case '\r':
+                    buffer.append( "\\r" );
+                    break;
+                default:
+                    buffer.append( c );
+            }
+        }
+        return buffer.toString();
+    }
+
+    static String unescape( String value )
+    {
+        StringBuilder buffer = new StringBuilder( value.length() );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c != '\\' )
+            {
+                buffer.append( c );
+                continue;
+            }
+            c = ++i < value.length() ? value.charAt( i ) : '\\';
+            switch ( c )
+            {
+                case 't':
+                    buffer.append( '\t' );
+                    break;
+                case 'n':
+                    buffer.append( '\n' );
+                    break;
+                case 'r':
+                    buffer.append( '\r' );
+                    break;
+                default:
+                    buffer.append( c );
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Builds the reactor of a release.
+     */
+    public interface ReactorLoader
+    {
+        /**
+         * @param pomFile The root POM of the reactor.
+         * @return The projects of the reactor, in build order.
+         * @throws ReleaseExecutionException If the reactor could not be built.
+         */
+        List<MavenProject> load( File pomFile )
+            throws ReleaseExecutionException;
+    }
+
+    /**
+     * Streams the events of a goal to its client, one flushed line each. Once the client is gone, the events are
+     * dropped.
+     */
+    private static class EventWriter
+        implements ReleaseManagerListener
+    {
+        private final Writer out;
+
+        private boolean broken;
+
+        EventWriter( Writer out )
+        {
+            this.out = out;
+        }
+
+        public void goalStart( String goal, List<String> phases )
+        {
+            write( GOAL_START, goal, phases != null ? StringUtils.join( phases.iterator(), "," ) : "" );
+        }
+
+        public void phaseStart( String name )
+        {
+            write( PHASE_START, name );
+        }
+
+        public void phaseEnd()
+        {
+            write( PHASE_END );
+        }
+
+        public void phaseSkip( String name )
+        {
+            write( PHASE_SKIP, name );
+        }
+
+        public void goalEnd()
+        {
+            write( GOAL_END );
+        }
+
+        public void error( String reason )
+        {
+            write( ERROR, reason );
+        }
+
+        synchronized void write( String event, String... fields )
+        {
+            if ( broken )
+            {
+                return;
+            }
+
+            StringBuilder line = new StringBuilder( event );
+            for ( String field : fields )
+            {
+                line.append( '\t' ).append( escape( field != null ? field : "" ) );
+            }
+            try
+            {
+                out.write( line.append( '\n' ).toString() );
+                out.flush();
+            }
+            catch ( IOException e )
+            {
+                broken = true;
+            }
+        }
+    }
+}
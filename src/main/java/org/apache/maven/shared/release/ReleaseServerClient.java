@@ -0,0 +1,195 @@
+package org.apache.maven.shared.release;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.config.io.xpp3.ReleaseDescriptorXpp3Writer;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Runs release goals on a {@link ReleaseServer}, passing the events it streams back to a listener.
+ */
+public class ReleaseServerClient
+{
+    private final URL url;
+
+    private final String token;
+
+    /**
+     * @param url The URL of the server.
+     * @param token The token of the server, as written to its URL file.
+     * @throws MalformedURLException If the URL is not valid.
+     */
+    public ReleaseServerClient( String url, String token )
+        throws MalformedURLException
+    {
+        this.url = new URL( url.endsWith( "/" ) ? url : url + "/" );
+        this.token = token;
+    }
+
+    public void prepare( ReleaseDescriptor releaseDescriptor, boolean resume, boolean dryRun,
+                         ReleaseManagerListener listener )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        run( ReleaseServer.PREPARE + "?resume=" + resume + "&dryRun=" + dryRun, releaseDescriptor, listener );
+    }
+
+    public void perform( ReleaseDescriptor releaseDescriptor, boolean dryRun, boolean clean,
+                         ReleaseManagerListener listener )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        run( ReleaseServer.PERFORM + "?dryRun=" + dryRun + "&clean=" + clean, releaseDescriptor, listener );
+    }
+
+    public void rollback( ReleaseDescriptor releaseDescriptor, ReleaseManagerListener listener )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        run( ReleaseServer.ROLLBACK, releaseDescriptor, listener );
+    }
+
+    private void run( String request, ReleaseDescriptor releaseDescriptor, ReleaseManagerListener listener )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        HttpURLConnection connection = null;
+        BufferedReader reader = null;
+        try
+        {
+            connection = (HttpURLConnection) new URL( url, request ).openConnection();
+            connection.setRequestMethod( "POST" );
+            connection.setDoOutput( true );
+            connection.setChunkedStreamingMode( 8192 );
+            connection.setRequestProperty( "Content-Type", ReleaseServer.CONTENT_TYPE + "; charset=UTF-8" );
+            if ( token != null )
+            {
+                connection.setRequestProperty( ReleaseServer.TOKEN_HEADER, token );
+            }
+
+            Writer writer = new OutputStreamWriter( connection.getOutputStream(), "UTF-8" );
+            try
+            {
+                new ReleaseDescriptorXpp3Writer().write( writer, releaseDescriptor );
+            }
+            finally
+            {
+                IOUtil.close( writer );
+            }
+
+            if ( connection.getResponseCode() != HttpURLConnection.HTTP_OK )
+            {
+                InputStream error = connection.getErrorStream();
+                String message = error != null ? IOUtil.toString( error, "UTF-8" ).trim() : "";
+                IOUtil.close( error );
+                throw new ReleaseExecutionException( "The release server at " + url + " refused the request: "
+                    + connection.getResponseCode() + " " + message );
+            }
+
+            reader = new BufferedReader( new InputStreamReader( connection.getInputStream(), "UTF-8" ) );
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+            {
+                String[] fields = line.split( "\t", -1 );
+                for ( int i = 1; i < fields.length; i++ )
+                {
+                    fields[i] = ReleaseServer.unescape( fields[i] );
+                }
+                if ( ReleaseServer.RESULT.equals( fields[0] ) )
+                {
+                    String message = fields.length > 2 ? fields[2] : null;
+                    if ( ReleaseServer.FAILURE.equals( fields[1] ) )
+                    {
+                        throw new ReleaseFailureException( message );
+                    }
+                    if ( !ReleaseServer.SUCCESS.equals( fields[1] ) )
+                    {
+                        throw new ReleaseExecutionException( message );
+                    }
+                    return;
+                }
+                dispatch( fields, listener );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new ReleaseExecutionException( "Unable to talk to the release server at " + url + ": "
+                + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+            if ( connection != null )
+            {
+                connection.disconnect();
+            }
+        }
+
+        throw new ReleaseExecutionException( "The release server at " + url + " went away before the release ended" );
+    }
+
+    private static void dispatch( String[] fields, ReleaseManagerListener listener )
+    {
+        String event = fields[0];
+        String field = fields.length > 1 ? fields[1] : null;
+        if ( listener == null )
+        {
+            return;
+        }
+        if ( ReleaseServer.GOAL_START.equals( event ) )
+        {
+            List<String> phases = fields.length > 2 && fields[2].length() > 0
+                            ? new ArrayList<String>( Arrays.asList( StringUtils.split( fields[2], "," ) ) )
+                            : Collections.<String>emptyList();
+            listener.goalStart( field, phases );
+        }
+        else if ( ReleaseServer.PHASE_START.equals( event ) )
+        {
+            listener.phaseStart( field );
+        }
+        else if ( ReleaseServer.PHASE_END.equals( event ) )
+        {
+            listener.phaseEnd();
+        }
+        else if ( ReleaseServer.PHASE_SKIP.equals( event ) )
+        {
+            listener.phaseSkip( field );
+        }
+        else if ( ReleaseServer.GOAL_END.equals( event ) )
+        {
+            listener.goalEnd();
+        }
+        else if ( ReleaseServer.ERROR.equals( event ) )
+        {
+            listener.error( field );
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package org.apache.maven.shared.release.env;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Locale;
+
+import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.util.ParsedPomCache;
+
+/**
+ * Default implementation of the release environment, extended with the tuning options of this plugin. Options which
+ * are not part of {@link ReleaseEnvironment} are read through the static accessors, which fall back to their defaults
+ * for any other implementation.
+ */
+public class DefaultReleaseEnvironment
+    implements ReleaseEnvironment
+{
+    private File mavenHome;
+
+    private File javaHome;
+
+    private File localRepositoryDirectory;
+
+    private Settings settings;
+
+    private String mavenExecutorId = DEFAULT_MAVEN_EXECUTOR_ID;
+
+    private Locale locale = Locale.ENGLISH;
+
+    private int transformParallelism = 1;
+
+    private int scmEditBatchSize = 100;
+
+    private int outputBufferSize = 8192;
+
+    private String outputOverflowPolicy = "block";
+
+    private boolean adaptiveThreads;
+
+    private int performShards = 1;
+
+    private boolean reuseArtifacts;
+
+    private boolean verifyCache;
+
+    private boolean forceVerify;
+
+    private String checkoutStrategy = "scm";
+
+    private int phaseParallelism = 1;
+
+    private ParsedPomCache pomCache;
+
+    public File getMavenHome()
+    {
+        return mavenHome;
+    }
+
+    public Settings getSettings()
+    {
+        return settings;
+    }
+
+    public ReleaseEnvironment setMavenHome( File mavenHome )
+    {
+        this.mavenHome = mavenHome;
+        return this;
+    }
+
+    public ReleaseEnvironment setSettings( Settings settings )
+    {
+        this.settings = settings;
+        return this;
+    }
+
+    public String getMavenExecutorId()
+    {
+        return mavenExecutorId;
+    }
+
+    public ReleaseEnvironment setMavenExecutorId( String mavenExecutorId )
+    {
+        this.mavenExecutorId = mavenExecutorId;
+        return this;
+    }
+
+    public File getJavaHome()
+    {
+        return javaHome;
+    }
+
+    public ReleaseEnvironment setJavaHome( File javaHome )
+    {
+        this.javaHome = javaHome;
+        return this;
+    }
+
+    public File getLocalRepositoryDirectory()
+    {
+        return localRepositoryDirectory;
+    }
+
+    public ReleaseEnvironment setLocalRepositoryDirectory( File localRepositoryDirectory )
+    {
+        this.localRepositoryDirectory = localRepositoryDirectory;
+        return this;
+    }
+
+    public Locale getLocale()
+    {
+        return locale;
+    }
+
+    public ReleaseEnvironment setLocale( Locale locale )
+    {
+        this.locale = locale;
+        return this;
+    }
+
+    public int getTransformParallelism()
+    {
+        return transformParallelism;
+    }
+
+    /**
+     * @param transformParallelism The number of threads used to rewrite the reactor POMs, <code>1</code> to rewrite
+     *            them one after the other.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setTransformParallelism( int transformParallelism )
+    {
+        this.transformParallelism = transformParallelism;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The number of threads used to rewrite the reactor POMs, at least <code>1</code>.
+     */
+    public static int getTransformParallelism( ReleaseEnvironment releaseEnvironment )
+    {
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            return Math.max( 1, ( (DefaultReleaseEnvironment) releaseEnvironment ).getTransformParallelism() );
+        }
+        return 1;
+    }
+
+    public int getScmEditBatchSize()
+    {
+        return scmEditBatchSize;
+    }
+
+    /**
+     * @param scmEditBatchSize The maximum number of POMs put in edit mode by a single SCM call, <code>0</code> for no
+     *            limit.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setScmEditBatchSize( int scmEditBatchSize )
+    {
+        this.scmEditBatchSize = scmEditBatchSize;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The maximum number of POMs put in edit mode by a single SCM call, at least <code>1</code>.
+     */
+    public static int getScmEditBatchSize( ReleaseEnvironment releaseEnvironment )
+    {
+        int size = 100;
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            size = ( (DefaultReleaseEnvironment) releaseEnvironment ).getScmEditBatchSize();
+        }
+        return size > 0 ? size : Integer.MAX_VALUE;
+    }
+
+    public int getOutputBufferSize()
+    {
+        return outputBufferSize;
+    }
+
+    /**
+     * @param outputBufferSize The number of lines of output of a forked Maven buffered before they are logged,
+     *            <code>0</code> to log every line from the thread reading it.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setOutputBufferSize( int outputBufferSize )
+    {
+        this.outputBufferSize = outputBufferSize;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The number of lines of output of a forked Maven buffered before they are logged, <code>0</code> for no
+     *         buffer.
+     */
+    public static int getOutputBufferSize( ReleaseEnvironment releaseEnvironment )
+    {
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            return Math.max( 0, ( (DefaultReleaseEnvironment) releaseEnvironment ).getOutputBufferSize() );
+        }
+        return 8192;
+    }
+
+    public String getOutputOverflowPolicy()
+    {
+        return outputOverflowPolicy;
+    }
+
+    /**
+     * @param outputOverflowPolicy What to do with a line of output when the buffer is full: <code>block</code> to
+     *            wait for the log, <code>drop</code> to discard the line.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setOutputOverflowPolicy( String outputOverflowPolicy )
+    {
+        this.outputOverflowPolicy = outputOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return What to do with a line of output when the buffer is full, <code>block</code> by default.
+     */
+    public static String getOutputOverflowPolicy( ReleaseEnvironment releaseEnvironment )
+    {
+        String policy = null;
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            policy = ( (DefaultReleaseEnvironment) releaseEnvironment ).getOutputOverflowPolicy();
+        }
+        return policy != null ? policy : "block";
+    }
+
+    public boolean isAdaptiveThreads()
+    {
+        return adaptiveThreads;
+    }
+
+    /**
+     * @param adaptiveThreads <code>true</code> to choose the thread count of the goal runs from the reactor
+     *            dependency graph and the available cores.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setAdaptiveThreads( boolean adaptiveThreads )
+    {
+        this.adaptiveThreads = adaptiveThreads;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return <code>true</code> if the thread count of the goal runs is chosen from the reactor.
+     */
+    public static boolean isAdaptiveThreads( ReleaseEnvironment releaseEnvironment )
+    {
+        return releaseEnvironment instanceof DefaultReleaseEnvironment
+            && ( (DefaultReleaseEnvironment) releaseEnvironment ).isAdaptiveThreads();
+    }
+
+    public int getPerformShards()
+    {
+        return performShards;
+    }
+
+    /**
+     * @param performShards The maximum number of Maven processes running the perform goals side by side, each on a
+     *            group of independent modules, <code>1</code> to run them on the whole reactor at once.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setPerformShards( int performShards )
+    {
+        this.performShards = performShards;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The maximum number of Maven processes running the perform goals side by side, at least <code>1</code>.
+     */
+    public static int getPerformShards( ReleaseEnvironment releaseEnvironment )
+    {
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            return Math.max( 1, ( (DefaultReleaseEnvironment) releaseEnvironment ).getPerformShards() );
+        }
+        return 1;
+    }
+
+    public boolean isReuseArtifacts()
+    {
+        return reuseArtifacts;
+    }
+
+    /**
+     * @param reuseArtifacts <code>true</code> to record the artifacts built by the preparation goals and to deploy
+     *            them in perform when the tag holds the sources they were built from.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setReuseArtifacts( boolean reuseArtifacts )
+    {
+        this.reuseArtifacts = reuseArtifacts;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return <code>true</code> if the artifacts built by the preparation goals are deployed in perform.
+     */
+    public static boolean isReuseArtifacts( ReleaseEnvironment releaseEnvironment )
+    {
+        return releaseEnvironment instanceof DefaultReleaseEnvironment
+            && ( (DefaultReleaseEnvironment) releaseEnvironment ).isReuseArtifacts();
+    }
+
+    public boolean isVerifyCache()
+    {
+        return verifyCache;
+    }
+
+    /**
+     * @param verifyCache <code>true</code> to skip the preparation goals when they already passed on the same tree
+     *            with the same goals, arguments and JDK.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setVerifyCache( boolean verifyCache )
+    {
+        this.verifyCache = verifyCache;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return <code>true</code> if the preparation goals are skipped when they already passed on the same inputs.
+     */
+    public static boolean isVerifyCache( ReleaseEnvironment releaseEnvironment )
+    {
+        return releaseEnvironment instanceof DefaultReleaseEnvironment
+            && ( (DefaultReleaseEnvironment) releaseEnvironment ).isVerifyCache();
+    }
+
+    public boolean isForceVerify()
+    {
+        return forceVerify;
+    }
+
+    /**
+     * @param forceVerify <code>true</code> to run the preparation goals even when the verify cache knows they pass.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setForceVerify( boolean forceVerify )
+    {
+        this.forceVerify = forceVerify;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return <code>true</code> if the preparation goals run even when the verify cache knows they pass.
+     */
+    public static boolean isForceVerify( ReleaseEnvironment releaseEnvironment )
+    {
+        return releaseEnvironment instanceof DefaultReleaseEnvironment
+            && ( (DefaultReleaseEnvironment) releaseEnvironment ).isForceVerify();
+    }
+
+    public String getCheckoutStrategy()
+    {
+        return checkoutStrategy;
+    }
+
+    /**
+     * @param checkoutStrategy How perform gets the sources of the tag: <code>scm</code> checks it out from the SCM,
+     *            <code>clone</code> and <code>worktree</code> materialize it from the local git repository.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setCheckoutStrategy( String checkoutStrategy )
+    {
+        this.checkoutStrategy = checkoutStrategy;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return How perform gets the sources of the tag, <code>scm</code> by default.
+     */
+    public static String getCheckoutStrategy( ReleaseEnvironment releaseEnvironment )
+    {
+        String strategy = null;
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            strategy = ( (DefaultReleaseEnvironment) releaseEnvironment ).getCheckoutStrategy();
+        }
+        return strategy != null ? strategy : "scm";
+    }
+
+    public int getPhaseParallelism()
+    {
+        return phaseParallelism;
+    }
+
+    /**
+     * @param phaseParallelism The maximum number of independent prepare phases running at the same time,
+     *            <code>1</code> to run the phases one after the other.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setPhaseParallelism( int phaseParallelism )
+    {
+        this.phaseParallelism = phaseParallelism;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The maximum number of independent prepare phases running at the same time, at least <code>1</code>.
+     */
+    public static int getPhaseParallelism( ReleaseEnvironment releaseEnvironment )
+    {
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            return Math.max( 1, ( (DefaultReleaseEnvironment) releaseEnvironment ).getPhaseParallelism() );
+        }
+        return 1;
+    }
+
+    public ParsedPomCache getPomCache()
+    {
+        return pomCache;
+    }
+
+    /**
+     * @param pomCache The cache of parsed POMs kept across release runs, or <code>null</code> for a cache of each run.
+     * @return This environment.
+     */
+    public DefaultReleaseEnvironment setPomCache( ParsedPomCache pomCache )
+    {
+        this.pomCache = pomCache;
+        return this;
+    }
+
+    /**
+     * @param releaseEnvironment The environment of the release, may be <code>null</code>.
+     * @return The cache of parsed POMs kept across release runs, or <code>null</code> if each run has its own.
+     */
+    public static ParsedPomCache getPomCache( ReleaseEnvironment releaseEnvironment )
+    {
+        if ( releaseEnvironment instanceof DefaultReleaseEnvironment )
+        {
+            return ( (DefaultReleaseEnvironment) releaseEnvironment ).getPomCache();
+        }
+        return null;
+    }
+}
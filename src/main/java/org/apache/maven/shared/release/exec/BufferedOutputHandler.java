@@ -0,0 +1,301 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Decouples the stream pumpers of a forked Maven from the handler which logs its output.
+ * <p/>
+ * The pumpers of standard output and standard error put their lines in a bounded ring buffer, claiming slots with a
+ * compare-and-set on a shared sequence, and return to the process right away. A daemon thread drains the buffer in
+ * batches and hands the lines to the target handler in the order they were claimed. When the buffer is full, the
+ * {@link OverflowPolicy} decides between holding the pumper until a slot is free and dropping the line.
+ * <p/>
+ * The handler must be {@link #close() closed} once the forked Maven has ended, which delivers the remaining lines and
+ * logs how many lines were handled and dropped.
+ */
+public class BufferedOutputHandler
+    implements InvocationOutputHandler
+{
+    /**
+     * What to do with a line when the buffer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * Hold the pumper until the line fits, which in turn holds the forked Maven once its pipe is full.
+         */
+        BLOCK,
+
+        /**
+         * Drop the line, so that the forked Maven never waits for the log.
+         */
+        DROP;
+
+        /**
+         * @param policy The name of the policy, in any case.
+         * @return The policy.
+         * @throws IllegalArgumentException If there is no such policy.
+         */
+        public static OverflowPolicy parse( String policy )
+        {
+            return valueOf( policy.trim().toUpperCase( Locale.ENGLISH ) );
+        }
+    }
+
+    private static final int BATCH_SIZE = 256;
+
+    private static final long DRAIN_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 50 );
+
+    private final InvocationOutputHandler target;
+
+    private final Logger logger;
+
+    private final OverflowPolicy policy;
+
+    private final AtomicReferenceArray<String> slots;
+
+    private final int mask;
+
+    /**
+     * The sequence of the next slot to claim.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * The sequence of the next slot to drain; every slot before it is free.
+     */
+    private final AtomicLong drained = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong stalls = new AtomicLong();
+
+    private final Thread drainer;
+
+    private volatile boolean closed;
+
+    private boolean reported;
+
+    private long handled;
+
+    /**
+     * Creates the handler and starts its drain thread.
+     *
+     * @param target The handler receiving the lines, called from the drain thread only.
+     * @param logger The logger of the line counts.
+     * @param capacity The number of lines the buffer holds, rounded up to a power of two.
+     * @param policy What to do with a line when the buffer is full.
+     */
+    public BufferedOutputHandler( InvocationOutputHandler target, Logger logger, int capacity, OverflowPolicy policy )
+    {
+        this.target = target;
+        this.logger = logger;
+        this.policy = policy;
+
+        int size = 2;
+        while ( size < capacity && size < ( 1 << 30 ) )
+        {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<String>( size );
+        this.mask = size - 1;
+
+        this.drainer = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                drain();
+            }
+        }, "release-output-drainer" );
+        this.drainer.setDaemon( true );
+        this.drainer.start();
+    }
+
+    public void consumeLine( String line )
+    {
+        if ( line == null )
+        {
+            return;
+        }
+        if ( closed )
+        {
+            // a pumper outliving the invocation, too late for the buffer
+            target.consumeLine( line );
+            return;
+        }
+
+        boolean stalled = false;
+        while ( true )
+        {
+            long sequence = claimed.get();
+            if ( sequence - drained.get() < slots.length() )
+            {
+                if ( claimed.compareAndSet( sequence, sequence + 1 ) )
+                {
+                    slots.set( (int) ( sequence & mask ), line );
+                    return;
+                }
+            }
+            else if ( policy == OverflowPolicy.DROP || closed )
+            {
+                dropped.incrementAndGet();
+                return;
+            }
+            else
+            {
+                if ( !stalled )
+                {
+                    stalled = true;
+                    stalls.incrementAndGet();
+                }
+                LockSupport.parkNanos( PRODUCER_PARK_NANOS );
+            }
+        }
+    }
+
+    /**
+     * Delivers the lines still in the buffer, stops the drain thread and logs the line counts. Must be called once no
+     * more lines are put; further calls do nothing.
+     */
+    public void close()
+    {
+        if ( reported )
+        {
+            return;
+        }
+        reported = true;
+
+        closed = true;
+        LockSupport.unpark( drainer );
+
+        boolean interrupted = false;
+        while ( drainer.isAlive() )
+        {
+            try
+            {
+                drainer.join();
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        long droppedLines = dropped.get();
+        String counts = "Maven output: " + handled + " lines logged, " + droppedLines + " dropped, " + stalls.get()
+            + " lines waited for a free slot.";
+        if ( droppedLines > 0 )
+        {
+            logger.warn( counts );
+        }
+        else if ( logger.isDebugEnabled() )
+        {
+            logger.debug( counts );
+        }
+    }
+
+    /**
+     * @return The number of lines handed to the target so far; only accurate once closed.
+     */
+    public long getHandledLines()
+    {
+        return handled;
+    }
+
+    /**
+     * @return The number of lines dropped because the buffer was full.
+     */
+    public long getDroppedLines()
+    {
+        return dropped.get();
+    }
+
+    private void drain()
+    {
+        String[] batch = new String[Math.min( BATCH_SIZE, slots.length() )];
+        while ( true )
+        {
+            // read before draining, so that a close seen here comes after every line put before it
+            boolean last = closed;
+
+            long sequence = drained.get();
+            int count = 0;
+            while ( count < batch.length )
+            {
+                int index = (int) ( sequence & mask );
+                String line = slots.get( index );
+                if ( line == null )
+                {
+                    // either empty or claimed but not yet published
+                    break;
+                }
+                slots.set( index, null );
+                batch[count++] = line;
+                sequence++;
+            }
+            if ( count > 0 )
+            {
+                drained.set( sequence );
+                deliver( batch, count );
+            }
+            else if ( last && sequence == claimed.get() )
+            {
+                return;
+            }
+            else
+            {
+                LockSupport.parkNanos( this, DRAIN_PARK_NANOS );
+            }
+        }
+    }
+
+    private void deliver( String[] batch, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            try
+            {
+                target.consumeLine( batch[i] );
+            }
+            catch ( RuntimeException e )
+            {
+                // keep draining, a pumper waiting for a free slot would hang otherwise
+                logger.debug( "Failed to log Maven output: " + e.getMessage(), e );
+            }
+            batch[i] = null;
+        }
+        handled += count;
+    }
+}
@@ -0,0 +1,243 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+
+/**
+ * Reads the module and mojo banners, the reactor summary and the build result from the output of a forked Maven as it
+ * goes by, and records them in a {@link BuildTimingReport}. Every line is passed on to the target handler unchanged.
+ * <p/>
+ * Mojos are timed from their banner to the next banner of the build, at the time the lines are read. Modules take
+ * their time from the reactor summary when the build prints one, and are timed the same way as mojos otherwise.
+ */
+public class BuildTimingParser
+    implements InvocationOutputHandler
+{
+    private static final String INFO = "[INFO] ";
+
+    private static final Pattern MODULE_ID = Pattern.compile( "-+< (\\S+) >-+" );
+
+    private static final Pattern BUILDING = Pattern.compile( "Building (.+?) (\\S+?)(?:\\s+\\[\\d+/\\d+\\])?" );
+
+    private static final Pattern MOJO = Pattern.compile( "--- (\\S+) (?:\\((.+?)\\) )?@ (\\S+) ---" );
+
+    private static final Pattern SUMMARY =
+        Pattern.compile( "(.+?) \\.+ (SUCCESS|FAILURE|SKIPPED)(?:\\s*\\[\\s*([^\\]]+?)\\s*\\])?" );
+
+    private static final Pattern RESULT = Pattern.compile( "BUILD (SUCCESS|FAILURE)" );
+
+    private static final Pattern TOTAL_TIME = Pattern.compile( "Total time:\\s*(.+)" );
+
+    private static final Pattern CLOCK = Pattern.compile( "(\\d+):(\\d+(?:\\.\\d+)?)\\s*(min|h|s)" );
+
+    private static final Pattern SECONDS = Pattern.compile( "(\\d+(?:\\.\\d+)?)\\s*s" );
+
+    private static final Pattern ANSI = Pattern.compile( "\u001B\\[[;\\d]*m" );
+
+    private final InvocationOutputHandler target;
+
+    private final BuildTimingReport report;
+
+    private String moduleId;
+
+    private BuildTimingReport.Module module;
+
+    private long moduleStart;
+
+    private BuildTimingReport.Mojo mojo;
+
+    private long mojoStart;
+
+    private boolean inSummary;
+
+    /**
+     * @param target The handler receiving every line.
+     * @param report The report to record the timings in.
+     * @param goals The goals of the build.
+     */
+    public BuildTimingParser( InvocationOutputHandler target, BuildTimingReport report, List<String> goals )
+    {
+        this.target = target;
+        this.report = report;
+        report.addGoals( goals );
+    }
+
+    public void consumeLine( String line )
+    {
+        if ( line != null && line.length() > 0 )
+        {
+            try
+            {
+                parse( line );
+            }
+            catch ( RuntimeException e )
+            {
+                // the timings are a by-product, never lose the output for them
+            }
+        }
+        target.consumeLine( line );
+    }
+
+    /**
+     * Closes the module and mojo still running, for a build which ended without printing its result.
+     */
+    public synchronized void finish()
+    {
+        endModule( System.nanoTime() );
+    }
+
+    private synchronized void parse( String line )
+    {
+        String text = line;
+        if ( text.indexOf( '\u001B' ) >= 0 )
+        {
+            text = ANSI.matcher( text ).replaceAll( "" );
+        }
+        if ( !text.startsWith( INFO ) )
+        {
+            return;
+        }
+        text = text.substring( INFO.length() ).trim();
+
+        long now = System.nanoTime();
+        Matcher matcher;
+        if ( inSummary )
+        {
+            matcher = SUMMARY.matcher( text );
+            if ( matcher.matches() )
+            {
+                BuildTimingReport.Module summarized = report.findModule( matcher.group( 1 ) );
+                if ( summarized != null )
+                {
+                    summarized.setStatus( matcher.group( 2 ) );
+                    long millis = matcher.group( 3 ) != null ? parseDuration( matcher.group( 3 ) ) : -1;
+                    if ( millis >= 0 )
+                    {
+                        summarized.setMillis( millis );
+                    }
+                }
+                return;
+            }
+            if ( text.startsWith( "---" ) )
+            {
+                inSummary = false;
+            }
+        }
+
+        if ( text.startsWith( "--- " ) && ( matcher = MOJO.matcher( text ) ).matches() )
+        {
+            endMojo( now );
+            if ( module == null )
+            {
+                module = report.addModule( null, matcher.group( 3 ) );
+                moduleStart = now;
+            }
+            String plugin = matcher.group( 1 );
+            int separator = plugin.lastIndexOf( ':' );
+            mojo = separator > 0 ? module.addMojo( plugin.substring( 0, separator ), plugin.substring( separator + 1 ),
+                                                   matcher.group( 2 ) )
+                            : module.addMojo( plugin, null, matcher.group( 2 ) );
+            mojoStart = now;
+        }
+        else if ( text.startsWith( "---" ) && ( matcher = MODULE_ID.matcher( text ) ).matches() )
+        {
+            moduleId = matcher.group( 1 );
+        }
+        else if ( text.startsWith( "Building " ) && ( matcher = BUILDING.matcher( text ) ).matches()
+            && !matcher.group( 1 ).endsWith( ":" ) )
+        {
+            endModule( now );
+            module = report.addModule( moduleId, matcher.group( 1 ) );
+            moduleStart = now;
+            moduleId = null;
+        }
+        else if ( text.startsWith( "Reactor Summary" ) )
+        {
+            endModule( now );
+            inSummary = true;
+        }
+        else if ( text.startsWith( "BUILD " ) && ( matcher = RESULT.matcher( text ) ).matches() )
+        {
+            endModule( now );
+            inSummary = false;
+            report.setStatus( matcher.group( 1 ) );
+        }
+        else if ( text.startsWith( "Total time:" ) && ( matcher = TOTAL_TIME.matcher( text ) ).matches() )
+        {
+            long millis = parseDuration( matcher.group( 1 ) );
+            if ( millis > 0 )
+            {
+                report.addTotalMillis( millis );
+            }
+        }
+    }
+
+    private void endMojo( long now )
+    {
+        if ( mojo != null )
+        {
+            mojo.setMillis( ( now - mojoStart ) / 1000000L );
+            mojo = null;
+        }
+    }
+
+    private void endModule( long now )
+    {
+        endMojo( now );
+        if ( module != null )
+        {
+            module.setMillis( ( now - moduleStart ) / 1000000L );
+            module = null;
+        }
+    }
+
+    /**
+     * Parses a duration as Maven prints it, like <code>0.532 s</code>, <code>01:02 min</code>, <code>01:02 h</code>
+     * or, with Maven 3.0, <code>1.5s</code> and <code>1:02.345s</code>.
+     *
+     * @return The duration in milliseconds, or <code>-1</code> if it could not be parsed.
+     */
+    static long parseDuration( String duration )
+    {
+        String text = duration.trim();
+        Matcher matcher = CLOCK.matcher( text );
+        if ( matcher.lookingAt() )
+        {
+            long major = Long.parseLong( matcher.group( 1 ) );
+            double minor = Double.parseDouble( matcher.group( 2 ) );
+            if ( "h".equals( matcher.group( 3 ) ) )
+            {
+                return ( major * 3600L + (long) minor * 60L ) * 1000L;
+            }
+            return major * 60000L + Math.round( minor * 1000d );
+        }
+        matcher = SECONDS.matcher( text );
+        if ( matcher.lookingAt() )
+        {
+            return Math.round( Double.parseDouble( matcher.group( 1 ) ) * 1000d );
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,432 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.maven.shared.release.ReleaseResult;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * The time spent in each module and mojo by the Maven builds run for a release phase, as read from their output by
+ * {@link BuildTimingParser}.
+ * <p/>
+ * A report is attached to the {@link ReleaseResult} of the phase, and holds the modules of every build run for it in
+ * the order they were built.
+ */
+public class BuildTimingReport
+{
+    private static final Map<ReleaseResult, BuildTimingReport> REPORTS =
+        Collections.synchronizedMap( new WeakHashMap<ReleaseResult, BuildTimingReport>() );
+
+    private final List<String> goals = new ArrayList<String>();
+
+    private final List<Module> modules = new ArrayList<Module>();
+
+    private String status;
+
+    private long totalMillis;
+
+    /**
+     * Gets the report attached to a result, attaching a new one if there is none.
+     *
+     * @param result The result of a release phase.
+     * @return The report of the result.
+     */
+    public static BuildTimingReport open( ReleaseResult result )
+    {
+        synchronized ( REPORTS )
+        {
+            BuildTimingReport report = REPORTS.get( result );
+            if ( report == null )
+            {
+                report = new BuildTimingReport();
+                REPORTS.put( result, report );
+            }
+            return report;
+        }
+    }
+
+    /**
+     * @param result The result of a release phase, may be <code>null</code>.
+     * @return The report attached to the result, or <code>null</code> if no build output was read for it.
+     */
+    public static BuildTimingReport get( ReleaseResult result )
+    {
+        return result != null ? REPORTS.get( result ) : null;
+    }
+
+    /**
+     * Adds the goals, modules and total time of another report to this one, for builds run side by side.
+     *
+     * @param other The report to add.
+     */
+    public void merge( BuildTimingReport other )
+    {
+        List<String> otherGoals = other.getGoals();
+        List<Module> otherModules = other.getModules();
+        String otherStatus = other.getStatus();
+        long otherMillis = other.getTotalMillis();
+        synchronized ( this )
+        {
+            for ( String goal : otherGoals )
+            {
+                if ( !goals.contains( goal ) )
+                {
+                    goals.add( goal );
+                }
+            }
+            modules.addAll( otherModules );
+            if ( status == null || "FAILURE".equals( otherStatus ) )
+            {
+                status = otherStatus;
+            }
+            totalMillis = Math.max( totalMillis, otherMillis );
+        }
+    }
+
+    public synchronized List<String> getGoals()
+    {
+        return new ArrayList<String>( goals );
+    }
+
+    synchronized void addGoals( List<String> runGoals )
+    {
+        goals.addAll( runGoals );
+    }
+
+    public synchronized List<Module> getModules()
+    {
+        return new ArrayList<Module>( modules );
+    }
+
+    synchronized Module addModule( String id, String name )
+    {
+        Module module = new Module( id, name );
+        modules.add( module );
+        return module;
+    }
+
+    /**
+     * @param summaryName The name of a module in the reactor summary, possibly followed by its version.
+     * @return The last built module of that name, or <code>null</code> if there is none.
+     */
+    synchronized Module findModule( String summaryName )
+    {
+        for ( int i = modules.size() - 1; i >= 0; i-- )
+        {
+            Module module = modules.get( i );
+            if ( summaryName.equals( module.getName() ) || summaryName.startsWith( module.getName() + " " ) )
+            {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The outcome of the last build, <code>SUCCESS</code> or <code>FAILURE</code>, or <code>null</code> if
+     *         the build did not tell.
+     */
+    public synchronized String getStatus()
+    {
+        return status;
+    }
+
+    synchronized void setStatus( String status )
+    {
+        this.status = status;
+    }
+
+    /**
+     * @return The total time of the builds as they reported it, in milliseconds.
+     */
+    public synchronized long getTotalMillis()
+    {
+        return totalMillis;
+    }
+
+    synchronized void addTotalMillis( long millis )
+    {
+        totalMillis += millis;
+    }
+
+    public synchronized boolean isEmpty()
+    {
+        return modules.isEmpty();
+    }
+
+    /**
+     * @param count The maximum number of modules.
+     * @return The slowest modules, slowest first.
+     */
+    public synchronized List<Module> getSlowestModules( int count )
+    {
+        List<Module> sorted = new ArrayList<Module>( modules );
+        Collections.sort( sorted, new Comparator<Module>()
+        {
+            public int compare( Module m1, Module m2 )
+            {
+                return m1.getMillis() < m2.getMillis() ? 1 : ( m1.getMillis() == m2.getMillis() ? 0 : -1 );
+            }
+        } );
+        return sorted.subList( 0, Math.min( count, sorted.size() ) );
+    }
+
+    /**
+     * Writes the report as JSON.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void writeJson( File file )
+        throws IOException
+    {
+        Writer writer = null;
+        try
+        {
+            writer = WriterFactory.newWriter( file, "UTF-8" );
+            writer.write( toJson() );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * @return The report as JSON.
+     */
+    public synchronized String toJson()
+    {
+        StringBuilder json = new StringBuilder( 256 + 128 * modules.size() );
+        json.append( "{\n  \"goals\": [" );
+        for ( int i = 0; i < goals.size(); i++ )
+        {
+            json.append( i > 0 ? ", " : "" );
+            appendString( json, goals.get( i ) );
+        }
+        json.append( "],\n  \"status\": " );
+        appendString( json, status );
+        json.append( ",\n  \"totalMillis\": " ).append( totalMillis );
+        json.append( ",\n  \"modules\": [" );
+        for ( int i = 0; i < modules.size(); i++ )
+        {
+            Module module = modules.get( i );
+            json.append( i > 0 ? "," : "" ).append( "\n    {\n      \"id\": " );
+            appendString( json, module.getId() );
+            json.append( ",\n      \"name\": " );
+            appendString( json, module.getName() );
+            json.append( ",\n      \"status\": " );
+            appendString( json, module.getStatus() );
+            json.append( ",\n      \"millis\": " ).append( module.getMillis() );
+            json.append( ",\n      \"mojos\": [" );
+            List<Mojo> mojos = module.getMojos();
+            for ( int j = 0; j < mojos.size(); j++ )
+            {
+                Mojo mojo = mojos.get( j );
+                json.append( j > 0 ? "," : "" ).append( "\n        { \"plugin\": " );
+                appendString( json, mojo.getPlugin() );
+                json.append( ", \"goal\": " );
+                appendString( json, mojo.getGoal() );
+                json.append( ", \"execution\": " );
+                appendString( json, mojo.getExecutionId() );
+                json.append( ", \"millis\": " ).append( mojo.getMillis() ).append( " }" );
+            }
+            json.append( mojos.isEmpty() ? "]" : "\n      ]" ).append( "\n    }" );
+        }
+        json.append( modules.isEmpty() ? "]" : "\n  ]" ).append( "\n}\n" );
+        return json.toString();
+    }
+
+    private static void appendString( StringBuilder json, String value )
+    {
+        if ( value == null )
+        {
+            json.append( "null" );
+            return;
+        }
+        json.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    json.append( "\\\"" );
+                    break;
+                case '\\':
+                    json.append( "\\\\" );
+                    break;
+                case '\n':
+                    json.append( "\\n" );
+                    break;
+                case '\r':
+                    json.append( "\\r" );
+                    break;
+                case '\t':
+                    json.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        json.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        json.append( c );
+                    }
+            }
+        }
+        json.append( '"' );
+    }
+
+    /**
+     * A module built by a reactor build.
+     */
+    public static class Module
+    {
+        private final String id;
+
+        private final String name;
+
+        private final List<Mojo> mojos = new ArrayList<Mojo>();
+
+        private String status;
+
+        private long millis;
+
+        Module( String id, String name )
+        {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * @return The <code>groupId:artifactId</code> of the module, or <code>null</code> if the build did not print
+         *         it.
+         */
+        public String getId()
+        {
+            return id;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return The status of the module in the reactor summary, or <code>null</code> if there was none.
+         */
+        public String getStatus()
+        {
+            return status;
+        }
+
+        void setStatus( String status )
+        {
+            this.status = status;
+        }
+
+        /**
+         * @return The time spent in the module, as reported by the reactor summary if there was one.
+         */
+        public long getMillis()
+        {
+            return millis;
+        }
+
+        void setMillis( long millis )
+        {
+            this.millis = millis;
+        }
+
+        public List<Mojo> getMojos()
+        {
+            return Collections.unmodifiableList( mojos );
+        }
+
+        Mojo addMojo( String plugin, String goal, String executionId )
+        {
+            Mojo mojo = new Mojo( plugin, goal, executionId );
+            mojos.add( mojo );
+            return mojo;
+        }
+    }
+
+    /**
+     * A mojo execution within a module, timed from its banner to the next one.
+     */
+    public static class Mojo
+    {
+        private final String plugin;
+
+        private final String goal;
+
+        private final String executionId;
+
+        private long millis;
+
+        Mojo( String plugin, String goal, String executionId )
+        {
+            this.plugin = plugin;
+            this.goal = goal;
+            this.executionId = executionId;
+        }
+
+        /**
+         * @return The plugin of the mojo, with its version.
+         */
+        public String getPlugin()
+        {
+            return plugin;
+        }
+
+        public String getGoal()
+        {
+            return goal;
+        }
+
+        public String getExecutionId()
+        {
+            return executionId;
+        }
+
+        public long getMillis()
+        {
+            return millis;
+        }
+
+        void setMillis( long millis )
+        {
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.shared.release.ReleaseResult;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.codehaus.plexus.classworlds.ClassWorld;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+/**
+ * Run Maven inside the current JVM through the Maven embedder, instead of forking a new Maven for every goal run.
+ * <p/>
+ * The embedded build reuses the core realm of the running Maven, so the core classes are neither loaded nor compiled
+ * again, and loads its extensions and plugins in realms of its own which are disposed when it ends. The embedder
+ * swaps <code>System.out</code>, <code>System.err</code>, system properties and the context class loader while it
+ * runs, so embedded builds are run one at a time. It also copies every <code>-D</code> argument into the system
+ * properties, which are all restored when the build ends, so that none leaks into the running build or the next
+ * embedded one. The embedded build runs on the JVM and the Maven of the current build: a different Java or Maven home
+ * in the release environment is ignored with a warning.
+ *
+ * @plexus.component role="org.apache.maven.shared.release.exec.MavenExecutor" role-hint="embedded"
+ */
+public class EmbeddedMavenExecutor
+    extends AbstractMavenExecutor
+{
+    private static final String CORE_REALM = "plexus.core";
+
+    private static final String MAVEN_CLI = "org.apache.maven.cli.MavenCli";
+
+    private static final String MULTIMODULE_PROJECT_DIRECTORY = "maven.multiModuleProjectDirectory";
+
+    private static final Object LOCK = new Object();
+
+    @Override
+    public void executeGoals( File workingDirectory, List<String> goals, ReleaseEnvironment releaseEnvironment,
+                              boolean interactive, String additionalArguments, String pomFileName,
+                              ReleaseResult result )
+        throws MavenExecutorException
+    {
+        checkMavenHome( releaseEnvironment.getMavenHome() );
+        checkJavaHome( releaseEnvironment.getJavaHome() );
+
+        List<String> args = new ArrayList<String>();
+        if ( !interactive )
+        {
+            args.add( "-B" );
+        }
+        if ( getLogger().isDebugEnabled() )
+        {
+            args.add( "-X" );
+        }
+        if ( pomFileName != null )
+        {
+            args.add( "-f" );
+            args.add( pomFileName );
+        }
+        File localRepoDir = releaseEnvironment.getLocalRepositoryDirectory();
+        if ( localRepoDir != null )
+        {
+            args.add( "-Dmaven.repo.local=" + localRepoDir.getAbsolutePath() );
+        }
+
+        File settingsFile = null;
+        try
+        {
+            if ( releaseEnvironment.getSettings() != null )
+            {
+                // the embedded build reads its settings from disk, like a forked one
+                settingsFile = acquireSettingsFile( releaseEnvironment );
+                args.add( "-s" );
+                args.add( settingsFile.getAbsolutePath() );
+            }
+
+            if ( additionalArguments != null )
+            {
+                try
+                {
+                    args.addAll( Arrays.asList( CommandLineUtils.translateCommandline( additionalArguments ) ) );
+                }
+                catch ( Exception e )
+                {
+                    throw new MavenExecutorException( "Failed to re-parse additional arguments for Maven invocation.",
+                                                      e );
+                }
+            }
+
+            args.addAll( goals );
+
+            int exitCode = execute( workingDirectory, args.toArray( new String[args.size()] ) );
+            if ( exitCode != 0 )
+            {
+                throw new MavenExecutorException( "Maven execution failed, exit code: \'" + exitCode + "\'", exitCode,
+                                                  "", "" );
+            }
+        }
+        finally
+        {
+            SettingsSnapshotCache.release( releaseEnvironment, settingsFile );
+        }
+    }
+
+    private int execute( File workingDirectory, String[] args )
+        throws MavenExecutorException
+    {
+        ClassWorld world = getClassWorld();
+        if ( world == null || world.getClassRealm( CORE_REALM ) == null )
+        {
+            throw new MavenExecutorException( "The embedded Maven executor can only run inside a Maven 3 build, "
+                + "use the invoker executor instead.", (Throwable) null );
+        }
+
+        PrintStream out = new PrintStream( new LineLoggingOutputStream( getLogger() ), true );
+        synchronized ( LOCK )
+        {
+            // the embedder leaves its own realm as context class loader, which would hide the components of this
+            // plugin from the lookups of the following phases
+            ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            Properties systemProperties = new Properties();
+            systemProperties.putAll( System.getProperties() );
+            System.setProperty( MULTIMODULE_PROJECT_DIRECTORY, workingDirectory.getAbsolutePath() );
+            try
+            {
+                Class<?> cliClass = world.getClassRealm( CORE_REALM ).loadClass( MAVEN_CLI );
+                Constructor<?> constructor = cliClass.getConstructor( ClassWorld.class );
+                Method doMain =
+                    cliClass.getMethod( "doMain", String[].class, String.class, PrintStream.class, PrintStream.class );
+
+                getLogger().debug( "Running embedded Maven in " + workingDirectory + " with " + Arrays.asList( args ) );
+
+                Object cli = constructor.newInstance( world );
+                return ( (Integer) doMain.invoke( cli, args, workingDirectory.getAbsolutePath(), out, out ) )
+                    .intValue();
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new MavenExecutorException( "Error executing Maven.", e.getTargetException() );
+            }
+            catch ( Exception e )
+            {
+                throw new MavenExecutorException( "Unable to embed Maven: " + e.getMessage(), e );
+            }
+            finally
+            {
+                Thread.currentThread().setContextClassLoader( contextClassLoader );
+                restoreSystemProperties( systemProperties );
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Restores the system properties in place, since the running build may hold on to them.
+     */
+    private static void restoreSystemProperties( Properties systemProperties )
+    {
+        Properties current = System.getProperties();
+        synchronized ( current )
+        {
+            current.keySet().retainAll( systemProperties.keySet() );
+            current.putAll( systemProperties );
+        }
+    }
+
+    private ClassWorld getClassWorld()
+    {
+        try
+        {
+            ClassLoader loader = getClass().getClassLoader();
+            if ( loader instanceof ClassRealm )
+            {
+                return ( (ClassRealm) loader ).getWorld();
+            }
+        }
+        catch ( LinkageError e )
+        {
+            // not running in Maven 3
+            getLogger().debug( "No class world available: " + e.getMessage() );
+        }
+        return null;
+    }
+
+    private void checkMavenHome( File mavenHome )
+    {
+        String currentHome = System.getProperty( "maven.home" );
+        if ( mavenHome != null && currentHome != null
+            && !mavenHome.getAbsoluteFile().equals( new File( currentHome ).getAbsoluteFile() ) )
+        {
+            getLogger().warn( "The embedded Maven executor runs the Maven of the current build (" + currentHome
+                                  + "), ignoring " + mavenHome );
+        }
+    }
+
+    private void checkJavaHome( File javaHome )
+    {
+        String currentHome = System.getProperty( "java.home" );
+        if ( javaHome == null || currentHome == null )
+        {
+            return;
+        }
+        File current = new File( currentHome ).getAbsoluteFile();
+        File home = javaHome.getAbsoluteFile();
+        // java.home is the jre directory of a JDK before Java 9
+        boolean jdkOfCurrent = "jre".equals( current.getName() ) && home.equals( current.getParentFile() );
+        if ( !home.equals( current ) && !jdkOfCurrent )
+        {
+            getLogger().warn( "The embedded Maven executor runs on the JVM of the current build (" + currentHome
+                                  + "), ignoring " + javaHome + ", use the invoker executor to build with it" );
+        }
+    }
+
+    private File acquireSettingsFile( final ReleaseEnvironment releaseEnvironment )
+        throws MavenExecutorException
+    {
+        try
+        {
+            return SettingsSnapshotCache.acquire( releaseEnvironment, new SettingsSnapshotCache.SnapshotWriter()
+            {
+                public void write( Writer writer )
+                    throws IOException
+                {
+                    getSettingsWriter().write( writer, encryptSettings( releaseEnvironment.getSettings() ) );
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MavenExecutorException( "Could not create temporary file for release settings.xml", e );
+        }
+    }
+
+    /**
+     * Logs the output of the embedded build line by line, as the invoker does with the output of a forked one.
+     */
+    private static final class LineLoggingOutputStream
+        extends OutputStream
+    {
+        private final Logger logger;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream( 256 );
+
+        LineLoggingOutputStream( Logger logger )
+        {
+            this.logger = logger;
+        }
+
+        @Override
+        public void write( int b )
+        {
+            if ( b == '\n' )
+            {
+                flushLine();
+            }
+            else if ( b != '\r' )
+            {
+                line.write( b );
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if ( line.size() > 0 )
+            {
+                flushLine();
+            }
+        }
+
+        private void flushLine()
+        {
+            logger.info( line.toString() );
+            line.reset();
+        }
+    }
+}
@@ -22,8 +22,8 @@ package org.apache.maven.shared.release.exec;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -32,7 +32,6 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
-import org.apache.maven.settings.io.xpp3.SettingsXpp3Writer;
 import org.apache.maven.shared.invoker.DefaultInvocationRequest;
 import org.apache.maven.shared.invoker.DefaultInvoker;
 import org.apache.maven.shared.invoker.InvocationOutputHandler;
@@ -42,10 +41,10 @@ import org.apache.maven.shared.invoker.Invoker;
 import org.apache.maven.shared.invoker.InvokerLogger;
 import org.apache.maven.shared.invoker.MavenInvocationException;
 import org.apache.maven.shared.release.ReleaseResult;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
 import org.apache.maven.shared.release.phase.RunPerformGoalsPhase;
 import org.codehaus.plexus.logging.Logger;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 
 /**
@@ -106,6 +105,12 @@ public class InvokerMavenExecutor
 
     private static final String BATCH_MODE = "B";
 
+    private static final String PROJECT_LIST = "pl";
+
+    private static final String ALSO_MAKE = "am";
+
+    private static final String ALSO_MAKE_DEPENDENTS = "amd";
+
     public static final char ALTERNATE_USER_TOOLCHAINS = 't';
 
     static
@@ -182,6 +187,15 @@ public class InvokerMavenExecutor
         OPTIONS.addOption( OptionBuilder.withLongOpt( "batch-mode" ).withDescription(
                 "Run in non-interactive (batch) mode" ).create( BATCH_MODE ) );
 
+        OPTIONS.addOption( OptionBuilder.withLongOpt( "projects" ).withDescription(
+                "Comma-delimited list of specified reactor projects to build" ).hasArg().create( PROJECT_LIST ) );
+
+        OPTIONS.addOption( OptionBuilder.withLongOpt( "also-make" ).withDescription(
+                "Also build the projects required by the list" ).create( ALSO_MAKE ) );
+
+        OPTIONS.addOption( OptionBuilder.withLongOpt( "also-make-dependents" ).withDescription(
+                "Also build the projects that depend on projects on the list" ).create( ALSO_MAKE_DEPENDENTS ) );
+
         OPTIONS.addOption( OptionBuilder.withLongOpt( "toolchains" ).withDescription(
                 "Alternate path for the user toolchains file" ).hasArg().create( ALTERNATE_USER_TOOLCHAINS ) );
     }
@@ -332,6 +346,21 @@ public class InvokerMavenExecutor
                 req.setInteractive( false );
             }
 
+            if ( cli.hasOption( PROJECT_LIST ) )
+            {
+                req.setProjects( Arrays.asList( cli.getOptionValue( PROJECT_LIST ).split( "," ) ) );
+            }
+
+            if ( cli.hasOption( ALSO_MAKE ) )
+            {
+                req.setAlsoMake( true );
+            }
+
+            if ( cli.hasOption( ALSO_MAKE_DEPENDENTS ) )
+            {
+                req.setAlsoMakeDependents( true );
+            }
+
             if ( cli.hasOption( ALTERNATE_USER_TOOLCHAINS ) )
             {
                 req.setToolchainsFile( new File( cli.getOptionValue( ALTERNATE_USER_TOOLCHAINS ) ) );
@@ -353,65 +382,42 @@ public class InvokerMavenExecutor
         InvocationOutputHandler handler = getOutputHandler();
         InvokerLogger bridge = getInvokerLogger();
 
-        File mavenPath = null;
-        // if null we use the current one
-        if ( releaseEnvironment.getMavenHome() != null )
-        {
-            mavenPath = releaseEnvironment.getMavenHome();
-        }
-        else
+        BufferedOutputHandler buffer = createOutputBuffer( releaseEnvironment, handler );
+        if ( buffer != null )
         {
-            String mavenHome = System.getProperty( "maven.home" );
-            if ( mavenHome == null )
-            {
-                mavenHome = System.getenv( "MAVEN_HOME" );
-            }
-            if ( mavenHome == null )
-            {
-                mavenHome = System.getenv( "M2_HOME" );
-            }
-            mavenPath = mavenHome == null ? null : new File( mavenHome );
+            handler = buffer;
         }
-        Invoker invoker =
-                new DefaultInvoker().setMavenHome( mavenPath ).setLogger( bridge )
-                        .setOutputHandler( handler ).setErrorHandler( handler );
 
-        InvocationRequest req =
-                new DefaultInvocationRequest().setDebug( getLogger().isDebugEnabled() )
-                        .setBaseDirectory( workingDirectory ).setInteractive( interactive );
-
-        if ( pomFileName != null )
+        BuildTimingParser timings = null;
+        if ( result != null )
         {
-            req.setPomFileName( pomFileName );
+            // timed ahead of the buffer, when the lines are read
+            timings = new BuildTimingParser( handler, BuildTimingReport.open( result ), goals );
+            handler = timings;
         }
 
         File settingsFile = null;
-        if ( releaseEnvironment.getSettings() != null )
+        try
         {
-            // Have to serialize to a file as if Maven is embedded, there may not actually be a settings.xml on disk
-            try
+            Invoker invoker = createInvoker( releaseEnvironment, bridge, handler );
+
+            InvocationRequest req =
+                    new DefaultInvocationRequest().setDebug( getLogger().isDebugEnabled() )
+                            .setBaseDirectory( workingDirectory ).setInteractive( interactive );
+
+            if ( pomFileName != null )
             {
-                settingsFile = File.createTempFile( "release-settings", ".xml" );
-                SettingsXpp3Writer writer = getSettingsWriter();
-                FileWriter fileWriter = null;
-                try
-                {
-                    fileWriter = new FileWriter( settingsFile );
-                    writer.write( fileWriter, encryptSettings( releaseEnvironment.getSettings() ) );
-                }
-                finally
-                {
-                    IOUtil.close( fileWriter );
-                }
-                req.setUserSettingsFile( settingsFile );
+                req.setPomFileName( pomFileName );
             }
-            catch ( IOException e )
+
+            if ( releaseEnvironment.getSettings() != null )
             {
-                throw new MavenExecutorException( "Could not create temporary file for release settings.xml", e );
+                // Have to serialize to a file as if Maven is embedded, there may not actually be a settings.xml on
+                // disk
+                settingsFile = acquireSettingsFile( releaseEnvironment );
+                req.setUserSettingsFile( settingsFile );
             }
-        }
-        try
-        {
+
             File localRepoDir = releaseEnvironment.getLocalRepositoryDirectory();
             if ( localRepoDir != null )
             {
@@ -427,6 +433,11 @@ public class InvokerMavenExecutor
                 getLogger().info("InvokerMaven:"+invoker.getClass().getName());
                 //RunPerformGoalsPhase.writeLog("InvokerMaven:"+invoker.getClass().getName());
                 InvocationResult invocationResult = invoker.execute( req );
+                if ( buffer != null )
+                {
+                    // log the end of the output before anything about its outcome
+                    buffer.close();
+                }
                 getLogger().info("InvokerMaven:>>"+invocationResult.getClass().getName());
                 //RunPerformGoalsPhase.writeLog("InvokerMaven:>>"+invocationResult.getClass().getName());
                 if ( invocationResult.getExecutionException() != null )
@@ -448,13 +459,112 @@ public class InvokerMavenExecutor
         }
         finally
         {
-            if ( settingsFile != null && settingsFile.exists() && !settingsFile.delete() )
+            if ( timings != null )
             {
-                settingsFile.deleteOnExit();
+                timings.finish();
             }
+            if ( buffer != null )
+            {
+                buffer.close();
+            }
+            SettingsSnapshotCache.release( releaseEnvironment, settingsFile );
+        }
+    }
+
+    /**
+     * Creates the buffer between the threads reading the output of the forked Maven and the handler logging it.
+     *
+     * @param releaseEnvironment The release environment, holding the size and overflow policy of the buffer.
+     * @param handler The handler logging the output.
+     * @return The started buffer, or <code>null</code> to log the output from the threads reading it.
+     * @throws MavenExecutorException If the overflow policy is unknown.
+     */
+    protected BufferedOutputHandler createOutputBuffer( ReleaseEnvironment releaseEnvironment,
+                                                        InvocationOutputHandler handler )
+            throws MavenExecutorException
+    {
+        int size = DefaultReleaseEnvironment.getOutputBufferSize( releaseEnvironment );
+        if ( size <= 0 )
+        {
+            return null;
+        }
+
+        String policy = DefaultReleaseEnvironment.getOutputOverflowPolicy( releaseEnvironment );
+        try
+        {
+            return new BufferedOutputHandler( handler, getLogger(), size,
+                                              BufferedOutputHandler.OverflowPolicy.parse( policy ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MavenExecutorException( "Unknown output overflow policy '" + policy
+                + "', expected block or drop.", e );
+        }
+    }
+
+    /**
+     * Gets the settings file of an invocation, written once per release run.
+     *
+     * @param releaseEnvironment The environment holding the settings.
+     * @return The settings file, to be released with {@link SettingsSnapshotCache#release(ReleaseEnvironment, File)}.
+     * @throws MavenExecutorException If the settings could not be written.
+     */
+    protected File acquireSettingsFile( final ReleaseEnvironment releaseEnvironment )
+            throws MavenExecutorException
+    {
+        try
+        {
+            return SettingsSnapshotCache.acquire( releaseEnvironment, new SettingsSnapshotCache.SnapshotWriter()
+            {
+                public void write( Writer writer )
+                        throws IOException
+                {
+                    getSettingsWriter().write( writer, encryptSettings( releaseEnvironment.getSettings() ) );
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MavenExecutorException( "Could not create temporary file for release settings.xml", e );
         }
     }
 
+    /**
+     * Creates the invoker which runs the goals.
+     *
+     * @param releaseEnvironment The release environment, holding the Maven home to use.
+     * @param bridge The logger of the invoker.
+     * @param handler The handler of the output of the invoked Maven.
+     * @return The invoker.
+     * @throws MavenExecutorException If the invoker could not be set up.
+     */
+    protected Invoker createInvoker( ReleaseEnvironment releaseEnvironment, InvokerLogger bridge,
+                                     InvocationOutputHandler handler )
+            throws MavenExecutorException
+    {
+        File mavenPath = null;
+        // if null we use the current one
+        if ( releaseEnvironment.getMavenHome() != null )
+        {
+            mavenPath = releaseEnvironment.getMavenHome();
+        }
+        else
+        {
+            String mavenHome = System.getProperty( "maven.home" );
+            if ( mavenHome == null )
+            {
+                mavenHome = System.getenv( "MAVEN_HOME" );
+            }
+            if ( mavenHome == null )
+            {
+                mavenHome = System.getenv( "M2_HOME" );
+            }
+            mavenPath = mavenHome == null ? null : new File( mavenHome );
+        }
+        return new DefaultInvoker().setMavenHome( mavenPath ).setLogger( bridge )
+                .setOutputHandler( handler ).setErrorHandler( handler );
+    }
+
     protected InvokerLogger getInvokerLogger()
     {
         return new LoggerBridge( getLogger() );
@@ -462,7 +572,7 @@ public class InvokerMavenExecutor
 
     protected InvocationOutputHandler getOutputHandler()
     {
-        return new Handler( getLogger() );
+        return new Handler( getLogger(), OutputLabel.getPrefix() );
     }
 
     private static final class Handler
@@ -470,14 +580,17 @@ public class InvokerMavenExecutor
     {
         private Logger logger;
 
-        Handler( Logger logger )
+        private String prefix;
+
+        Handler( Logger logger, String prefix )
         {
             this.logger = logger;
+            this.prefix = prefix;
         }
 
         public void consumeLine( String line )
         {
-            logger.info( line );
+            logger.info( prefix.length() > 0 ? prefix + line : line );
         }
     }
 
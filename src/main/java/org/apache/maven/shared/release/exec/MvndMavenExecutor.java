@@ -0,0 +1,157 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.invoker.Invoker;
+import org.apache.maven.shared.invoker.InvokerLogger;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.codehaus.plexus.util.Os;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+
+/**
+ * Run Maven through the client of the Maven daemon (mvnd), so that all goal runs of a release are built by the same
+ * warm daemon JVM, with its JIT-compiled code and cached plugin realms.
+ * <p/>
+ * The client is looked up in <code>${mvnd.home}/bin</code>, then in <code>$MVND_HOME/bin</code>, then on the
+ * <code>PATH</code>. It connects to a running daemon or starts one; before its first use it is checked with
+ * <code>mvnd --version</code>, which does the same. When no client is found or the check fails, the goals are run
+ * with a forked Maven like the <code>invoker</code> executor does. Pointing <code>mvnd.home</code> to a stand-in
+ * client allows testing this executor without a real daemon.
+ *
+ * @plexus.component role="org.apache.maven.shared.release.exec.MavenExecutor" role-hint="mvnd"
+ */
+public class MvndMavenExecutor
+        extends InvokerMavenExecutor
+{
+    private static final String MVND_HOME = "mvnd.home";
+
+    private static final int CHECK_TIMEOUT = 60;
+
+    /**
+     * Outcome of the check of each client, so that it is only run once.
+     */
+    private final Map<File, Boolean> availableClients = new HashMap<File, Boolean>();
+
+    @Override
+    protected Invoker createInvoker( ReleaseEnvironment releaseEnvironment, InvokerLogger bridge,
+                                     InvocationOutputHandler handler )
+            throws MavenExecutorException
+    {
+        Invoker invoker = super.createInvoker( releaseEnvironment, bridge, handler );
+
+        File client = findClient();
+        if ( client == null )
+        {
+            getLogger().warn( "No Maven daemon client found, falling back to a forked Maven." );
+        }
+        else if ( !isAvailable( client ) )
+        {
+            getLogger().warn( "The Maven daemon client " + client + " is not usable, falling back to a forked Maven." );
+        }
+        else
+        {
+            getLogger().info( "Running goals through the Maven daemon client " + client );
+            invoker.setMavenExecutable( client );
+        }
+        return invoker;
+    }
+
+    /**
+     * @return The mvnd client, or <code>null</code> if none was found.
+     */
+    protected File findClient()
+    {
+        String[] names = Os.isFamily( Os.FAMILY_WINDOWS ) ? new String[]{ "mvnd.exe", "mvnd.cmd" }
+                        : new String[]{ "mvnd", "mvnd.sh" };
+
+        String home = System.getProperty( MVND_HOME );
+        if ( home == null )
+        {
+            home = System.getenv( "MVND_HOME" );
+        }
+        if ( home != null )
+        {
+            return find( new File( home, "bin" ), names );
+        }
+
+        String path = System.getenv( "PATH" );
+        if ( path != null )
+        {
+            for ( String dir : path.split( File.pathSeparator ) )
+            {
+                File client = find( new File( dir ), names );
+                if ( client != null )
+                {
+                    return client;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static File find( File dir, String[] names )
+    {
+        for ( String name : names )
+        {
+            File client = new File( dir, name );
+            if ( client.isFile() )
+            {
+                return client.getAbsoluteFile();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs <code>mvnd --version</code> once per client, which connects to a daemon or starts one.
+     */
+    private synchronized boolean isAvailable( File client )
+    {
+        Boolean available = availableClients.get( client );
+        if ( available == null )
+        {
+            Commandline cl = new Commandline();
+            cl.setExecutable( client.getPath() );
+            cl.createArg().setValue( "--version" );
+
+            CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+            try
+            {
+                int exitCode = CommandLineUtils.executeCommandLine( cl, out, out, CHECK_TIMEOUT );
+                available = Boolean.valueOf( exitCode == 0 );
+                getLogger().debug( "Maven daemon client check exited with " + exitCode + ":\n" + out.getOutput() );
+            }
+            catch ( CommandLineException e )
+            {
+                available = Boolean.FALSE;
+                getLogger().debug( "Maven daemon client check failed: " + e.getMessage(), e );
+            }
+            availableClients.put( client, available );
+        }
+        return available.booleanValue();
+    }
+}
@@ -0,0 +1,55 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The label put in front of every line of output of the Maven runs started by the current thread, so that the output
+ * of runs going on at the same time can be told apart in the log.
+ */
+public final class OutputLabel
+{
+    private static final ThreadLocal<String> LABEL = new ThreadLocal<String>();
+
+    private OutputLabel()
+    {
+    }
+
+    /**
+     * @param label The label of the Maven runs started by the current thread, for instance <code>shard 1</code>.
+     */
+    public static void set( String label )
+    {
+        LABEL.set( label );
+    }
+
+    public static void clear()
+    {
+        LABEL.remove();
+    }
+
+    /**
+     * @return The prefix of the output lines of the current thread, empty if it has no label.
+     */
+    public static String getPrefix()
+    {
+        String label = LABEL.get();
+        return label != null ? "[" + label + "] " : "";
+    }
+}
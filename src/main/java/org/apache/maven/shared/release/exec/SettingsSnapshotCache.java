@@ -0,0 +1,235 @@
+package org.apache.maven.shared.release.exec;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.maven.settings.Settings;
+import org.apache.maven.settings.io.xpp3.SettingsXpp3Writer;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.util.Sha256;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * The settings files written for the Maven invocations of a release run.
+ * <p/>
+ * {@link org.apache.maven.shared.release.DefaultReleaseManager} opens a cache for the release environment it passes to
+ * its phases and closes it when the goal finishes, which deletes the files. Within a run, a settings file is written
+ * once for each distinct content of the settings, readable by its owner only, and handed to every invocation. Outside
+ * of a run, every invocation gets a file of its own, deleted as soon as the invocation is done.
+ */
+public class SettingsSnapshotCache
+{
+    private static final Map<ReleaseEnvironment, SettingsSnapshotCache> CACHES =
+        Collections.synchronizedMap( new IdentityHashMap<ReleaseEnvironment, SettingsSnapshotCache>() );
+
+    /**
+     * The files written so far, by hash of the settings they hold.
+     */
+    private final Map<String, File> snapshots = new HashMap<String, File>();
+
+    /**
+     * Opens the cache of a release run, or returns the one already open for this environment.
+     *
+     * @param releaseEnvironment The environment passed to every phase of the run.
+     * @return The open cache.
+     */
+    public static SettingsSnapshotCache open( ReleaseEnvironment releaseEnvironment )
+    {
+        synchronized ( CACHES )
+        {
+            SettingsSnapshotCache cache = CACHES.get( releaseEnvironment );
+            if ( cache == null )
+            {
+                cache = new SettingsSnapshotCache();
+                CACHES.put( releaseEnvironment, cache );
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Closes the cache of a release run and deletes its files.
+     *
+     * @param releaseEnvironment The environment the cache was opened for.
+     */
+    public static void close( ReleaseEnvironment releaseEnvironment )
+    {
+        SettingsSnapshotCache cache = CACHES.remove( releaseEnvironment );
+        if ( cache != null )
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets a settings file holding the settings of the environment.
+     *
+     * @param releaseEnvironment The environment holding the settings, which must not be <code>null</code>.
+     * @param writer Writes the settings as the invoked Maven has to see them.
+     * @return The settings file, to be handed back to {@link #release(ReleaseEnvironment, File)}.
+     * @throws IOException If the settings could not be written.
+     */
+    public static File acquire( ReleaseEnvironment releaseEnvironment, SnapshotWriter writer )
+        throws IOException
+    {
+        SettingsSnapshotCache cache = CACHES.get( releaseEnvironment );
+        if ( cache == null )
+        {
+            return write( writer );
+        }
+        return cache.getSnapshot( releaseEnvironment.getSettings(), writer );
+    }
+
+    /**
+     * Releases a settings file after the invocation it was acquired for. Files shared by the release run are kept.
+     *
+     * @param releaseEnvironment The environment the file was acquired for.
+     * @param settingsFile The settings file, may be <code>null</code>.
+     */
+    public static void release( ReleaseEnvironment releaseEnvironment, File settingsFile )
+    {
+        if ( settingsFile == null )
+        {
+            return;
+        }
+        SettingsSnapshotCache cache = CACHES.get( releaseEnvironment );
+        if ( cache == null || !cache.contains( settingsFile ) )
+        {
+            delete( settingsFile );
+        }
+    }
+
+    private synchronized File getSnapshot( Settings settings, SnapshotWriter writer )
+        throws IOException
+    {
+        String hash = hash( settings );
+        File settingsFile = snapshots.get( hash );
+        if ( settingsFile == null || !settingsFile.isFile() )
+        {
+            settingsFile = write( writer );
+            snapshots.put( hash, settingsFile );
+        }
+        return settingsFile;
+    }
+
+    private synchronized boolean contains( File settingsFile )
+    {
+        return snapshots.containsValue( settingsFile );
+    }
+
+    private synchronized void clear()
+    {
+        for ( File settingsFile : snapshots.values() )
+        {
+            delete( settingsFile );
+        }
+        snapshots.clear();
+    }
+
+    private static File write( SnapshotWriter writer )
+        throws IOException
+    {
+        File settingsFile = File.createTempFile( "release-settings", ".xml" );
+
+        // the settings hold credentials: restrict the file to its owner before anything is written to it
+        settingsFile.setReadable( false, false );
+        settingsFile.setReadable( true, true );
+        settingsFile.setWritable( false, false );
+        settingsFile.setWritable( true, true );
+
+        Writer fileWriter = null;
+        boolean written = false;
+        try
+        {
+            fileWriter = WriterFactory.newXmlWriter( settingsFile );
+            writer.write( fileWriter );
+            written = true;
+        }
+        finally
+        {
+            IOUtil.close( fileWriter );
+            if ( !written )
+            {
+                delete( settingsFile );
+            }
+        }
+        return settingsFile;
+    }
+
+    /**
+     * @param settings The settings to hash.
+     * @return A SHA-256 hash of the settings as they serialize, before their passwords are encrypted.
+     * @throws IOException If the settings could not be serialized.
+     */
+    public static String hash( Settings settings )
+        throws IOException
+    {
+        MessageDigest digest = Sha256.newDigest();
+
+        Writer writer = new OutputStreamWriter( new DigestOutputStream( new NullOutputStream(), digest ), "UTF-8" );
+        new SettingsXpp3Writer().write( writer, settings );
+        writer.close();
+
+        return Sha256.toHex( digest.digest() );
+    }
+
+    private static void delete( File settingsFile )
+    {
+        if ( settingsFile.exists() && !settingsFile.delete() )
+        {
+            settingsFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Writes the settings file of an invocation.
+     */
+    public interface SnapshotWriter
+    {
+        void write( Writer writer )
+            throws IOException;
+    }
+
+    private static final class NullOutputStream
+        extends OutputStream
+    {
+        @Override
+        public void write( int b )
+        {
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+        }
+    }
+}
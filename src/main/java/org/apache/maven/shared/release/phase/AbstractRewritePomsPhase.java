@@ -19,18 +19,29 @@ package org.apache.maven.shared.release.phase;
  * under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.model.Model;
@@ -43,16 +54,24 @@ import org.apache.maven.scm.manager.NoSuchScmProviderException;
 import org.apache.maven.scm.provider.ScmProvider;
 import org.apache.maven.scm.repository.ScmRepository;
 import org.apache.maven.scm.repository.ScmRepositoryException;
+import org.apache.maven.shared.release.ReleaseContext;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseFailureException;
 import org.apache.maven.shared.release.ReleaseResult;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
 import org.apache.maven.shared.release.scm.IdentifiedScm;
 import org.apache.maven.shared.release.scm.ReleaseScmCommandException;
 import org.apache.maven.shared.release.scm.ReleaseScmRepositoryException;
+import org.apache.maven.shared.release.scm.ReleaseScmSession;
 import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
 import org.apache.maven.shared.release.scm.ScmTranslator;
+import org.apache.maven.shared.release.util.ParsedPomCache;
+import org.apache.maven.shared.release.util.ParsedPomCache.ParsedPom;
+import org.apache.maven.shared.release.util.PomPrologScanner;
+import org.apache.maven.shared.release.util.PomTextPatcher;
+import org.apache.maven.shared.release.util.ReactorLayout;
 import org.apache.maven.shared.release.util.ReleaseUtil;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
@@ -72,10 +91,9 @@ import org.jdom.output.Format;
 import org.jdom.output.XMLOutputter;
 
 public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
-    private static Map<String,String> propertyVersionMap = new HashMap<String,String>();
-    private static Map<String,String> originalVersionMap = new HashMap<String,String>();//原始版本
-    private static Map<String,String> beforeOriginalVersionMap = new HashMap<String,String>();//变更之前的版本号
-
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{.+\\}");
+    private static final Pattern PROJECT_EXPRESSION = Pattern.compile("\\$\\{project.+\\}");
+    private static final Pattern POM_EXPRESSION = Pattern.compile("\\$\\{pom.+\\}");
     private ScmRepositoryConfigurator scmRepositoryConfigurator;
     private Map<String, ScmTranslator> scmTranslators;
     private String pomSuffix;
@@ -101,135 +119,225 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
     }
 
     private void transform(ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects, boolean simulate, ReleaseResult result) throws ReleaseExecutionException, ReleaseFailureException {
-        Iterator i2$ = reactorProjects.iterator();
-        //首先解析所有的pom文件，将含有${}，并且包含有-SNAPSHOT结尾的名称和下一个版本号找到存放在propertyVersionMap中
-        while(i2$.hasNext()) {
-            MavenProject project = (MavenProject)i2$.next();
-            this.transformProjectBefore(project, releaseDescriptor, releaseEnvironment, reactorProjects, simulate, result);
+        ReleaseContext context = ReleaseContext.get(releaseDescriptor);
+        ReactorLayout layout = context.getReactorLayout(reactorProjects);
+        ScmRepository scmRepository = null;
+        ScmProvider provider = null;
+        if (this.isUpdateScm()) {
+            try {
+                //同一次发布中共享SCM仓库和provider，不再每个阶段重新创建
+                ReleaseScmSession session = context.getScmSession(this.scmRepositoryConfigurator, releaseDescriptor.getScmSourceUrl(), releaseDescriptor, releaseEnvironment.getSettings());
+                this.logDebug(result, "Using SCM session for " + session.getUrl() + " (constructed in " + session.getConstructionTime() + " ms)");
+                scmRepository = session.getRepository();
+                provider = session.getProvider();
+            } catch (ScmRepositoryException var26) {
+                throw new ReleaseScmRepositoryException(var26.getMessage(), var26.getValidationMessages());
+            } catch (NoSuchScmProviderException var27) {
+                throw new ReleaseExecutionException("Unable to configure SCM repository: " + var27.getMessage(), var27);
+            }
         }
 
-        Iterator i$ = reactorProjects.iterator();
+        //需要写回的pom先收集起来，全部修改完成后统一调用edit再写文件
+        List<File> pomFiles = new ArrayList<File>();
+        List<byte[]> contents = new ArrayList<byte[]>();
+        int parallelism = Math.min(DefaultReleaseEnvironment.getTransformParallelism(releaseEnvironment), reactorProjects.size());
+        if (parallelism > 1) {
+            this.transformParallel(releaseDescriptor, reactorProjects, simulate, result, context, parallelism, scmRepository, pomFiles, contents);
+        } else {
+            Iterator i2$ = reactorProjects.iterator();
+            //首先解析所有的pom文件，将含有${}，并且包含有-SNAPSHOT结尾的名称和下一个版本号找到存放在propertyVersionMap中
+            while(i2$.hasNext()) {
+                MavenProject project = (MavenProject)i2$.next();
+                this.transformProjectBefore(project, releaseDescriptor, releaseEnvironment, reactorProjects, simulate, result, context);
+            }
+
+            Iterator i$ = reactorProjects.iterator();
 
-        while(i$.hasNext()) {
-            MavenProject project = (MavenProject)i$.next();
-            this.logInfo(result, "Transforming '" + project.getName() + "'...");
-            this.transformProject(project, releaseDescriptor, releaseEnvironment, reactorProjects, simulate, result);
+            while(i$.hasNext()) {
+                MavenProject project = (MavenProject)i$.next();
+                this.logInfo(result, "Transforming '" + project.getName() + "'...");
+                this.transformProject(project, releaseDescriptor, reactorProjects, simulate, result, context, scmRepository, pomFiles, contents);
+            }
         }
 
-    }
+        if (!simulate) {
+            this.editPoms(pomFiles, releaseDescriptor, releaseEnvironment, scmRepository, provider);
 
-    private void transformProject(MavenProject project, ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects, boolean simulate, ReleaseResult result) throws ReleaseExecutionException, ReleaseFailureException {
-        String intro = null;
-        String outtro = null;
+            for (int i = 0; i < pomFiles.size(); i++) {
+                context.getPomCache().invalidate(pomFiles.get(i));
+                this.writePom(pomFiles.get(i), contents.get(i));
+                context.count(ReleaseContext.POMS_WRITTEN);
+            }
+        }
 
-        Document document;
+        int rewritten = 0;
+        for (MavenProject project : reactorProjects) {
+            if (context.isPomChanged(layout.getStandardPom(project))) {
+                ++rewritten;
+            }
+        }
+
+        this.logInfo(result, "Rewrote " + rewritten + " POM(s), skipped " + (reactorProjects.size() - rewritten) + " unchanged POM(s).");
+    }
+
+    //并行模式：解析和修改在线程池中按模块执行，生成内容和日志仍按reactor顺序进行，保证结果确定
+    private void transformParallel(final ReleaseDescriptor releaseDescriptor, final List<MavenProject> reactorProjects, final boolean simulate, ReleaseResult result, final ReleaseContext context, int parallelism, final ScmRepository scmRepository, List<File> pomFiles, List<byte[]> contents) throws ReleaseExecutionException, ReleaseFailureException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new TransformThreadFactory());
+        List<Future<Document>> transforming = new ArrayList<Future<Document>>(reactorProjects.size());
+        List<ReleaseResult> moduleResults = new ArrayList<ReleaseResult>(reactorProjects.size());
         try {
-            String content = ReleaseUtil.readXmlFile(ReleaseUtil.getStandardPom(project), this.ls);
-            content = content.replaceAll("<([^!][^>]*?)\\s{2,}([^>]*?)>", "<$1 $2>");
-            content = content.replaceAll("(\\s{2,}|[^\\s])/>", "$1 />");
-            SAXBuilder builder = new SAXBuilder();
-            document = builder.build(new StringReader(content));
-            this.normaliseLineEndings(document);
-            StringWriter w = new StringWriter();
-            Format format = Format.getRawFormat();
-            format.setLineSeparator(this.ls);
-            XMLOutputter out = new XMLOutputter(format);
-            out.output(document.getRootElement(), w);
-            int index = content.indexOf(w.toString());
-            if (index >= 0) {
-                intro = content.substring(0, index);
-                outtro = content.substring(index + w.toString().length());
-            } else {
-                String SPACE = "\\s++";
-                String XML = "<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>";
-                String INTSUB = "\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]";
-                String DOCTYPE = "<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>";
-                String PI = "<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>";
-                String COMMENT = "<!--(?:[^-]|(?:-[^-]))*+-->";
-                String INTRO = "(?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*";
-                String OUTRO = "(?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*";
-                String POM = "(?s)((?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)(.*?)((?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)";
-                Matcher matcher = Pattern.compile("(?s)((?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)(.*?)((?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)").matcher(content);
-                if (matcher.matches()) {
-                    intro = matcher.group(1);
-                    outtro = matcher.group(matcher.groupCount());
+            List<Future<ParsedPom>> parsing = new ArrayList<Future<ParsedPom>>(reactorProjects.size());
+            for (final MavenProject project : reactorProjects) {
+                parsing.add(executor.submit(new Callable<ParsedPom>() {
+                    public ParsedPom call() throws ReleaseExecutionException {
+                        return AbstractRewritePomsPhase.this.readPom(context.getReactorLayout(reactorProjects).getStandardPom(project), context);
+                    }
+                }));
+            }
+            List<ParsedPom> poms = this.await(parsing);
+
+            //属性版本的收集按reactor顺序串行执行，与串行模式的结果一致
+            for (int i = 0; i < reactorProjects.size(); i++) {
+                this.transformDocumentBefore(reactorProjects.get(i), poms.get(i).getDocument().getRootElement(), releaseDescriptor, reactorProjects, null, result, simulate, context);
+            }
+
+            //原始版本集合由ReleaseDescriptor延迟创建，先在当前线程中初始化
+            this.getOriginalVersionMap(releaseDescriptor, reactorProjects, simulate);
+
+            for (int i = 0; i < reactorProjects.size(); i++) {
+                final MavenProject project = reactorProjects.get(i);
+                final ParsedPom pom = poms.get(i);
+                final ReleaseResult moduleResult = new ReleaseResult();
+                moduleResults.add(moduleResult);
+                transforming.add(executor.submit(new Callable<Document>() {
+                    public Document call() throws ReleaseExecutionException, ReleaseFailureException {
+                        AbstractRewritePomsPhase.this.logInfo(moduleResult, "Transforming '" + project.getName() + "'...");
+                        Document document = pom.copyDocument();
+                        AbstractRewritePomsPhase.this.transformDocument(project, document.getRootElement(), releaseDescriptor, reactorProjects, scmRepository, moduleResult, simulate, context);
+                        return document;
+                    }
+                }));
+            }
+            List<Document> documents = this.await(transforming);
+
+            for (int i = 0; i < reactorProjects.size(); i++) {
+                MavenProject project = reactorProjects.get(i);
+                this.renderProject(project, context.getReactorLayout(reactorProjects).getStandardPom(project), documents.get(i), poms.get(i), releaseDescriptor, simulate, context, pomFiles, contents);
+            }
+        } finally {
+            executor.shutdownNow();
+            //失败时也按reactor顺序保留已完成模块的日志（包括失败的模块），未完成模块的日志丢弃并删除其溢出文件
+            for (int i = 0; i < moduleResults.size(); i++) {
+                if (i < transforming.size() && transforming.get(i).isDone()) {
+                    result.appendOutput(moduleResults.get(i));
+                } else {
+                    moduleResults.get(i).getOutputSink().delete();
                 }
             }
-        } catch (JDOMException var28) {
-            throw new ReleaseExecutionException("Error reading POM: " + var28.getMessage(), var28);
-        } catch (IOException var29) {
-            throw new ReleaseExecutionException("Error reading POM: " + var29.getMessage(), var29);
         }
+    }
 
-        ScmRepository scmRepository = null;
-        ScmProvider provider = null;
-        if (this.isUpdateScm()) {
+    private <T> List<T> await(List<Future<T>> futures) throws ReleaseExecutionException, ReleaseFailureException {
+        List<T> values = new ArrayList<T>(futures.size());
+        for (Future<T> future : futures) {
             try {
-                scmRepository = this.scmRepositoryConfigurator.getConfiguredRepository(releaseDescriptor, releaseEnvironment.getSettings());
-                provider = this.scmRepositoryConfigurator.getRepositoryProvider(scmRepository);
-            } catch (ScmRepositoryException var26) {
-                throw new ReleaseScmRepositoryException(var26.getMessage(), var26.getValidationMessages());
-            } catch (NoSuchScmProviderException var27) {
-                throw new ReleaseExecutionException("Unable to configure SCM repository: " + var27.getMessage(), var27);
+                values.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ReleaseExecutionException("Interrupted while transforming POMs", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ReleaseExecutionException) {
+                    throw (ReleaseExecutionException)cause;
+                } else if (cause instanceof ReleaseFailureException) {
+                    throw (ReleaseFailureException)cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new ReleaseExecutionException("Error transforming POM: " + cause.getMessage(), cause);
             }
         }
+        return values;
+    }
 
-        this.transformDocument(project, document.getRootElement(), releaseDescriptor, reactorProjects, scmRepository, result, simulate);
-        File pomFile = ReleaseUtil.getStandardPom(project);
+    private void transformProject(MavenProject project, ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects, boolean simulate, ReleaseResult result, ReleaseContext context, ScmRepository scmRepository, List<File> pomFiles, List<byte[]> contents) throws ReleaseExecutionException, ReleaseFailureException {
+        File pomFile = context.getReactorLayout(reactorProjects).getStandardPom(project);
+        ParsedPom pom = this.readPom(pomFile, context);
+        Document document = pom.copyDocument();
+        this.transformDocument(project, document.getRootElement(), releaseDescriptor, reactorProjects, scmRepository, result, simulate, context);
+        this.renderProject(project, pomFile, document, pom, releaseDescriptor, simulate, context, pomFiles, contents);
+    }
+
+    //内容没有变化的pom既不写回也不调用edit，并从后续提交的文件中排除
+    private void renderProject(MavenProject project, File pomFile, Document document, ParsedPom pom, ReleaseDescriptor releaseDescriptor, boolean simulate, ReleaseContext context, List<File> pomFiles, List<byte[]> contents) throws ReleaseExecutionException {
+        byte[] content = this.renderPom(document, releaseDescriptor, project.getModelVersion(), pom);
+        boolean changed = !this.isUnchanged(pomFile, content);
         if (simulate) {
             File outputFile = new File(pomFile.getParentFile(), pomFile.getName() + "." + this.pomSuffix);
-            this.writePom(outputFile, document, releaseDescriptor, project.getModelVersion(), intro, outtro);
-        } else {
-            this.writePom(pomFile, document, releaseDescriptor, project.getModelVersion(), intro, outtro, scmRepository, provider);
+            this.writePom(outputFile, content);
+            context.count(ReleaseContext.POMS_WRITTEN);
+        } else if (changed) {
+            pomFiles.add(pomFile);
+            contents.add(content);
         }
 
+        context.setPomChanged(pomFile, changed);
     }
 
-    private void transformProjectBefore(MavenProject project, ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects, boolean simulate, ReleaseResult result) throws ReleaseExecutionException, ReleaseFailureException {
-        String intro = null;
-        String outtro = null;
+    private void transformProjectBefore(MavenProject project, ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects, boolean simulate, ReleaseResult result, ReleaseContext context) throws ReleaseExecutionException, ReleaseFailureException {
+        //只读取属性，直接使用缓存中共享的文档
+        ParsedPom pom = this.readPom(context.getReactorLayout(reactorProjects).getStandardPom(project), context);
+        this.transformDocumentBefore(project, pom.getDocument().getRootElement(), releaseDescriptor, reactorProjects, null, result, simulate, context);
+    }
+
+    //解析pom文件，文件未变化时直接复用之前解析的结果（同一次发布中的所有阶段共享）
+    private ParsedPom readPom(File pomFile, ReleaseContext context) throws ReleaseExecutionException {
+        ParsedPomCache pomCache = context.getPomCache();
+        ParsedPom pom = pomCache.get(pomFile, this.ls);
+        if (pom != null) {
+            return pom;
+        }
 
+        long length = pomFile.length();
+        long lastModified = pomFile.lastModified();
+
+        String content;
         Document document;
         try {
-            String content = ReleaseUtil.readXmlFile(ReleaseUtil.getStandardPom(project), this.ls);
-            content = content.replaceAll("<([^!][^>]*?)\\s{2,}([^>]*?)>", "<$1 $2>");
-            content = content.replaceAll("(\\s{2,}|[^\\s])/>", "$1 />");
+            content = ReleaseUtil.readXmlFile(pomFile, this.ls);
             SAXBuilder builder = new SAXBuilder();
-            document = builder.build(new StringReader(content));
+            document = builder.build(new StringReader(this.normaliseTags(content)));
             this.normaliseLineEndings(document);
-            StringWriter w = new StringWriter();
-            Format format = Format.getRawFormat();
-            format.setLineSeparator(this.ls);
-            XMLOutputter out = new XMLOutputter(format);
-            out.output(document.getRootElement(), w);
-            int index = content.indexOf(w.toString());
-            if (index >= 0) {
-                intro = content.substring(0, index);
-                outtro = content.substring(index + w.toString().length());
-            } else {
-                String SPACE = "\\s++";
-                String XML = "<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>";
-                String INTSUB = "\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]";
-                String DOCTYPE = "<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>";
-                String PI = "<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>";
-                String COMMENT = "<!--(?:[^-]|(?:-[^-]))*+-->";
-                String INTRO = "(?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*";
-                String OUTRO = "(?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*";
-                String POM = "(?s)((?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)(.*?)((?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)";
-                Matcher matcher = Pattern.compile("(?s)((?:(?:\\s++)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>)|(?:<!DOCTYPE(?:(?:[^\"'\\[>]++)|(?:\"[^\"]*+\")|(?:'[^']*+')|(?:\\[(?:(?:[^\"'\\]]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+\\]))*+>)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)(.*?)((?:(?:\\s++)|(?:<!--(?:[^-]|(?:-[^-]))*+-->)|(?:<\\?(?:(?:[^\"'>]++)|(?:\"[^\"]*+\")|(?:'[^']*+'))*+>))*)").matcher(content);
-                if (matcher.matches()) {
-                    intro = matcher.group(1);
-                    outtro = matcher.group(matcher.groupCount());
-                }
-            }
+            context.count(ReleaseContext.POMS_PARSED);
         } catch (JDOMException var28) {
             throw new ReleaseExecutionException("Error reading POM: " + var28.getMessage(), var28);
         } catch (IOException var29) {
             throw new ReleaseExecutionException("Error reading POM: " + var29.getMessage(), var29);
         }
 
+        //记录每个元素文本在原始内容中的位置，写回时只替换修改过的值
+        pom = new ParsedPom(document, content, PomTextPatcher.indexLeafText(content), this.ls, length, lastModified);
+        pomCache.put(pomFile, pom);
+        return pom;
+    }
+
+    private String normaliseTags(String content) {
+        content = content.replaceAll("<([^!][^>]*?)\\s{2,}([^>]*?)>", "<$1 $2>");
+        return content.replaceAll("(\\s{2,}|[^\\s])/>", "$1 />");
+    }
+
+    //只有需要重新序列化整个文档时才计算根元素前后的内容
+    private void splitPrologue(ParsedPom pom) {
+        String content = this.normaliseTags(pom.getContent());
+        int[] root = PomPrologScanner.findRootElement(content);
+        if (root != null) {
+            pom.setPrologue(content.substring(0, root[0]), content.substring(root[1]));
+        } else {
+            pom.setPrologue(null, null);
+        }
 
-        this.transformDocumentBefore(project, document.getRootElement(), releaseDescriptor, reactorProjects, null, result, simulate);
     }
 
     private void normaliseLineEndings(Document document) {
@@ -249,7 +357,7 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
 
     }
 
-    private void transformDocumentBefore(MavenProject project, Element rootElement, ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects, ScmRepository scmRepository, ReleaseResult result, boolean simulate) throws ReleaseExecutionException, ReleaseFailureException {
+    private void transformDocumentBefore(MavenProject project, Element rootElement, ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects, ScmRepository scmRepository, ReleaseResult result, boolean simulate, ReleaseContext context) throws ReleaseExecutionException, ReleaseFailureException {
         Namespace namespace = rootElement.getNamespace();
         Map<String, String> mappedVersions = this.getNextVersionMap(releaseDescriptor);
         Map<String, String> originalVersions = this.getOriginalVersionMap(releaseDescriptor, reactorProjects, simulate);
@@ -276,10 +384,10 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
                     String tempVersion = version.substring(0,
                             version.lastIndexOf(".") + 1) + nextVersion
                             + "-SNAPSHOT";
-                    propertyVersionMap.put(expression, tempVersion);//将计算后的SNAPSHOT版本属性值放到集合中
+                    context.getPropertyVersionMap().put(expression, tempVersion);//将计算后的SNAPSHOT版本属性值放到集合中
 
                     String tempTagVersion = originalVersion.substring(0,originalVersion.indexOf("-SNAPSHOT"));//去掉SNAPSHOT即为release版本值
-                    originalVersionMap.put(expression,tempTagVersion);
+                    context.getOriginalVersionMap().put(expression,tempTagVersion);
 
                     this.logInfo(result,
                             "The version could not be updated--: " + expression
@@ -290,7 +398,7 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
         }
     }
 
-    private void transformDocument(MavenProject project, Element rootElement, ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects, ScmRepository scmRepository, ReleaseResult result, boolean simulate) throws ReleaseExecutionException, ReleaseFailureException {
+    private void transformDocument(MavenProject project, Element rootElement, ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects, ScmRepository scmRepository, ReleaseResult result, boolean simulate, ReleaseContext context) throws ReleaseExecutionException, ReleaseFailureException {
         Namespace namespace = rootElement.getNamespace();
         Map<String, String> mappedVersions = this.getNextVersionMap(releaseDescriptor);
         Map<String, String> originalVersions = this.getOriginalVersionMap(releaseDescriptor, reactorProjects, simulate);
@@ -304,13 +412,17 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
         roots.add(rootElement);
         roots.addAll(this.getChildren(rootElement, "profiles", "profile"));
 
-        Iterator<String> keys = this.propertyVersionMap.keySet().iterator();
-        while(properties!=null&&keys.hasNext()){
+        Map<String, Element> propertyIndex = this.indexProperties(properties);
+        Map<String, String> interpolations = context.getInterpolationCache(model);
+        Map<String, String> propertyVersionMap = context.getPropertyVersionMap();
+        Map<String, String> originalVersionMap = context.getOriginalVersionMap();
+        Iterator<String> keys = propertyVersionMap.keySet().iterator();
+        while(propertyIndex!=null&&keys.hasNext()){
             /**
              * 在开始修改每一个pom文件之前先修改properties中包含有propertyVersionMap集合中key的对象
              */
             String key = keys.next();
-            Element property = properties.getChild(key, properties.getNamespace());
+            Element property = propertyIndex.get(key);
             if(property!=null) {
                 String mappedVersion = null;
                 if("tag".equals(this.pomSuffix)){
@@ -329,31 +441,62 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
 
         while(i$.hasNext()) {
             Element root = (Element)i$.next();
-            this.rewriteArtifactVersions(this.getChildren(root, "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
-            this.rewriteArtifactVersions(this.getChildren(root, "dependencyManagement", "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
-            this.rewriteArtifactVersions(this.getChildren(root, "build", "extensions", "extension"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
+            this.rewriteArtifactVersions(this.getChildren(root, "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
+            this.rewriteArtifactVersions(this.getChildren(root, "dependencyManagement", "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
+            this.rewriteArtifactVersions(this.getChildren(root, "build", "extensions", "extension"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
             List<Element> pluginElements = new ArrayList();
             pluginElements.addAll(this.getChildren(root, "build", "plugins", "plugin"));
             pluginElements.addAll(this.getChildren(root, "build", "pluginManagement", "plugins", "plugin"));
-            this.rewriteArtifactVersions(pluginElements, mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
+            this.rewriteArtifactVersions(pluginElements, mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
             Iterator i1$ = pluginElements.iterator();
 
             while(i1$.hasNext()) {
                 Element pluginElement = (Element)i1$.next();
-                this.rewriteArtifactVersions(this.getChildren(pluginElement, "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
+                this.rewriteArtifactVersions(this.getChildren(pluginElement, "dependencies", "dependency"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
             }
 
-            this.rewriteArtifactVersions(this.getChildren(root, "reporting", "plugins", "plugin"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, properties, result, releaseDescriptor);
+            this.rewriteArtifactVersions(this.getChildren(root, "reporting", "plugins", "plugin"), mappedVersions, resolvedSnapshotDependencies, originalVersions, model, propertyIndex, interpolations, result, releaseDescriptor);
         }
 
-        String commonBasedir;
-        try {
-            commonBasedir = ReleaseUtil.getCommonBasedir(reactorProjects);
-        } catch (IOException var22) {
-            throw new ReleaseExecutionException("Exception occurred while calculating common basedir: " + var22.getMessage(), var22);
+        //公共根目录在整个发布过程中只计算一次
+        String commonBasedir = context.getReactorLayout(reactorProjects).getCommonBasedir();
+
+        //子类会修改ReleaseDescriptor中的originalScmInfo集合，并行模式下需要同步
+        synchronized (releaseDescriptor) {
+            this.transformScm(project, rootElement, namespace, releaseDescriptor, projectId, scmRepository, result, commonBasedir);
+        }
+    }
+
+    //建立属性名到元素的索引，与getChild一样只取第一个同名元素
+    private Map<String, Element> indexProperties(Element properties) {
+        if (properties == null) {
+            return null;
+        } else {
+            Map<String, Element> index = new HashMap<String, Element>();
+            for (Object child : properties.getChildren()) {
+                Element property = (Element) child;
+                if (property.getNamespace().equals(properties.getNamespace()) && !index.containsKey(property.getName())) {
+                    index.put(property.getName(), property);
+                }
+            }
+
+            return index;
         }
+    }
 
-        this.transformScm(project, rootElement, namespace, releaseDescriptor, projectId, scmRepository, result, commonBasedir);
+    //同一个Model的插值结果缓存起来，BOM中大量依赖使用相同的表达式
+    private String interpolate(String value, Model model, Map<String, String> interpolations) throws ReleaseExecutionException {
+        if (value != null && value.contains("${")) {
+            String interpolated = interpolations.get(value);
+            if (interpolated == null) {
+                interpolated = ReleaseUtil.interpolate(value, model);
+                interpolations.put(value, interpolated);
+            }
+
+            return interpolated;
+        } else {
+            return value;
+        }
     }
 
     private List<Element> getChildren(Element root, String... names) {
@@ -506,7 +649,7 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
         return parentVersion;
     }
 
-    private void rewriteArtifactVersions(Collection<Element> elements, Map<String, String> mappedVersions, Map<String, Map<String, String>> resolvedSnapshotDependencies, Map<String, String> originalVersions, Model projectModel, Element properties, ReleaseResult result, ReleaseDescriptor releaseDescriptor) throws ReleaseExecutionException, ReleaseFailureException {
+    private void rewriteArtifactVersions(Collection<Element> elements, Map<String, String> mappedVersions, Map<String, Map<String, String>> resolvedSnapshotDependencies, Map<String, String> originalVersions, Model projectModel, Map<String, Element> propertyIndex, Map<String, String> interpolations, ReleaseResult result, ReleaseDescriptor releaseDescriptor) throws ReleaseExecutionException, ReleaseFailureException {
         if (elements != null) {
             String projectId = ArtifactUtils.versionlessKey(projectModel.getGroupId(), projectModel.getArtifactId());
             Iterator i$ = elements.iterator();
@@ -550,11 +693,11 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
                                     }
                                 }
 
-                                groupId = ReleaseUtil.interpolate(groupIdElement.getTextTrim(), projectModel);
+                                groupId = this.interpolate(groupIdElement.getTextTrim(), projectModel, interpolations);
                                 artifactIdElement = element.getChild("artifactId", element.getNamespace());
                             } while(artifactIdElement == null);
 
-                            artifactId = ReleaseUtil.interpolate(artifactIdElement.getTextTrim(), projectModel);
+                            artifactId = this.interpolate(artifactIdElement.getTextTrim(), projectModel, interpolations);
                             key = ArtifactUtils.versionlessKey(groupId, artifactId);
                             resolvedSnapshotVersion = this.getResolvedSnapshotVersion(key, resolvedSnapshotDependencies);
                             mappedVersion = (String)mappedVersions.get(key);
@@ -568,11 +711,11 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
                             if (rawVersion.equals(originalVersion)) {
                                 this.logInfo(result, "  Updating " + artifactId + " to " + mappedVersion);
                                 this.rewriteValue(versionElement, mappedVersion);
-                            } else if (rawVersion.matches("\\$\\{.+\\}")) {
+                            } else if (EXPRESSION.matcher(rawVersion).matches()) {
                                 String expression = rawVersion.substring(2, rawVersion.length() - 1);
                                 if (!expression.startsWith("project.") && !expression.startsWith("pom.") && !"version".equals(expression)) {
-                                    if (properties != null) {
-                                        Element property = properties.getChild(expression, properties.getNamespace());
+                                    if (propertyIndex != null) {
+                                        Element property = propertyIndex.get(expression);
                                         if (property == null) {
                                             //不直接抛出异常，只是输出信息
                                             //throw new ReleaseFailureException("The version could not be updated: " + rawVersion);
@@ -591,8 +734,8 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
                                                                 + rawVersion
                                                                 + " because it is already updated");
                                             } else if (!mappedVersion.equals(rawVersion)) {
-                                                if (!mappedVersion.matches("\\$\\{project.+\\}")
-                                                        && !mappedVersion.matches("\\$\\{pom.+\\}")
+                                                if (!PROJECT_EXPRESSION.matcher(mappedVersion).matches()
+                                                        && !POM_EXPRESSION.matcher(mappedVersion).matches()
                                                         && !"${version}".equals(mappedVersion)) {
                                                     throw new ReleaseFailureException(
                                                             "The artifact (" + key + ") requires a "
@@ -629,55 +772,82 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
         }
     }
 
-    private void writePom(File pomFile, Document document, ReleaseDescriptor releaseDescriptor, String modelVersion, String intro, String outtro, ScmRepository repository, ScmProvider provider) throws ReleaseExecutionException, ReleaseScmCommandException {
-        try {
-            if (this.isUpdateScm() && (releaseDescriptor.isScmUseEditMode() || provider.requiresEditMode())) {
-                EditScmResult result = provider.edit(repository, new ScmFileSet(new File(releaseDescriptor.getWorkingDirectory()), pomFile));
-                if (!result.isSuccess()) {
-                    throw new ReleaseScmCommandException("Unable to enable editing on the POM", result);
+    //按批调用edit，每批最多scmEditBatchSize个文件，任何一批失败时立即停止，不写任何文件
+    private void editPoms(List<File> pomFiles, ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, ScmRepository repository, ScmProvider provider) throws ReleaseExecutionException, ReleaseScmCommandException {
+        if (!pomFiles.isEmpty() && this.isUpdateScm() && (releaseDescriptor.isScmUseEditMode() || provider.requiresEditMode())) {
+            File workingDirectory = new File(releaseDescriptor.getWorkingDirectory());
+            int batchSize = DefaultReleaseEnvironment.getScmEditBatchSize(releaseEnvironment);
+
+            try {
+                for (int from = 0; from < pomFiles.size(); from += batchSize) {
+                    List<File> batch = pomFiles.subList(from, Math.min(pomFiles.size(), from + batchSize));
+                    EditScmResult result = provider.edit(repository, new ScmFileSet(workingDirectory, new ArrayList<File>(batch)));
+                    ReleaseContext.get(releaseDescriptor).count(ReleaseContext.SCM_CALLS);
+                    if (!result.isSuccess()) {
+                        throw new ReleaseScmCommandException("Unable to enable editing on the POMs", result);
+                    }
                 }
+            } catch (ScmException var10) {
+                throw new ReleaseExecutionException("An error occurred enabling edit mode: " + var10.getMessage(), var10);
             }
-        } catch (ScmException var10) {
-            throw new ReleaseExecutionException("An error occurred enabling edit mode: " + var10.getMessage(), var10);
         }
-
-        this.writePom(pomFile, document, releaseDescriptor, modelVersion, intro, outtro);
     }
 
-    private void writePom(File pomFile, Document document, ReleaseDescriptor releaseDescriptor, String modelVersion, String intro, String outtro) throws ReleaseExecutionException {
+    //生成写回的内容，结构未变化时直接在原始内容上替换修改过的值，保留原有格式
+    private byte[] renderPom(Document document, ReleaseDescriptor releaseDescriptor, String modelVersion, ParsedPom pom) throws ReleaseExecutionException {
         Element rootElement = document.getRootElement();
-        if (releaseDescriptor.isAddSchema()) {
-            Namespace pomNamespace = Namespace.getNamespace("", "http://maven.apache.org/POM/" + modelVersion);
-            rootElement.setNamespace(pomNamespace);
-            Namespace xsiNamespace = Namespace.getNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
-            rootElement.addNamespaceDeclaration(xsiNamespace);
-            if (rootElement.getAttribute("schemaLocation", xsiNamespace) == null) {
-                rootElement.setAttribute("schemaLocation", "http://maven.apache.org/POM/" + modelVersion + " http://maven.apache.org/maven-v" + modelVersion.replace('.', '_') + ".xsd", xsiNamespace);
+        String patched = null;
+        if (!releaseDescriptor.isAddSchema() || this.hasSchema(rootElement, modelVersion)) {
+            patched = PomTextPatcher.patch(pom, document);
+        }
+
+        String intro = null;
+        String outtro = null;
+        if (patched == null) {
+            if (!pom.hasPrologue()) {
+                this.splitPrologue(pom);
             }
 
-            ElementFilter elementFilter = new ElementFilter(Namespace.getNamespace(""));
-            Iterator i = rootElement.getDescendants(elementFilter);
+            intro = pom.getIntro();
+            outtro = pom.getOuttro();
+            if (releaseDescriptor.isAddSchema()) {
+                Namespace pomNamespace = Namespace.getNamespace("", "http://maven.apache.org/POM/" + modelVersion);
+                rootElement.setNamespace(pomNamespace);
+                Namespace xsiNamespace = Namespace.getNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+                rootElement.addNamespaceDeclaration(xsiNamespace);
+                if (rootElement.getAttribute("schemaLocation", xsiNamespace) == null) {
+                    rootElement.setAttribute("schemaLocation", "http://maven.apache.org/POM/" + modelVersion + " http://maven.apache.org/maven-v" + modelVersion.replace('.', '_') + ".xsd", xsiNamespace);
+                }
+
+                ElementFilter elementFilter = new ElementFilter(Namespace.getNamespace(""));
+                Iterator i = rootElement.getDescendants(elementFilter);
 
-            while(i.hasNext()) {
-                Element e = (Element)i.next();
-                e.setNamespace(pomNamespace);
+                while(i.hasNext()) {
+                    Element e = (Element)i.next();
+                    e.setNamespace(pomNamespace);
+                }
             }
         }
 
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(pom.getContent().length() + 256);
         XmlStreamWriter writer = null;
 
         try {
-            writer = WriterFactory.newXmlWriter(pomFile);
-            if (intro != null) {
-                writer.write(intro);
-            }
+            writer = WriterFactory.newXmlWriter(bytes);
+            if (patched != null) {
+                writer.write(patched);
+            } else {
+                if (intro != null) {
+                    writer.write(intro);
+                }
 
-            Format format = Format.getRawFormat();
-            format.setLineSeparator(this.ls);
-            XMLOutputter out = new XMLOutputter(format);
-            out.output(document.getRootElement(), writer);
-            if (outtro != null) {
-                writer.write(outtro);
+                Format format = Format.getRawFormat();
+                format.setLineSeparator(this.ls);
+                XMLOutputter out = new XMLOutputter(format);
+                out.output(document.getRootElement(), writer);
+                if (outtro != null) {
+                    writer.write(outtro);
+                }
             }
         } catch (IOException var16) {
             throw new ReleaseExecutionException("Error writing POM: " + var16.getMessage(), var16);
@@ -685,6 +855,52 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
             IOUtil.close(writer);
         }
 
+        return bytes.toByteArray();
+    }
+
+    //与磁盘上的文件逐字节比较，内容相同时不需要写回
+    private boolean isUnchanged(File pomFile, byte[] content) throws ReleaseExecutionException {
+        if (pomFile.isFile() && pomFile.length() == (long)content.length) {
+            InputStream in = null;
+
+            boolean var4;
+            try {
+                in = new FileInputStream(pomFile);
+                var4 = Arrays.equals(IOUtil.toByteArray(in), content);
+            } catch (IOException var8) {
+                throw new ReleaseExecutionException("Error reading POM: " + var8.getMessage(), var8);
+            } finally {
+                IOUtil.close(in);
+            }
+
+            return var4;
+        } else {
+            return false;
+        }
+    }
+
+    private void writePom(File pomFile, byte[] content) throws ReleaseExecutionException {
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(pomFile);
+            out.write(content);
+        } catch (IOException var8) {
+            throw new ReleaseExecutionException("Error writing POM: " + var8.getMessage(), var8);
+        } finally {
+            IOUtil.close(out);
+        }
+
+    }
+
+    //判断添加schema是否不会改变文档
+    private boolean hasSchema(Element rootElement, String modelVersion) {
+        Namespace xsiNamespace = Namespace.getNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+        if (!rootElement.getNamespace().equals(Namespace.getNamespace("", "http://maven.apache.org/POM/" + modelVersion)) || !xsiNamespace.equals(rootElement.getNamespace("xsi")) || rootElement.getAttribute("schemaLocation", xsiNamespace) == null) {
+            return false;
+        } else {
+            return !rootElement.getDescendants(new ElementFilter(Namespace.getNamespace(""))).hasNext();
+        }
     }
 
     public ReleaseResult simulate(ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects) throws ReleaseExecutionException, ReleaseFailureException {
@@ -793,4 +1009,14 @@ public abstract class AbstractRewritePomsPhase extends AbstractReleasePhase {
 
         return i != 0 && urlPath.indexOf(trunkPath.substring(i)) >= 0 ? StringUtils.replace(urlPath, trunkPath.substring(i), tagPath.substring(i)) : tagPath;
     }
-}
\ No newline at end of file
+
+    private static final class TransformThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "release-transform-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
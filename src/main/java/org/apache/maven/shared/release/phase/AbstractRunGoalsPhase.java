@@ -20,17 +20,23 @@ package org.apache.maven.shared.release.phase;
  */
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
+import org.apache.maven.shared.release.ReleaseContext;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseResult;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
 import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.exec.BuildTimingReport;
 import org.apache.maven.shared.release.exec.MavenExecutor;
 import org.apache.maven.shared.release.exec.MavenExecutorException;
+import org.apache.maven.shared.release.util.ReactorLayers;
 import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
 
 /**
  * Run the integration tests for the project to verify that it builds before committing.
@@ -66,7 +72,83 @@ public abstract class AbstractRunGoalsPhase
 
         try
         {
-            String goals = getGoals( releaseDescriptor );
+            runGoals( releaseDescriptor, releaseEnvironment, workingDirectory, additionalArguments, result );
+        }
+        finally
+        {
+            writeTimingReport( releaseDescriptor, result );
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+
+    /**
+     * Runs the goals of the phase, without writing their timing report.
+     *
+     * @param releaseDescriptor The release descriptor.
+     * @param releaseEnvironment The release environment.
+     * @param workingDirectory The directory to run the goals in.
+     * @param additionalArguments The arguments of the goal run.
+     * @param result The result to log to.
+     * @throws ReleaseExecutionException If the goals could not be run or failed.
+     */
+    protected void runGoals( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+            File workingDirectory, String additionalArguments, ReleaseResult result )
+            throws ReleaseExecutionException
+    {
+        runGoals( releaseDescriptor, releaseEnvironment, workingDirectory, additionalArguments, 1, result );
+    }
+
+    /**
+     * Runs the goals of the phase in one of several Maven processes running at the same time, without writing their
+     * timing report. Adaptive threads share the available cores between the processes.
+     *
+     * @param releaseDescriptor The release descriptor.
+     * @param releaseEnvironment The release environment.
+     * @param workingDirectory The directory to run the goals in.
+     * @param additionalArguments The arguments of the goal run.
+     * @param processes The number of Maven processes running at the same time.
+     * @param result The result to log to.
+     * @throws ReleaseExecutionException If the goals could not be run or failed.
+     */
+    protected void runGoals( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+            File workingDirectory, String additionalArguments, int processes, ReleaseResult result )
+            throws ReleaseExecutionException
+    {
+        runGoals( releaseDescriptor, releaseEnvironment, workingDirectory, getGoals( releaseDescriptor ),
+                  additionalArguments, releaseDescriptor.getPomFileName(), processes, result );
+    }
+
+    /**
+     * Runs some goals in place of the goals of the phase, without writing their timing report.
+     *
+     * @param releaseDescriptor The release descriptor.
+     * @param releaseEnvironment The release environment.
+     * @param workingDirectory The directory to run the goals in.
+     * @param goals The goals to run.
+     * @param additionalArguments The arguments of the goal run.
+     * @param pomFileName The POM to run the goals on, relative to the working directory.
+     * @param result The result to log to.
+     * @throws ReleaseExecutionException If the goals could not be run or failed.
+     */
+    protected void runGoals( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+            File workingDirectory, String goals, String additionalArguments, String pomFileName,
+            ReleaseResult result )
+            throws ReleaseExecutionException
+    {
+        runGoals( releaseDescriptor, releaseEnvironment, workingDirectory, goals, additionalArguments, pomFileName, 1,
+                  result );
+    }
+
+    private void runGoals( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+            File workingDirectory, String goals, String additionalArguments, String pomFileName, int processes,
+            ReleaseResult result )
+            throws ReleaseExecutionException
+    {
+        try
+        {
             if ( !StringUtils.isEmpty( goals ) )
             {
                 logInfo( result, "Executing goals '" + goals + "'..." );
@@ -86,18 +168,17 @@ public abstract class AbstractRunGoalsPhase
                 logInfo(result,"AbstractRun:"+mavenExecutor.getClass().getName());
                 //RunPerformGoalsPhase.writeLog("AbstractRun:"+mavenExecutor.getClass().getName());
                 org.apache.maven.shared.release.exec.InvokerMavenExecutor ime = null;
+                String arguments =
+                        addAdaptiveThreads( releaseDescriptor, releaseEnvironment, additionalArguments, processes,
+                                            result );
                 mavenExecutor.executeGoals( wd, goals, releaseEnvironment, releaseDescriptor.isInteractive(),
-                        additionalArguments, releaseDescriptor.getPomFileName(), result );
+                        arguments, pomFileName, result );
             }
         }
         catch ( MavenExecutorException e )
         {
             throw new ReleaseExecutionException( e.getMessage(), e );
         }
-
-        result.setResultCode( ReleaseResult.SUCCESS );
-
-        return result;
     }
 
     /**
@@ -120,6 +201,135 @@ public abstract class AbstractRunGoalsPhase
 
     protected abstract String getGoals( ReleaseDescriptor releaseDescriptor );
 
+    /**
+     * Adds a thread count to the arguments of the goal run when adaptive threads are enabled: as many threads as the
+     * widest layer of the reactor dependency graph can use, but no more than the available cores shared out between the
+     * Maven processes running at the same time. The count and the reason for it are recorded in the result.
+     *
+     * @param releaseDescriptor The release descriptor, whose release context knows the reactor.
+     * @param releaseEnvironment The release environment, telling whether adaptive threads are enabled.
+     * @param additionalArguments The arguments of the goal run.
+     * @param processes The number of Maven processes running at the same time.
+     * @param result The result to record the choice in.
+     * @return The arguments of the goal run, with the thread count if one was chosen.
+     */
+    protected String addAdaptiveThreads( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+            String additionalArguments, int processes, ReleaseResult result )
+    {
+        if ( !DefaultReleaseEnvironment.isAdaptiveThreads( releaseEnvironment ) )
+        {
+            return additionalArguments;
+        }
+        if ( hasThreadsArgument( additionalArguments ) )
+        {
+            logInfo( result, "Building with the thread count given in the arguments." );
+            return additionalArguments;
+        }
+
+        ReactorLayers layers = ReleaseContext.get( releaseDescriptor ).getReactorLayers();
+        if ( layers == null )
+        {
+            logInfo( result, "Building with a single thread: the reactor of the release is not known." );
+            return additionalArguments;
+        }
+
+        int cores = Math.max( 1, Runtime.getRuntime().availableProcessors() / Math.max( 1, processes ) );
+        int threads = Math.max( 1, Math.min( cores, layers.getMaxWidth() ) );
+        String reason = layers.getModuleCount() + " modules in " + layers.getLayerCount() + " dependency layers, at most "
+            + layers.getMaxWidth() + " in a layer, available cores: " + cores
+            + ( processes > 1 ? " of " + Runtime.getRuntime().availableProcessors() + " shared by " + processes
+                + " Maven processes" : "" );
+        if ( threads == 1 )
+        {
+            logInfo( result, "Building with a single thread: " + reason + "." );
+            return additionalArguments;
+        }
+
+        logInfo( result, "Building with " + threads + " threads: " + reason + "." );
+        return StringUtils.isEmpty( additionalArguments ) ? "-T " + threads : additionalArguments + " -T " + threads;
+    }
+
+    private static boolean hasThreadsArgument( String additionalArguments )
+    {
+        if ( StringUtils.isEmpty( additionalArguments ) )
+        {
+            return false;
+        }
+        try
+        {
+            for ( String argument : CommandLineUtils.translateCommandline( additionalArguments ) )
+            {
+                if ( argument.startsWith( "-T" ) || argument.equals( "--threads" )
+                    || argument.startsWith( "--threads=" ) )
+                {
+                    return true;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            // left to the executor to report
+        }
+        return false;
+    }
+
+    /**
+     * Writes the module and mojo timings read from the build output to the <code>target</code> directory next to
+     * <code>release.properties</code>, as <code>release-timings-<i>goals</i>.json</code> where <i>goals</i> is
+     * <code>preparation</code>, <code>completion</code> or <code>perform</code>. Like the other build output, the
+     * report is left out of the source tree and removed by <code>mvn clean</code>.
+     *
+     * @param releaseDescriptor The release descriptor, holding the directory of <code>release.properties</code>.
+     * @param result The result holding the timings.
+     */
+    protected void writeTimingReport( ReleaseDescriptor releaseDescriptor, ReleaseResult result )
+    {
+        BuildTimingReport report = BuildTimingReport.get( result );
+        if ( report == null || report.isEmpty() || releaseDescriptor.getWorkingDirectory() == null )
+        {
+            return;
+        }
+
+        StringBuilder slowest = new StringBuilder();
+        for ( BuildTimingReport.Module module : report.getSlowestModules( 3 ) )
+        {
+            slowest.append( slowest.length() > 0 ? ", " : "" ).append( module.getName() ).append( " (" )
+                   .append( module.getMillis() ).append( " ms)" );
+        }
+        logInfo( result, "Slowest modules: " + slowest );
+
+        File file = new File( new File( releaseDescriptor.getWorkingDirectory(), "target" ), "release-timings-"
+            + getTimingReportName() + ".json" );
+        try
+        {
+            file.getParentFile().mkdirs();
+            report.writeJson( file );
+            logDebug( result, "Build timings written to " + file );
+        }
+        catch ( IOException e )
+        {
+            logWarn( result, "Unable to write the build timings to " + file + ": " + e.getMessage() );
+        }
+    }
+
+    private String getTimingReportName()
+    {
+        String name = getClass().getSimpleName();
+        if ( name.startsWith( "Run" ) && name.endsWith( "GoalsPhase" ) )
+        {
+            name = name.substring( "Run".length(), name.length() - "GoalsPhase".length() );
+        }
+        if ( "Prepare".equals( name ) )
+        {
+            name = "Preparation";
+        }
+        else if ( "Complete".equals( name ) )
+        {
+            name = "Completion";
+        }
+        return name.toLowerCase( Locale.ENGLISH );
+    }
+
     /**
      * Determines the path of the working directory. By default, this is the
      * checkout directory. For some SCMs, the project root directory is not the
@@ -0,0 +1,412 @@
+package org.apache.maven.shared.release.phase;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.scm.ScmException;
+import org.apache.maven.scm.ScmFileSet;
+import org.apache.maven.scm.ScmTag;
+import org.apache.maven.scm.command.checkout.CheckOutScmResult;
+import org.apache.maven.scm.manager.NoSuchScmProviderException;
+import org.apache.maven.scm.provider.ScmProvider;
+import org.apache.maven.scm.repository.ScmRepository;
+import org.apache.maven.scm.repository.ScmRepositoryException;
+import org.apache.maven.shared.release.ReleaseContext;
+import org.apache.maven.shared.release.ReleaseExecutionException;
+import org.apache.maven.shared.release.ReleaseFailureException;
+import org.apache.maven.shared.release.ReleaseResult;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.scm.ReleaseScmCommandException;
+import org.apache.maven.shared.release.scm.ReleaseScmRepositoryException;
+import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
+import org.apache.maven.shared.release.util.LocalTagCheckout;
+import org.apache.maven.shared.release.util.ReleaseUtil;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Checks the tag of the release out to perform it, through the SCM provider or, with the <code>clone</code> and
+ * <code>worktree</code> checkout strategies, from the local git repository of the project.
+ *
+ * @author <a href="mailto:evenisse@apache.org">Emmanuel Venisse</a>
+ * @version $Id$
+ * @plexus.component role="org.apache.maven.shared.release.phase.ReleasePhase" role-hint="checkout-project-from-scm"
+ */
+public class CheckoutProjectFromScm
+    extends AbstractReleasePhase
+{
+    /**
+     * Tool that gets a configured SCM repository from release configuration.
+     *
+     * @plexus.requirement
+     */
+    private ScmRepositoryConfigurator scmRepositoryConfigurator;
+
+    /** {@inheritDoc}  */
+    public ReleaseResult execute( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                  List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        LocalTagCheckout.Strategy strategy = getStrategy( releaseEnvironment );
+        ReleaseResult localResult = null;
+        if ( strategy != LocalTagCheckout.Strategy.SCM )
+        {
+            localResult = new ReleaseResult();
+            if ( performLocalCheckout( releaseDescriptor, reactorProjects, strategy, localResult ) )
+            {
+                return localResult;
+            }
+        }
+
+        ReleaseResult releaseResult = null;
+
+        if ( releaseDescriptor.isLocalCheckout() )
+        {
+            // in the release phase we have to change the checkout URL
+            // to do a local checkout instead of going over the network.
+
+            // the first step is a bit tricky, we need to know which provider! like e.g. "scm:jgit:http://"
+            // the offset of 4 is because 'scm:' has 4 characters...
+            String providerPart = releaseDescriptor.getScmSourceUrl()
+                .substring( 0, releaseDescriptor.getScmSourceUrl().indexOf( ':', 4 ) );
+
+            String scmPath = releaseDescriptor.getWorkingDirectory();
+
+            // now we iteratively try to checkout.
+            // if the local checkout fails, then we might be in a subdirectory
+            // and need to walk a few directories up.
+            do
+            {
+                try
+                {
+                    if ( scmPath.startsWith( "/" ) )
+                    {
+                        // cut off the first '/'
+                        scmPath = scmPath.substring( 1 );
+                    }
+
+                    String scmUrl = providerPart + ":file:///" + scmPath;
+                    releaseDescriptor.setScmSourceUrl( scmUrl );
+                    getLogger().info( "Performing a LOCAL checkout from " + releaseDescriptor.getScmSourceUrl() );
+
+                    releaseResult = performCheckout( releaseDescriptor, releaseEnvironment, reactorProjects );
+                }
+                catch ( ScmException scmEx )
+                {
+                    // the checkout from _this_ directory failed
+                    releaseResult = null;
+                }
+
+                if ( releaseResult == null || releaseResult.getResultCode() == ReleaseResult.ERROR )
+                {
+                    // this means that there is no SCM repo in this directory
+                    // thus we try to step one directory up
+                    releaseResult = null;
+
+                    // remove last sub-directory path
+                    int lastSlashPos = scmPath.lastIndexOf( File.separator );
+                    if ( lastSlashPos > 0 )
+                    {
+                        scmPath = scmPath.substring( 0, lastSlashPos );
+                    }
+                    else
+                    {
+                        throw new ReleaseExecutionException( "could not perform a local checkout" );
+                    }
+                }
+            }
+            while ( releaseResult == null );
+        }
+        else
+        {
+            // when there is no localCheckout, then we just do a standard SCM checkout.
+            try
+            {
+                releaseResult = performCheckout( releaseDescriptor, releaseEnvironment, reactorProjects );
+            }
+            catch ( ScmException e )
+            {
+                releaseResult = new ReleaseResult();
+                releaseResult.setResultCode( ReleaseResult.ERROR );
+                logError( releaseResult, e.getMessage() );
+
+                throw new ReleaseExecutionException( "An error is occurred in the checkout process: "
+                    + e.getMessage(), e );
+            }
+        }
+
+        if ( localResult != null )
+        {
+            // keep why the tag could not be materialized ahead of the SCM checkout
+            localResult.appendOutput( releaseResult );
+            localResult.setResultCode( releaseResult.getResultCode() );
+            return localResult;
+        }
+
+        return releaseResult;
+    }
+
+    private static LocalTagCheckout.Strategy getStrategy( ReleaseEnvironment releaseEnvironment )
+        throws ReleaseExecutionException
+    {
+        String strategy = DefaultReleaseEnvironment.getCheckoutStrategy( releaseEnvironment );
+        try
+        {
+            return LocalTagCheckout.Strategy.parse( strategy );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new ReleaseExecutionException( "Unknown checkout strategy '" + strategy
+                + "', expected scm, clone or worktree.", e );
+        }
+    }
+
+    /**
+     * Materializes the tag from the local git repository of the project.
+     *
+     * @param result The result to log to.
+     * @return <code>true</code> if the tag was materialized, <code>false</code> if it has to be checked out from the
+     *         SCM.
+     */
+    private boolean performLocalCheckout( ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects,
+                                          LocalTagCheckout.Strategy strategy, ReleaseResult result )
+        throws ReleaseExecutionException
+    {
+        MavenProject rootProject = ReleaseUtil.getRootProject( reactorProjects );
+        String tag = releaseDescriptor.getScmReleaseLabel();
+        String scmUrl = releaseDescriptor.getScmSourceUrl();
+        File gitRoot = LocalTagCheckout.findGitRoot( rootProject.getBasedir() );
+
+        String reason = null;
+        if ( scmUrl != null && !scmUrl.startsWith( "scm:git:" ) && !scmUrl.startsWith( "scm:jgit:" ) )
+        {
+            reason = "the project is not in git";
+        }
+        else if ( gitRoot == null )
+        {
+            reason = "there is no local git repository above " + rootProject.getBasedir();
+        }
+        else if ( StringUtils.isEmpty( tag ) || !new LocalTagCheckout( gitRoot ).hasTag( tag ) )
+        {
+            reason = "the local git repository has no tag " + tag;
+        }
+        if ( reason != null )
+        {
+            logInfo( result, "Checking the tag out from the SCM: " + reason + "." );
+            return false;
+        }
+
+        File checkoutDirectory = prepareCheckoutDirectory( releaseDescriptor, rootProject, result );
+
+        LocalTagCheckout checkout = new LocalTagCheckout( gitRoot );
+        try
+        {
+            checkout.materialize( strategy, tag, checkoutDirectory );
+        }
+        catch ( IOException e )
+        {
+            logWarn( result, "Unable to materialize the tag " + tag + " from " + gitRoot + ", checking it out from the "
+                + "SCM: " + e.getMessage() );
+            return false;
+        }
+
+        String scmRelativePathProjectDirectory;
+        try
+        {
+            String root = gitRoot.getCanonicalPath();
+            String basedir = rootProject.getBasedir().getCanonicalPath();
+            scmRelativePathProjectDirectory =
+                basedir.length() > root.length() ? basedir.substring( root.length() + 1 ) : "";
+        }
+        catch ( IOException e )
+        {
+            throw new ReleaseExecutionException( e.getMessage(), e );
+        }
+        releaseDescriptor.setScmRelativePathProjectDirectory( scmRelativePathProjectDirectory );
+
+        logInfo( result, "Materialized the tag " + tag + " from " + gitRoot + " with a "
+            + ( strategy == LocalTagCheckout.Strategy.CLONE ? "hard-linked clone" : "worktree" ) + ": "
+            + checkout.getFileCount() + " files, " + checkout.getByteCount() + " bytes in " + checkout.getMillis()
+            + " ms." );
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return true;
+    }
+
+    private ReleaseResult performCheckout( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                           List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException, ReleaseFailureException, ScmException
+    {
+        ReleaseResult result = new ReleaseResult();
+
+        logInfo( result, "Checking out the project to perform the release ..." );
+
+        ScmRepository repository;
+        ScmProvider provider;
+
+        try
+        {
+            repository = scmRepositoryConfigurator.getConfiguredRepository( releaseDescriptor,
+                                                                            releaseEnvironment.getSettings() );
+
+            provider = scmRepositoryConfigurator.getRepositoryProvider( repository );
+        }
+        catch ( ScmRepositoryException e )
+        {
+            result.setResultCode( ReleaseResult.ERROR );
+            logError( result, e.getMessage() );
+
+            throw new ReleaseScmRepositoryException( e.getMessage(), e.getValidationMessages() );
+        }
+        catch ( NoSuchScmProviderException e )
+        {
+            result.setResultCode( ReleaseResult.ERROR );
+            logError( result, e.getMessage() );
+
+            throw new ReleaseExecutionException( "Unable to configure SCM repository: " + e.getMessage(), e );
+        }
+
+        MavenProject rootProject = ReleaseUtil.getRootProject( reactorProjects );
+        File checkoutDirectory = prepareCheckoutDirectory( releaseDescriptor, rootProject, result );
+
+        CheckOutScmResult scmResult;
+
+        scmResult = provider.checkOut( repository, new ScmFileSet( checkoutDirectory ),
+                                       new ScmTag( releaseDescriptor.getScmReleaseLabel() ) );
+        ReleaseContext.get( releaseDescriptor ).count( ReleaseContext.SCM_CALLS );
+
+        if ( releaseDescriptor.isLocalCheckout() && !scmResult.isSuccess() )
+        {
+            // this is not beautiful but should fix in the 2.0 release.
+            return null;
+        }
+
+        String scmRelativePathProjectDirectory = scmResult.getRelativePathProjectDirectory();
+        if ( StringUtils.isEmpty( scmRelativePathProjectDirectory ) )
+        {
+            String basedir;
+            try
+            {
+                basedir = ReleaseUtil.getCommonBasedir( reactorProjects );
+            }
+            catch ( IOException e )
+            {
+                throw new ReleaseExecutionException( "Exception occurred while calculating common basedir: "
+                    + e.getMessage(), e );
+            }
+
+            String rootProjectBasedir;
+            try
+            {
+                rootProjectBasedir = rootProject.getBasedir().getAbsolutePath();
+                if ( ReleaseUtil.isSymlink( rootProject.getBasedir() ) )
+                {
+                    rootProjectBasedir = rootProject.getBasedir().getCanonicalPath();
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new ReleaseExecutionException( e.getMessage(), e );
+            }
+            if ( rootProjectBasedir.length() > basedir.length() )
+            {
+                scmRelativePathProjectDirectory = rootProjectBasedir.substring( basedir.length() + 1 );
+            }
+        }
+        releaseDescriptor.setScmRelativePathProjectDirectory( scmRelativePathProjectDirectory );
+
+        if ( !scmResult.isSuccess() )
+        {
+            result.setResultCode( ReleaseResult.ERROR );
+            logError( result, scmResult.getProviderMessage() );
+            throw new ReleaseScmCommandException( "Unable to checkout from SCM", scmResult );
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+
+    /**
+     * Empties the checkout directory, <code>target/checkout</code> of the root project unless configured.
+     */
+    private File prepareCheckoutDirectory( ReleaseDescriptor releaseDescriptor, MavenProject rootProject,
+                                           ReleaseResult result )
+        throws ReleaseExecutionException
+    {
+        // TODO: sanity check that it is not . or .. or lower
+        File checkoutDirectory;
+        if ( StringUtils.isEmpty( releaseDescriptor.getCheckoutDirectory() ) )
+        {
+            checkoutDirectory = new File( rootProject.getFile().getParentFile(), "target/checkout" );
+            releaseDescriptor.setCheckoutDirectory( checkoutDirectory.getAbsolutePath() );
+        }
+        else
+        {
+            checkoutDirectory = new File( releaseDescriptor.getCheckoutDirectory() );
+        }
+
+        if ( checkoutDirectory.exists() )
+        {
+            try
+            {
+                FileUtils.deleteDirectory( checkoutDirectory );
+            }
+            catch ( IOException e )
+            {
+                result.setResultCode( ReleaseResult.ERROR );
+                logError( result, e.getMessage() );
+
+                throw new ReleaseExecutionException( "Unable to remove old checkout directory: " + e.getMessage(), e );
+            }
+        }
+
+        checkoutDirectory.mkdirs();
+
+        return checkoutDirectory;
+    }
+
+    public ReleaseResult simulate( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                   List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException, ReleaseFailureException
+    {
+        ReleaseResult result = new ReleaseResult();
+
+        if ( releaseDescriptor.isLocalCheckout() )
+        {
+            logInfo( result, "This would be a LOCAL check out to perform the release ..." );
+        }
+        else
+        {
+            logInfo( result, "The project would be checked out to perform the release ..." );
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+}
@@ -20,14 +20,33 @@ package org.apache.maven.shared.release.phase;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.model.DeploymentRepository;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseResult;
 import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.exec.BuildTimingReport;
+import org.apache.maven.shared.release.exec.OutputLabel;
 import org.apache.maven.shared.release.util.PomFinder;
+import org.apache.maven.shared.release.util.ReactorShards;
+import org.apache.maven.shared.release.util.ReleaseArtifactManifest;
+import org.apache.maven.shared.release.util.ReleaseUtil;
 import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
 
 /**
  * Run the integration tests for the project to verify that it builds before committing.
@@ -38,6 +57,23 @@ import org.codehaus.plexus.util.StringUtils;
 public class RunPerformGoalsPhase
         extends AbstractRunGoalsPhase
 {
+    /**
+     * Lets the Maven processes of the shards lock the shared local repository against each other, with Maven 3.9 and
+     * later.
+     */
+    private static final String SHARD_ARGUMENTS =
+        " -Daether.syncContext.named.factory=file-lock -Daether.syncContext.named.nameMapper=file-gav";
+
+    /**
+     * The POM deploying the artifacts recorded by the preparation goals, written into the checkout of the tag.
+     */
+    private static final String DEPLOY_POM = "release-deploy-pom.xml";
+
+    private static final String DEFAULT_DEPLOY_PLUGIN_VERSION = "2.8.2";
+
+    private static final String[] ALT_REPOSITORY_PROPERTIES =
+        { "altReleaseDeploymentRepository", "altDeploymentRepository" };
+
     public ReleaseResult execute( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
             List<MavenProject> reactorProjects )
             throws ReleaseExecutionException
@@ -132,9 +168,314 @@ public class RunPerformGoalsPhase
         }
         getLogger().info("-----perform"+simulate+","+workDir+","+additionalArguments);
         //writeLog("-----perform"+simulate+","+workDir+","+additionalArguments);
+        if ( DefaultReleaseEnvironment.isReuseArtifacts( releaseEnvironment ) )
+        {
+            ReleaseResult result =
+                deployPreparedArtifacts( releaseDescriptor, releaseEnvironment, workDirectory, reactorProjects );
+            if ( result != null )
+            {
+                return result;
+            }
+        }
+        int shardCount = DefaultReleaseEnvironment.getPerformShards( releaseEnvironment );
+        if ( shardCount > 1 && reactorProjects != null && reactorProjects.size() > 1 )
+        {
+            ReactorShards shards = ReactorShards.plan( reactorProjects, shardCount );
+            if ( shards.getShards().size() > 1 )
+            {
+                return executeShards( releaseDescriptor, releaseEnvironment, workDirectory, additionalArguments,
+                                      shards );
+            }
+            getLogger().info( "The reactor has no independent groups of modules, performing it in one process." );
+        }
         return execute( releaseDescriptor, releaseEnvironment, workDirectory, additionalArguments );
     }
 
+    /**
+     * Deploys the artifacts recorded by the preparation goals with the <code>deploy-file</code> goal, when the perform
+     * goals are <code>deploy</code>, the checkout of the tag has the sources they were built from and they are
+     * unchanged.
+     *
+     * @return The result of the deployment, or <code>null</code> if the tag has to be built.
+     */
+    private ReleaseResult deployPreparedArtifacts( ReleaseDescriptor releaseDescriptor,
+                                                   ReleaseEnvironment releaseEnvironment, File workDirectory,
+                                                   List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException
+    {
+        File basedir = new File( releaseDescriptor.getWorkingDirectory() );
+        File manifestFile = new File( basedir, ReleaseArtifactManifest.FILE_NAME );
+        File checkoutDirectory =
+            determineWorkingDirectory( workDirectory, releaseDescriptor.getScmRelativePathProjectDirectory() );
+        MavenProject rootProject =
+            reactorProjects != null && !reactorProjects.isEmpty() ? ReleaseUtil.getRootProject( reactorProjects )
+                            : null;
+
+        ReleaseArtifactManifest manifest = null;
+        String[] repository = null;
+        String reason;
+        if ( !manifestFile.isFile() )
+        {
+            reason = "prepare recorded no artifacts";
+        }
+        else if ( !"deploy".equals( StringUtils.trim( releaseDescriptor.getPerformGoals() ) ) )
+        {
+            reason = "the perform goals are not 'deploy'";
+        }
+        else if ( ( repository =
+            getDeploymentRepository( releaseDescriptor.getAdditionalArguments(), rootProject ) ) == null )
+        {
+            reason = "the release repository is not known";
+        }
+        else
+        {
+            try
+            {
+                manifest = ReleaseArtifactManifest.read( manifestFile );
+                reason = manifest.verify( basedir, checkoutDirectory );
+            }
+            catch ( IOException e )
+            {
+                reason = "the recorded artifacts could not be checked: " + e.getMessage();
+            }
+        }
+        if ( reason != null )
+        {
+            getLogger().info( "Building the tag to perform the release: " + reason + "." );
+            return null;
+        }
+
+        ReleaseResult result = new ReleaseResult();
+        try
+        {
+            File deployPom = new File( checkoutDirectory, DEPLOY_POM );
+            try
+            {
+                manifest.writeDeployPom( deployPom, basedir, checkoutDirectory, repository[0], repository[1],
+                                         getDeployPluginVersion( rootProject ) );
+            }
+            catch ( IOException e )
+            {
+                throw new ReleaseExecutionException( "Unable to write " + deployPom + ": " + e.getMessage(), e );
+            }
+            logInfo( result, "Deploying the artifacts built by the preparation goals to " + repository[1]
+                + ", the tag has the sources they were built from." );
+            runGoals( releaseDescriptor, releaseEnvironment, workDirectory, "validate",
+                      releaseDescriptor.getAdditionalArguments(), DEPLOY_POM, result );
+        }
+        finally
+        {
+            writeTimingReport( releaseDescriptor, result );
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+
+    /**
+     * @return The id and the URL of the repository to deploy the release to, from the
+     *         <code>altDeploymentRepository</code> given in the arguments or the distribution management of the root
+     *         project, or <code>null</code> if neither has one.
+     */
+    private static String[] getDeploymentRepository( String additionalArguments, MavenProject rootProject )
+    {
+        if ( !StringUtils.isEmpty( additionalArguments ) )
+        {
+            try
+            {
+                for ( String argument : CommandLineUtils.translateCommandline( additionalArguments ) )
+                {
+                    for ( String property : ALT_REPOSITORY_PROPERTIES )
+                    {
+                        if ( argument.startsWith( "-D" + property + "=" ) )
+                        {
+                            // id::layout::url, or id::url with the Maven Deploy Plugin 3
+                            String[] parts = argument.substring( property.length() + 3 ).split( "::" );
+                            if ( parts.length >= 2 )
+                            {
+                                return new String[] { parts[0], parts[parts.length - 1] };
+                            }
+                        }
+                    }
+                }
+            }
+            catch ( Exception e )
+            {
+                // left to the executor to report
+            }
+        }
+
+        if ( rootProject != null && rootProject.getDistributionManagement() != null )
+        {
+            DeploymentRepository repository = rootProject.getDistributionManagement().getRepository();
+            if ( repository != null && repository.getUrl() != null )
+            {
+                return new String[] { repository.getId(), repository.getUrl() };
+            }
+        }
+        return null;
+    }
+
+    private static String getDeployPluginVersion( MavenProject rootProject )
+    {
+        if ( rootProject != null )
+        {
+            Plugin plugin = rootProject.getPlugin( "org.apache.maven.plugins:maven-deploy-plugin" );
+            if ( plugin != null && plugin.getVersion() != null )
+            {
+                return plugin.getVersion();
+            }
+        }
+        return DEFAULT_DEPLOY_PLUGIN_VERSION;
+    }
+
+    /**
+     * Runs the perform goals on the base group of the reactor, then on each of its shards in a Maven process of its
+     * own. When a shard fails, the Maven processes of the other shards are stopped.
+     */
+    private ReleaseResult executeShards( final ReleaseDescriptor releaseDescriptor,
+                                         final ReleaseEnvironment releaseEnvironment, final File workDirectory,
+                                         String additionalArguments, ReactorShards shards )
+        throws ReleaseExecutionException
+    {
+        ReleaseResult result = new ReleaseResult();
+        try
+        {
+            if ( !shards.getBase().isEmpty() )
+            {
+                logInfo( result, "Performing the " + shards.getBase().size() + " shared modules before the shards." );
+                runGoals( releaseDescriptor, releaseEnvironment, workDirectory,
+                          additionalArguments + " -pl " + ReactorShards.toSelection( shards.getBase() ), result );
+            }
+
+            final List<List<MavenProject>> groups = shards.getShards();
+            final ReleaseResult[] shardResults = new ReleaseResult[groups.size()];
+            ExecutorService executor = Executors.newFixedThreadPool( groups.size() );
+            CompletionService<Integer> completion = new ExecutorCompletionService<Integer>( executor );
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for ( int i = 0; i < groups.size(); i++ )
+            {
+                final int shard = i;
+                final String arguments =
+                    additionalArguments + " -pl " + ReactorShards.toSelection( groups.get( i ) ) + SHARD_ARGUMENTS;
+                shardResults[i] = new ReleaseResult();
+                logInfo( result, "Shard " + ( i + 1 ) + " performs " + groups.get( i ).size() + " modules: "
+                    + ReactorShards.toSelection( groups.get( i ) ) );
+                futures.add( completion.submit( new Callable<Integer>()
+                {
+                    public Integer call()
+                        throws ReleaseExecutionException
+                    {
+                        OutputLabel.set( "shard " + ( shard + 1 ) );
+                        try
+                        {
+                            runGoals( releaseDescriptor, releaseEnvironment, workDirectory, arguments, groups.size(),
+                                      shardResults[shard] );
+                        }
+                        finally
+                        {
+                            OutputLabel.clear();
+                        }
+                        return Integer.valueOf( shard );
+                    }
+                } ) );
+            }
+
+            ReleaseExecutionException failure = null;
+            try
+            {
+                for ( int i = 0; i < futures.size(); i++ )
+                {
+                    Future<Integer> done = completion.take();
+                    if ( done.isCancelled() )
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        done.get();
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        if ( failure == null )
+                        {
+                            int shard = futures.indexOf( done ) + 1;
+                            failure = new ReleaseExecutionException( "Shard " + shard + " failed, stopping the other "
+                                + "shards: " + e.getCause().getMessage(), e.getCause() );
+                            cancel( futures );
+                        }
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                cancel( futures );
+                failure = new ReleaseExecutionException( "Interrupted while performing the shards.", e );
+            }
+            finally
+            {
+                shutdown( executor );
+                for ( ReleaseResult shardResult : shardResults )
+                {
+                    result.appendOutput( shardResult );
+                    BuildTimingReport report = BuildTimingReport.get( shardResult );
+                    if ( report != null )
+                    {
+                        BuildTimingReport.open( result ).merge( report );
+                    }
+                }
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            writeTimingReport( releaseDescriptor, result );
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+
+    private static void cancel( List<Future<Integer>> futures )
+    {
+        for ( Future<Integer> future : futures )
+        {
+            // interrupting a shard kills its Maven process
+            future.cancel( true );
+        }
+    }
+
+    /**
+     * Waits for the shard threads, so that no Maven process outlives the phase.
+     */
+    private void shutdown( ExecutorService executor )
+    {
+        executor.shutdown();
+        boolean interrupted = false;
+        while ( !executor.isTerminated() )
+        {
+            try
+            {
+                executor.awaitTermination( 1, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+                executor.shutdownNow();
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public ReleaseResult simulate( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
             List<MavenProject> reactorProjects )
             throws ReleaseExecutionException
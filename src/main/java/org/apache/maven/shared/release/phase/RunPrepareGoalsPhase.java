@@ -0,0 +1,289 @@
+package org.apache.maven.shared.release.phase;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.ReleaseExecutionException;
+import org.apache.maven.shared.release.ReleaseResult;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.env.DefaultReleaseEnvironment;
+import org.apache.maven.shared.release.env.ReleaseEnvironment;
+import org.apache.maven.shared.release.exec.SettingsSnapshotCache;
+import org.apache.maven.shared.release.util.ReleaseArtifactManifest;
+import org.apache.maven.shared.release.util.ReleaseUtil;
+import org.apache.maven.shared.release.util.VerifyCache;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Run the preparation goals for the project to verify that it builds before committing.
+ * <p/>
+ * When the artifacts are reused, the artifacts built by the preparation goals are recorded with the sources they were
+ * built from, for perform to deploy them. With the verify cache, the preparation goals are skipped when they already
+ * passed on the same inputs, in which case nothing is recorded since the build directories were not built by them.
+ *
+ * @author <a href="mailto:brett@apache.org">Brett Porter</a>
+ * @plexus.component role="org.apache.maven.shared.release.phase.ReleasePhase" role-hint="run-preparation-goals"
+ */
+public class RunPrepareGoalsPhase
+    extends AbstractRunGoalsPhase
+{
+    private static final String INFO = "[INFO] ";
+
+    public ReleaseResult execute( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                  List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException
+    {
+        return runLogic( releaseDescriptor, releaseEnvironment, reactorProjects, false );
+    }
+
+    public ReleaseResult simulate( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                   List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException
+    {
+        ReleaseResult result = new ReleaseResult();
+
+        logInfo( result, "Executing preparation goals - since this is simulation mode it is running against the "
+            + "original project, not the rewritten ones" );
+
+        result.appendOutput( runLogic( releaseDescriptor, releaseEnvironment, reactorProjects, true ) );
+
+        return result;
+    }
+
+    private ReleaseResult runLogic( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                    List<MavenProject> reactorProjects, boolean simulate )
+        throws ReleaseExecutionException
+    {
+        String additionalArguments = releaseDescriptor.getAdditionalArguments();
+
+        // the simulation builds the snapshots, which perform has no use for
+        boolean record = !simulate && DefaultReleaseEnvironment.isReuseArtifacts( releaseEnvironment )
+            && reactorProjects != null && !reactorProjects.isEmpty();
+        if ( record && releaseDescriptor.isUseReleaseProfile() )
+        {
+            // attach what the release profile of perform would
+            additionalArguments = StringUtils.isEmpty( additionalArguments ) ? "-DperformRelease=true"
+                            : additionalArguments + " -DperformRelease=true";
+        }
+
+        VerifyCache cache = null;
+        String key = null;
+        if ( DefaultReleaseEnvironment.isVerifyCache( releaseEnvironment ) && reactorProjects != null
+            && !reactorProjects.isEmpty() )
+        {
+            try
+            {
+                key = getVerifyKey( releaseDescriptor, releaseEnvironment, reactorProjects, additionalArguments );
+                cache = VerifyCache.getDefault();
+            }
+            catch ( IOException e )
+            {
+                getLogger().warn( "Unable to hash the project tree for the verify cache: " + e.getMessage() );
+            }
+        }
+
+        ReleaseResult result = null;
+        if ( key != null && !DefaultReleaseEnvironment.isForceVerify( releaseEnvironment ) )
+        {
+            result = replay( cache, key );
+        }
+        boolean replayed = result != null;
+        if ( result == null )
+        {
+            result = execute( releaseDescriptor, releaseEnvironment,
+                              new File( releaseDescriptor.getWorkingDirectory() ), additionalArguments );
+            if ( key != null )
+            {
+                String failure = null;
+                try
+                {
+                    cache.put( key, readOutput( result ) );
+                }
+                catch ( IOException e )
+                {
+                    failure = e.getMessage();
+                }
+                // reading the whole output closed it
+                ReleaseResult reopened = new ReleaseResult();
+                reopened.setResultCode( result.getResultCode() );
+                reopened.appendOutput( result );
+                result = reopened;
+                if ( failure != null )
+                {
+                    logWarn( result, "Unable to record the passing preparation goals in the verify cache: " + failure );
+                }
+            }
+        }
+
+        if ( record && replayed )
+        {
+            // the build directories are not part of the key: what they hold was not built by this run
+            File file = new File( releaseDescriptor.getWorkingDirectory(), ReleaseArtifactManifest.FILE_NAME );
+            if ( file.exists() && !file.delete() )
+            {
+                throw new ReleaseExecutionException( "Unable to delete " + file
+                    + ", perform would deploy artifacts which were not built by this release" );
+            }
+            logInfo( result, "Not recording the artifacts of skipped preparation goals, perform will build the tag" );
+        }
+        else if ( record )
+        {
+            recordArtifacts( releaseDescriptor, reactorProjects, result );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The key of the preparation goals in the verify cache: the project tree without the build directories,
+     *         the goals, the arguments, the POM, the JDK, Maven and its settings.
+     */
+    private String getVerifyKey( ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment,
+                                 List<MavenProject> reactorProjects, String additionalArguments )
+        throws IOException
+    {
+        List<File> buildDirectories = new ArrayList<File>();
+        for ( MavenProject project : reactorProjects )
+        {
+            if ( project.getBuild() != null && project.getBuild().getDirectory() != null )
+            {
+                buildDirectories.add( new File( project.getBuild().getDirectory() ) );
+            }
+        }
+        String treeHash =
+            VerifyCache.hashTree( ReleaseUtil.getRootProject( reactorProjects ).getBasedir(), buildDirectories );
+
+        // the settings activate profiles, set properties and pick the repositories
+        Settings settings = releaseEnvironment.getSettings();
+        File javaHome = releaseEnvironment.getJavaHome();
+        File mavenHome = releaseEnvironment.getMavenHome();
+        return VerifyCache.key( treeHash, getGoals( releaseDescriptor ), additionalArguments,
+                                releaseDescriptor.getPomFileName(),
+                                javaHome != null ? javaHome.getAbsolutePath() : System.getProperty( "java.home" ),
+                                System.getProperty( "java.version" ),
+                                mavenHome != null ? mavenHome.getAbsolutePath() : System.getProperty( "maven.home" ),
+                                releaseEnvironment.getMavenExecutorId(),
+                                settings != null ? SettingsSnapshotCache.hash( settings ) : "" );
+    }
+
+    /**
+     * @return The result of the preparation goals replayed from the verify cache, or <code>null</code> if they have
+     *         to run.
+     */
+    private ReleaseResult replay( VerifyCache cache, String key )
+    {
+        String output;
+        try
+        {
+            output = cache.get( key );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "Unable to read the verify cache: " + e.getMessage() );
+            return null;
+        }
+        if ( output == null )
+        {
+            return null;
+        }
+
+        ReleaseResult result = new ReleaseResult();
+        logInfo( result, "Skipping the preparation goals: they passed on the same project tree with the same goals, "
+            + "arguments, JDK, Maven and settings. Run with -DforceVerify=true to run them again. Their output was:" );
+        for ( String line : StringUtils.split( output, "\n" ) )
+        {
+            getLogger().info( line.startsWith( INFO ) ? line.substring( INFO.length() ) : line );
+        }
+        result.appendOutput( output );
+        result.setResultCode( ReleaseResult.SUCCESS );
+        return result;
+    }
+
+    /**
+     * Reads the whole output of a result, rather than the tail {@link ReleaseResult#getOutput()} keeps in memory. No
+     * output can be appended to the result afterwards.
+     */
+    private static String readOutput( ReleaseResult result )
+        throws IOException
+    {
+        Reader reader = result.getOutputSink().openReader();
+        try
+        {
+            return IOUtil.toString( reader );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private void recordArtifacts( ReleaseDescriptor releaseDescriptor, List<MavenProject> reactorProjects,
+                                  ReleaseResult result )
+    {
+        File basedir = ReleaseUtil.getRootProject( reactorProjects ).getBasedir();
+        File file = new File( releaseDescriptor.getWorkingDirectory(), ReleaseArtifactManifest.FILE_NAME );
+        try
+        {
+            ReleaseArtifactManifest manifest =
+                ReleaseArtifactManifest.record( basedir, reactorProjects, releaseDescriptor );
+            manifest.write( file );
+            logInfo( result, "Recorded the artifacts built by the preparation goals in " + file );
+        }
+        catch ( IOException e )
+        {
+            // perform builds the tag without the manifest
+            logWarn( result, "Unable to record the artifacts built by the preparation goals, perform will build the "
+                + "tag: " + e.getMessage() );
+            file.delete();
+        }
+    }
+
+    public ReleaseResult clean( List<MavenProject> reactorProjects )
+    {
+        ReleaseResult result = new ReleaseResult();
+
+        if ( reactorProjects != null && !reactorProjects.isEmpty() )
+        {
+            File file =
+                new File( ReleaseUtil.getRootProject( reactorProjects ).getBasedir(), ReleaseArtifactManifest.FILE_NAME );
+            if ( file.exists() && !file.delete() )
+            {
+                logWarn( result, "Unable to delete " + file );
+            }
+        }
+
+        result.setResultCode( ReleaseResult.SUCCESS );
+
+        return result;
+    }
+
+    protected String getGoals( ReleaseDescriptor releaseDescriptor )
+    {
+        return releaseDescriptor.getPreparationGoals();
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.maven.scm.manager.NoSuchScmProviderException;
 import org.apache.maven.scm.provider.ScmProvider;
 import org.apache.maven.scm.repository.ScmRepository;
 import org.apache.maven.scm.repository.ScmRepositoryException;
+import org.apache.maven.shared.release.ReleaseContext;
 import org.apache.maven.shared.release.ReleaseExecutionException;
 import org.apache.maven.shared.release.ReleaseFailureException;
 import org.apache.maven.shared.release.ReleaseResult;
@@ -42,8 +43,8 @@ import org.apache.maven.shared.release.config.ReleaseDescriptor;
 import org.apache.maven.shared.release.env.ReleaseEnvironment;
 import org.apache.maven.shared.release.scm.ReleaseScmCommandException;
 import org.apache.maven.shared.release.scm.ReleaseScmRepositoryException;
+import org.apache.maven.shared.release.scm.ReleaseScmSession;
 import org.apache.maven.shared.release.scm.ScmRepositoryConfigurator;
-import org.apache.maven.shared.release.util.ReleaseUtil;
 
 public class ScmTagPhase extends AbstractReleasePhase {
     private ScmRepositoryConfigurator scmRepositoryConfigurator;
@@ -65,14 +66,17 @@ public class ScmTagPhase extends AbstractReleasePhase {
         }
 
         this.logInfo(relResult, "Tagging release with the label " + releaseDescriptor.getScmReleaseLabel() + "...");
-        ReleaseDescriptor basedirAlignedReleaseDescriptor = ReleaseUtil.createBasedirAlignedReleaseDescriptor(releaseDescriptor, reactorProjects);
+        ReleaseDescriptor basedirAlignedReleaseDescriptor = ReleaseContext.get(releaseDescriptor).getReactorLayout(reactorProjects).createBasedirAlignedReleaseDescriptor(releaseDescriptor);
 
         ScmRepository repository;
         ScmProvider provider;
         try {
-            repository = this.scmRepositoryConfigurator.getConfiguredRepository(basedirAlignedReleaseDescriptor.getScmSourceUrl(), releaseDescriptor, releaseEnvironment.getSettings());
+            //使用本次发布共享的SCM会话
+            ReleaseScmSession session = ReleaseContext.get(releaseDescriptor).getScmSession(this.scmRepositoryConfigurator, basedirAlignedReleaseDescriptor.getScmSourceUrl(), releaseDescriptor, releaseEnvironment.getSettings());
+            this.logDebug(relResult, "Using SCM session for " + session.getUrl() + " (constructed in " + session.getConstructionTime() + " ms)");
+            repository = session.getRepository();
             repository.getProviderRepository().setPushChanges(releaseDescriptor.isPushChanges());
-            provider = this.scmRepositoryConfigurator.getRepositoryProvider(repository);
+            provider = session.getProvider();
         } catch (ScmRepositoryException var12) {
             throw new ReleaseScmRepositoryException(var12.getMessage(), var12.getValidationMessages());
         } catch (NoSuchScmProviderException var13) {
@@ -93,6 +97,7 @@ public class ScmTagPhase extends AbstractReleasePhase {
             }
             this.getLogger().info("------------ScmTagPhase:"+provider.getClass().getName());
             result = provider.tag(repository, fileSet, tagName, scmTagParameters);
+            ReleaseContext.get(releaseDescriptor).count(ReleaseContext.SCM_CALLS);
         } catch (ScmException var15) {
             throw new ReleaseExecutionException("An error is occurred in the tag process: " + var15.getMessage(), var15);
         }
@@ -108,7 +113,7 @@ public class ScmTagPhase extends AbstractReleasePhase {
     public ReleaseResult simulate(ReleaseDescriptor releaseDescriptor, ReleaseEnvironment releaseEnvironment, List<MavenProject> reactorProjects) throws ReleaseExecutionException, ReleaseFailureException {
         ReleaseResult result = new ReleaseResult();
         validateConfiguration(releaseDescriptor);
-        ReleaseDescriptor basedirAlignedReleaseDescriptor = ReleaseUtil.createBasedirAlignedReleaseDescriptor(releaseDescriptor, reactorProjects);
+        ReleaseDescriptor basedirAlignedReleaseDescriptor = ReleaseContext.get(releaseDescriptor).getReactorLayout(reactorProjects).createBasedirAlignedReleaseDescriptor(releaseDescriptor);
         if (releaseDescriptor.isRemoteTagging()) {
             this.logInfo(result, "Full run would be tagging working copy " + basedirAlignedReleaseDescriptor.getWorkingDirectory() + " with label: '" + releaseDescriptor.getScmReleaseLabel() + "'");
         } else {
@@ -0,0 +1,99 @@
+package org.apache.maven.shared.release.scm;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.scm.manager.NoSuchScmProviderException;
+import org.apache.maven.scm.provider.ScmProvider;
+import org.apache.maven.scm.repository.ScmRepository;
+import org.apache.maven.scm.repository.ScmRepositoryException;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+
+/**
+ * A configured SCM repository and its provider, built once per release run and SCM URL and shared by the phases that
+ * talk to the SCM.
+ *
+ * @see org.apache.maven.shared.release.ReleaseContext#getScmSession(ScmRepositoryConfigurator, String,
+ *      ReleaseDescriptor, Settings)
+ */
+public class ReleaseScmSession
+{
+    private final String url;
+
+    private final ScmRepository repository;
+
+    private final ScmProvider provider;
+
+    private final long constructionTime;
+
+    private ReleaseScmSession( String url, ScmRepository repository, ScmProvider provider, long constructionTime )
+    {
+        this.url = url;
+        this.repository = repository;
+        this.provider = provider;
+        this.constructionTime = constructionTime;
+    }
+
+    /**
+     * Configures the repository of an SCM URL and looks up its provider.
+     *
+     * @param configurator The configurator used to build the repository.
+     * @param url The SCM URL.
+     * @param releaseDescriptor The descriptor holding the SCM credentials.
+     * @param settings The Maven settings holding the server credentials.
+     * @return The new session.
+     * @throws ScmRepositoryException If the repository could not be configured.
+     * @throws NoSuchScmProviderException If there is no provider for the URL.
+     */
+    public static ReleaseScmSession create( ScmRepositoryConfigurator configurator, String url,
+                                            ReleaseDescriptor releaseDescriptor, Settings settings )
+        throws ScmRepositoryException, NoSuchScmProviderException
+    {
+        long start = System.nanoTime();
+
+        ScmRepository repository = configurator.getConfiguredRepository( url, releaseDescriptor, settings );
+        ScmProvider provider = configurator.getRepositoryProvider( repository );
+
+        return new ReleaseScmSession( url, repository, provider, ( System.nanoTime() - start ) / 1000000L );
+    }
+
+    public String getUrl()
+    {
+        return url;
+    }
+
+    public ScmRepository getRepository()
+    {
+        return repository;
+    }
+
+    public ScmProvider getProvider()
+    {
+        return provider;
+    }
+
+    /**
+     * @return The time it took to configure the repository and look up the provider, in milliseconds.
+     */
+    public long getConstructionTime()
+    {
+        return constructionTime;
+    }
+}
@@ -0,0 +1,223 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+
+/**
+ * Materializes a tag of the local git repository of the project as a working tree, without going through the SCM
+ * provider and without any network access: either as a clone whose objects are hard links to the objects of the local
+ * repository, or as a linked worktree of the local repository sharing its objects.
+ */
+public class LocalTagCheckout
+{
+    /**
+     * How perform gets the sources of the tag.
+     */
+    public enum Strategy
+    {
+        /**
+         * Check the tag out through the SCM provider, from the SCM URL of the release.
+         */
+        SCM,
+
+        /**
+         * Clone the local repository with <code>git clone --local</code>, hard-linking its objects.
+         */
+        CLONE,
+
+        /**
+         * Add a detached worktree of the local repository with <code>git worktree add</code>.
+         */
+        WORKTREE;
+
+        /**
+         * @param strategy The name of the strategy, in any case.
+         * @return The strategy.
+         * @throws IllegalArgumentException If there is no such strategy.
+         */
+        public static Strategy parse( String strategy )
+        {
+            return valueOf( strategy.trim().toUpperCase( Locale.ENGLISH ) );
+        }
+    }
+
+    private final File gitRoot;
+
+    private int fileCount;
+
+    private long byteCount;
+
+    private long millis;
+
+    /**
+     * @param gitRoot The top directory of the working tree of the local repository.
+     */
+    public LocalTagCheckout( File gitRoot )
+    {
+        this.gitRoot = gitRoot;
+    }
+
+    /**
+     * @param directory A directory of the project.
+     * @return The top directory of the git working tree holding the directory, or <code>null</code> if it is not in
+     *         one.
+     */
+    public static File findGitRoot( File directory )
+    {
+        for ( File dir = directory.getAbsoluteFile(); dir != null; dir = dir.getParentFile() )
+        {
+            if ( new File( dir, ".git" ).exists() )
+            {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param tag The name of a tag.
+     * @return <code>true</code> if the local repository has the tag.
+     */
+    public boolean hasTag( String tag )
+    {
+        try
+        {
+            git( gitRoot, "rev-parse", "--verify", "--quiet", "refs/tags/" + tag + "^{commit}" );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Materializes a tag into a directory which does not exist, then counts the files and bytes of its working tree.
+     *
+     * @param strategy {@link Strategy#CLONE} or {@link Strategy#WORKTREE}.
+     * @param tag The name of the tag.
+     * @param checkoutDirectory The directory to materialize the tag into.
+     * @throws IOException If git failed.
+     */
+    public void materialize( Strategy strategy, String tag, File checkoutDirectory )
+        throws IOException
+    {
+        long start = System.nanoTime();
+        String path = checkoutDirectory.getAbsolutePath();
+        if ( strategy == Strategy.WORKTREE )
+        {
+            // forget the worktrees of earlier releases, whose directories were deleted
+            git( gitRoot, "worktree", "prune" );
+            git( gitRoot, "worktree", "add", "--detach", path, "refs/tags/" + tag );
+        }
+        else if ( strategy == Strategy.CLONE )
+        {
+            git( gitRoot, "clone", "--quiet", "--local", "--branch", tag, "--", gitRoot.getAbsolutePath(), path );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "No local checkout for " + strategy );
+        }
+        millis = ( System.nanoTime() - start ) / 1000000L;
+        count( checkoutDirectory );
+    }
+
+    /**
+     * @return The number of files of the working tree, without the git metadata.
+     */
+    public int getFileCount()
+    {
+        return fileCount;
+    }
+
+    /**
+     * @return The size of the files of the working tree, without the git metadata.
+     */
+    public long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * @return The time git took to materialize the tag.
+     */
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    private void count( File directory )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.getName().equals( ".git" ) )
+            {
+                continue;
+            }
+            if ( file.isDirectory() )
+            {
+                count( file );
+            }
+            else
+            {
+                fileCount++;
+                byteCount += file.length();
+            }
+        }
+    }
+
+    private static String git( File workingDirectory, String... arguments )
+        throws IOException
+    {
+        Commandline cl = new Commandline();
+        cl.setExecutable( "git" );
+        cl.setWorkingDirectory( workingDirectory );
+        cl.addArguments( arguments );
+
+        CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+        CommandLineUtils.StringStreamConsumer err = new CommandLineUtils.StringStreamConsumer();
+        try
+        {
+            int exitCode = CommandLineUtils.executeCommandLine( cl, out, err );
+            if ( exitCode != 0 )
+            {
+                throw new IOException( "git " + arguments[0] + " exited with " + exitCode + ": "
+                    + err.getOutput().trim() );
+            }
+        }
+        catch ( CommandLineException e )
+        {
+            throw new IOException( "Unable to run git " + arguments[0] + ": " + e.getMessage(), e );
+        }
+        return out.getOutput();
+    }
+}
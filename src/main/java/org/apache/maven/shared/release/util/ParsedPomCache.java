@@ -0,0 +1,226 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jdom.Document;
+
+/**
+ * Cache of parsed POM documents, shared by all rewrite phases of one release run.
+ * <p/>
+ * An entry is only returned while the file on disk still has the size and modification time it had when it was
+ * parsed, and is dropped explicitly whenever the POM is written. A cache kept across release runs also compares the
+ * content of the file, since between runs the POMs are rewritten by others, possibly within the resolution of the
+ * modification time: reading a POM is still much cheaper than parsing it.
+ */
+public class ParsedPomCache
+{
+    private final Map<String, ParsedPom> entries = new ConcurrentHashMap<String, ParsedPom>();
+
+    private final boolean verifyContent;
+
+    /**
+     * Creates the cache of a single release run.
+     */
+    public ParsedPomCache()
+    {
+        this( false );
+    }
+
+    /**
+     * @param verifyContent <code>true</code> to compare the content of the file before returning an entry, for a cache
+     *            kept across release runs.
+     */
+    public ParsedPomCache( boolean verifyContent )
+    {
+        this.verifyContent = verifyContent;
+    }
+
+    public boolean isVerifyContent()
+    {
+        return verifyContent;
+    }
+
+    /**
+     * Gets the cached parse of a POM.
+     *
+     * @param pomFile The POM file, must not be <code>null</code>.
+     * @param ls The line separator the POM was normalized to.
+     * @return The cached entry, or <code>null</code> if there is none or the file changed since it was parsed.
+     */
+    public ParsedPom get( File pomFile, String ls )
+    {
+        String key = pomFile.getAbsolutePath();
+        ParsedPom pom = entries.get( key );
+        if ( pom == null )
+        {
+            return null;
+        }
+
+        if ( pom.length != pomFile.length() || pom.lastModified != pomFile.lastModified() || !pom.ls.equals( ls )
+            || ( verifyContent && !hasContent( pomFile, pom ) ) )
+        {
+            entries.remove( key );
+            return null;
+        }
+
+        return pom;
+    }
+
+    private static boolean hasContent( File pomFile, ParsedPom pom )
+    {
+        try
+        {
+            return pom.content.equals( ReleaseUtil.readXmlFile( pomFile, pom.ls ) );
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    public void put( File pomFile, ParsedPom pom )
+    {
+        entries.put( pomFile.getAbsolutePath(), pom );
+    }
+
+    public void invalidate( File pomFile )
+    {
+        entries.remove( pomFile.getAbsolutePath() );
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * A parsed POM together with the content it was parsed from.
+     */
+    public static class ParsedPom
+    {
+        private final Document document;
+
+        private final String content;
+
+        private final int[] textRegions;
+
+        private final String ls;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private volatile boolean prologue;
+
+        private String intro;
+
+        private String outtro;
+
+        /**
+         * @param document The parsed document, not modified afterwards.
+         * @param content The content of the file, with normalized line endings.
+         * @param textRegions The text regions of the elements in <code>content</code>, as returned by
+         *            {@link PomTextPatcher#indexLeafText(String)}.
+         * @param ls The line separator the content was normalized to.
+         * @param length The size of the file, taken before it was read.
+         * @param lastModified The modification time of the file, taken before it was read.
+         */
+        public ParsedPom( Document document, String content, int[] textRegions, String ls, long length,
+                          long lastModified )
+        {
+            this.document = document;
+            this.content = content;
+            this.textRegions = textRegions;
+            this.ls = ls;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public String getContent()
+        {
+            return content;
+        }
+
+        public int[] getTextRegions()
+        {
+            return textRegions;
+        }
+
+        /**
+         * @return <code>true</code> once the text surrounding the root element was set.
+         */
+        public boolean hasPrologue()
+        {
+            return prologue;
+        }
+
+        /**
+         * Sets the text surrounding the root element. It is only needed when the document has to be serialized, so it
+         * is computed the first time that happens.
+         *
+         * @param intro The text before the root element, may be <code>null</code>.
+         * @param outtro The text after the root element, may be <code>null</code>.
+         */
+        public void setPrologue( String intro, String outtro )
+        {
+            this.intro = intro;
+            this.outtro = outtro;
+            this.prologue = true;
+        }
+
+        /**
+         * Gets the shared document. Callers must not modify it, use {@link #copyDocument()} for that.
+         *
+         * @return The shared document.
+         */
+        public Document getDocument()
+        {
+            return document;
+        }
+
+        /**
+         * @return A private deep copy of the document which may be modified freely.
+         */
+        public Document copyDocument()
+        {
+            return (Document) document.clone();
+        }
+
+        public String getIntro()
+        {
+            return intro;
+        }
+
+        public String getOuttro()
+        {
+            return outtro;
+        }
+    }
+}
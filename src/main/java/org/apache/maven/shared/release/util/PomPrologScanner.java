@@ -0,0 +1,198 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Finds the root element of a POM in a single forward pass, so that the XML declaration, DOCTYPE, comments and
+ * processing instructions around it can be written back unchanged.
+ */
+public final class PomPrologScanner
+{
+    private PomPrologScanner()
+    {
+        // utility class
+    }
+
+    /**
+     * Locates the root element.
+     *
+     * @param content The POM content.
+     * @return The offset of the <code>&lt;</code> opening the root element and the offset just after the
+     *         <code>&gt;</code> closing it, or <code>null</code> if the content could not be scanned.
+     */
+    public static int[] findRootElement( String content )
+    {
+        int length = content.length();
+        int i = 0;
+        int start = -1;
+        while ( start < 0 )
+        {
+            while ( i < length && Character.isWhitespace( content.charAt( i ) ) )
+            {
+                i++;
+            }
+            if ( i >= length || content.charAt( i ) != '<' )
+            {
+                return null;
+            }
+
+            if ( content.startsWith( "<?", i ) )
+            {
+                i = skipPast( content, "?>", i + 2 );
+            }
+            else if ( content.startsWith( "<!--", i ) )
+            {
+                i = skipPast( content, "-->", i + 4 );
+            }
+            else if ( content.startsWith( "<!", i ) )
+            {
+                i = skipDeclaration( content, i + 2 );
+            }
+            else
+            {
+                start = i;
+            }
+
+            if ( i < 0 )
+            {
+                return null;
+            }
+        }
+
+        int depth = 0;
+        while ( i >= 0 && i < length )
+        {
+            i = content.indexOf( '<', i );
+            if ( i < 0 )
+            {
+                return null;
+            }
+
+            if ( content.startsWith( "<!--", i ) )
+            {
+                i = skipPast( content, "-->", i + 4 );
+            }
+            else if ( content.startsWith( "<![CDATA[", i ) )
+            {
+                i = skipPast( content, "]]>", i + 9 );
+            }
+            else if ( content.startsWith( "<?", i ) )
+            {
+                i = skipPast( content, "?>", i + 2 );
+            }
+            else if ( content.startsWith( "</", i ) )
+            {
+                i = skipPast( content, ">", i + 2 );
+                if ( --depth == 0 && i >= 0 )
+                {
+                    return new int[] { start, i };
+                }
+            }
+            else
+            {
+                i = skipTag( content, i + 1 );
+                if ( i >= 0 && content.charAt( i - 2 ) != '/' )
+                {
+                    depth++;
+                }
+                else if ( depth == 0 && i >= 0 )
+                {
+                    return new int[] { start, i };
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The offset just after the next occurrence of <code>terminator</code>, or <code>-1</code>.
+     */
+    static int skipPast( String content, String terminator, int from )
+    {
+        int index = content.indexOf( terminator, from );
+        return index < 0 ? -1 : index + terminator.length();
+    }
+
+    /**
+     * @return The offset just after the <code>&gt;</code> closing a start tag, or <code>-1</code>.
+     */
+    static int skipTag( String content, int from )
+    {
+        char quote = 0;
+        for ( int i = from; i < content.length(); i++ )
+        {
+            char c = content.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '>' )
+            {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The offset just after a markup declaration such as <code>&lt;!DOCTYPE ...&gt;</code>, or
+     *         <code>-1</code>.
+     */
+    static int skipDeclaration( String content, int from )
+    {
+        char quote = 0;
+        int brackets = 0;
+        for ( int i = from; i < content.length(); i++ )
+        {
+            char c = content.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '[' )
+            {
+                brackets++;
+            }
+            else if ( c == ']' )
+            {
+                brackets--;
+            }
+            else if ( c == '>' && brackets <= 0 )
+            {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
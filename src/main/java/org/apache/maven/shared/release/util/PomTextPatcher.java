@@ -0,0 +1,390 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.shared.release.util.ParsedPomCache.ParsedPom;
+import org.jdom.Attribute;
+import org.jdom.Content;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.Text;
+
+/**
+ * Writes a rewritten POM by splicing the changed element texts into the original file content, instead of
+ * re-serializing the whole document.
+ * <p/>
+ * {@link #indexLeafText(String)} scans the original content once and records, for every element in document order,
+ * where its text starts and ends if the element holds nothing but plain text. {@link #patch(ParsedPom, Document)} then
+ * compares the rewritten document with the document as it was parsed. As long as the only differences are the values
+ * of such elements, the result is the original content with those values replaced, so everything else is kept byte
+ * for byte. Any other change makes it return <code>null</code>, and the caller has to serialize the document.
+ */
+public final class PomTextPatcher
+{
+    private PomTextPatcher()
+    {
+        // utility class
+    }
+
+    /**
+     * Records the text region of every element of a POM.
+     *
+     * @param content The POM content.
+     * @return Two entries per element in document order, the start and end offset of its text, or <code>-1</code> when
+     *         the element contains anything but plain text. <code>null</code> if the content could not be scanned.
+     */
+    public static int[] indexLeafText( String content )
+    {
+        int[] regions = new int[64];
+        int count = 0;
+
+        int[] openOrdinals = new int[16];
+        int[] openStarts = new int[16];
+        boolean[] openPlain = new boolean[16];
+        int depth = 0;
+
+        int length = content.length();
+        int i = 0;
+        while ( i < length )
+        {
+            char c = content.charAt( i );
+            if ( c != '<' )
+            {
+                if ( c == '&' && depth > 0 )
+                {
+                    openPlain[depth - 1] = false;
+                }
+                i++;
+                continue;
+            }
+
+            if ( content.startsWith( "<!--", i ) )
+            {
+                i = PomPrologScanner.skipPast( content, "-->", i + 4 );
+            }
+            else if ( content.startsWith( "<![CDATA[", i ) )
+            {
+                i = PomPrologScanner.skipPast( content, "]]>", i + 9 );
+            }
+            else if ( content.startsWith( "<?", i ) )
+            {
+                i = PomPrologScanner.skipPast( content, "?>", i + 2 );
+            }
+            else if ( content.startsWith( "<!", i ) )
+            {
+                i = PomPrologScanner.skipDeclaration( content, i + 2 );
+            }
+            else if ( content.startsWith( "</", i ) )
+            {
+                if ( depth == 0 )
+                {
+                    return null;
+                }
+                depth--;
+                int ordinal = openOrdinals[depth];
+                if ( openPlain[depth] )
+                {
+                    regions[2 * ordinal] = openStarts[depth];
+                    regions[2 * ordinal + 1] = i;
+                }
+                i = PomPrologScanner.skipPast( content, ">", i + 2 );
+                continue;
+            }
+            else
+            {
+                int end = PomPrologScanner.skipTag( content, i + 1 );
+                if ( end < 0 )
+                {
+                    return null;
+                }
+
+                if ( 2 * count + 2 > regions.length )
+                {
+                    regions = grow( regions, regions.length * 2 );
+                }
+                regions[2 * count] = -1;
+                regions[2 * count + 1] = -1;
+
+                if ( content.charAt( end - 2 ) != '/' )
+                {
+                    if ( depth == openOrdinals.length )
+                    {
+                        openOrdinals = grow( openOrdinals, depth * 2 );
+                        openStarts = grow( openStarts, depth * 2 );
+                        boolean[] plain = new boolean[depth * 2];
+                        System.arraycopy( openPlain, 0, plain, 0, depth );
+                        openPlain = plain;
+                    }
+                    openOrdinals[depth] = count;
+                    openStarts[depth] = end;
+                    openPlain[depth] = true;
+                    depth++;
+                }
+                count++;
+                i = end;
+                continue;
+            }
+
+            if ( i < 0 )
+            {
+                return null;
+            }
+            // a comment, CDATA section or processing instruction: the enclosing element is no longer plain text
+            if ( depth > 0 )
+            {
+                openPlain[depth - 1] = false;
+            }
+        }
+
+        if ( depth != 0 )
+        {
+            return null;
+        }
+
+        int[] result = new int[2 * count];
+        System.arraycopy( regions, 0, result, 0, result.length );
+        return result;
+    }
+
+    /**
+     * Produces the content of a rewritten POM from the original content.
+     *
+     * @param pom The POM as it was parsed.
+     * @param document The rewritten copy of its document.
+     * @return The patched content, or <code>null</code> if the document was changed in a way that cannot be patched.
+     */
+    public static String patch( ParsedPom pom, Document document )
+    {
+        int[] regions = pom.getTextRegions();
+        if ( regions == null )
+        {
+            return null;
+        }
+
+        Patch patch = new Patch( pom.getContent(), regions );
+        if ( !patch.compare( pom.getDocument().getRootElement(), document.getRootElement() )
+            || patch.ordinal * 2 != regions.length )
+        {
+            return null;
+        }
+
+        return patch.apply();
+    }
+
+    private static final class Patch
+    {
+        private final String content;
+
+        private final int[] regions;
+
+        private final List<int[]> edits = new ArrayList<int[]>();
+
+        private final List<String> replacements = new ArrayList<String>();
+
+        private int ordinal;
+
+        Patch( String content, int[] regions )
+        {
+            this.content = content;
+            this.regions = regions;
+        }
+
+        boolean compare( Element original, Element rewritten )
+        {
+            int current = ordinal++;
+            if ( current * 2 >= regions.length )
+            {
+                return false;
+            }
+
+            if ( !original.getName().equals( rewritten.getName() )
+                || !sameNamespace( original.getNamespace(), rewritten.getNamespace() )
+                || !sameAttributes( original.getAttributes(), rewritten.getAttributes() )
+                || !sameNamespaces( original.getAdditionalNamespaces(), rewritten.getAdditionalNamespaces() ) )
+            {
+                return false;
+            }
+
+            List<?> originalContent = original.getContent();
+            List<?> rewrittenContent = rewritten.getContent();
+
+            if ( regions[2 * current] >= 0 && isPlainText( originalContent ) )
+            {
+                return isPlainText( rewrittenContent )
+                    && compareText( current, original.getText(), rewritten.getText() );
+            }
+
+            if ( originalContent.size() != rewrittenContent.size() )
+            {
+                return false;
+            }
+
+            for ( int i = 0; i < originalContent.size(); i++ )
+            {
+                Object a = originalContent.get( i );
+                Object b = rewrittenContent.get( i );
+                if ( a instanceof Element )
+                {
+                    if ( !( b instanceof Element ) || !compare( (Element) a, (Element) b ) )
+                    {
+                        return false;
+                    }
+                }
+                else if ( a.getClass() != b.getClass() || !( (Content) a ).getValue().equals( ( (Content) b ).getValue() ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean compareText( int current, String oldText, String newText )
+        {
+            if ( oldText.equals( newText ) )
+            {
+                return true;
+            }
+
+            // the rewrite keeps the whitespace around a value, so only the trimmed value has to be replaced
+            String oldValue = oldText.trim();
+            int lead = oldValue.length() > 0 ? oldText.indexOf( oldValue ) : oldText.length();
+            int trail = oldText.length() - lead - oldValue.length();
+            if ( newText.length() < lead + trail || !newText.startsWith( oldText.substring( 0, lead ) )
+                || !newText.endsWith( oldText.substring( lead + oldValue.length() ) ) )
+            {
+                return false;
+            }
+            String newValue = newText.substring( lead, newText.length() - trail );
+
+            int start = regions[2 * current];
+            int end = regions[2 * current + 1];
+            String raw = content.substring( start, end );
+            String rawValue = raw.trim();
+            if ( !rawValue.equals( oldValue ) )
+            {
+                return false;
+            }
+            int rawStart = start + ( rawValue.length() > 0 ? raw.indexOf( rawValue ) : 0 );
+
+            edits.add( new int[] { rawStart, rawStart + rawValue.length() } );
+            replacements.add( escape( newValue ) );
+            return true;
+        }
+
+        String apply()
+        {
+            StringBuilder buffer = new StringBuilder( content.length() + 16 * edits.size() );
+            int position = 0;
+            for ( int i = 0; i < edits.size(); i++ )
+            {
+                int[] edit = edits.get( i );
+                buffer.append( content, position, edit[0] );
+                buffer.append( replacements.get( i ) );
+                position = edit[1];
+            }
+            buffer.append( content, position, content.length() );
+            return buffer.toString();
+        }
+    }
+
+    private static boolean isPlainText( List<?> content )
+    {
+        return content.isEmpty() || ( content.size() == 1 && content.get( 0 ).getClass() == Text.class );
+    }
+
+    private static boolean sameNamespace( Namespace a, Namespace b )
+    {
+        return a.getURI().equals( b.getURI() ) && a.getPrefix().equals( b.getPrefix() );
+    }
+
+    private static boolean sameNamespaces( List<?> a, List<?> b )
+    {
+        if ( a.size() != b.size() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < a.size(); i++ )
+        {
+            if ( !sameNamespace( (Namespace) a.get( i ), (Namespace) b.get( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameAttributes( List<?> a, List<?> b )
+    {
+        if ( a.size() != b.size() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < a.size(); i++ )
+        {
+            Attribute x = (Attribute) a.get( i );
+            Attribute y = (Attribute) b.get( i );
+            if ( !x.getName().equals( y.getName() ) || !sameNamespace( x.getNamespace(), y.getNamespace() )
+                || !x.getValue().equals( y.getValue() ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String escape( String value )
+    {
+        if ( value.indexOf( '&' ) < 0 && value.indexOf( '<' ) < 0 && value.indexOf( '>' ) < 0 )
+        {
+            return value;
+        }
+        StringBuilder buffer = new StringBuilder( value.length() + 8 );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '&':
+                    buffer.append( "&amp;" );
+                    break;
+                case '<':
+                    buffer.append( "&lt;" );
+                    break;
+                case '>':
+                    buffer.append( "&gt;" );
+                    break;
+                default:
+                    buffer.append( c );
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static int[] grow( int[] array, int size )
+    {
+        int[] grown = new int[size];
+        System.arraycopy( array, 0, grown, 0, array.length );
+        return grown;
+    }
+}
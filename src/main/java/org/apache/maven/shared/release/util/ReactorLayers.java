@@ -0,0 +1,177 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The topological layers of the dependency graph of a reactor: a module is in the layer after the deepest of the
+ * reactor modules it depends on, through its parent, its dependencies, its build plugins or its build extensions.
+ * The modules of a layer can be built at the same time, so the widest layer bounds the number of threads a parallel
+ * build can keep busy.
+ */
+public class ReactorLayers
+{
+    private final int moduleCount;
+
+    private final int[] widths;
+
+    private ReactorLayers( int moduleCount, int[] widths )
+    {
+        this.moduleCount = moduleCount;
+        this.widths = widths;
+    }
+
+    /**
+     * @param reactorProjects The reactor projects.
+     * @return The layers of the reactor.
+     */
+    public static ReactorLayers build( List<MavenProject> reactorProjects )
+    {
+        Map<String, MavenProject> modules = new HashMap<String, MavenProject>();
+        for ( MavenProject project : reactorProjects )
+        {
+            modules.put( key( project.getGroupId(), project.getArtifactId() ), project );
+        }
+
+        Map<MavenProject, Integer> depths = new HashMap<MavenProject, Integer>();
+        int layerCount = 0;
+        for ( MavenProject project : reactorProjects )
+        {
+            layerCount = Math.max( layerCount, depth( project, modules, depths, new HashSet<MavenProject>() ) + 1 );
+        }
+
+        int[] widths = new int[layerCount];
+        for ( Integer depth : depths.values() )
+        {
+            widths[depth.intValue()]++;
+        }
+        return new ReactorLayers( reactorProjects.size(), widths );
+    }
+
+    public int getModuleCount()
+    {
+        return moduleCount;
+    }
+
+    public int getLayerCount()
+    {
+        return widths.length;
+    }
+
+    /**
+     * @return The number of modules of the widest layer.
+     */
+    public int getMaxWidth()
+    {
+        int max = 0;
+        for ( int width : widths )
+        {
+            max = Math.max( max, width );
+        }
+        return max;
+    }
+
+    private static int depth( MavenProject project, Map<String, MavenProject> modules,
+                              Map<MavenProject, Integer> depths, Set<MavenProject> visiting )
+    {
+        Integer known = depths.get( project );
+        if ( known != null )
+        {
+            return known.intValue();
+        }
+        if ( !visiting.add( project ) )
+        {
+            // Maven rejects cyclic reactors, don't loop on one anyway
+            return 0;
+        }
+
+        int depth = 0;
+        for ( MavenProject upstream : getUpstreamModules( project, modules ) )
+        {
+            if ( upstream != project )
+            {
+                depth = Math.max( depth, depth( upstream, modules, depths, visiting ) + 1 );
+            }
+        }
+
+        visiting.remove( project );
+        depths.put( project, Integer.valueOf( depth ) );
+        return depth;
+    }
+
+    /**
+     * @return The reactor modules a project depends on, possibly with duplicates.
+     */
+    static List<MavenProject> getUpstreamModules( MavenProject project, Map<String, MavenProject> modules )
+    {
+        List<String> keys = new ArrayList<String>();
+        Parent parent = project.getModel().getParent();
+        if ( parent != null )
+        {
+            keys.add( key( parent.getGroupId(), parent.getArtifactId() ) );
+        }
+        for ( Dependency dependency : project.getDependencies() )
+        {
+            keys.add( key( dependency.getGroupId(), dependency.getArtifactId() ) );
+        }
+        for ( Plugin plugin : project.getBuildPlugins() )
+        {
+            keys.add( key( plugin.getGroupId(), plugin.getArtifactId() ) );
+        }
+        if ( project.getBuildExtensions() != null )
+        {
+            for ( Extension extension : project.getBuildExtensions() )
+            {
+                keys.add( key( extension.getGroupId(), extension.getArtifactId() ) );
+            }
+        }
+
+        List<MavenProject> upstream = new ArrayList<MavenProject>();
+        for ( String key : keys )
+        {
+            MavenProject module = modules.get( key );
+            if ( module != null )
+            {
+                upstream.add( module );
+            }
+        }
+        return upstream;
+    }
+
+    /**
+     * @return The versionless key of a module, as the upstream modules are looked up with.
+     */
+    static String key( String groupId, String artifactId )
+    {
+        return groupId + ':' + artifactId;
+    }
+}
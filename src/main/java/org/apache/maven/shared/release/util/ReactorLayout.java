@@ -0,0 +1,171 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.ReleaseExecutionException;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * The directory layout of a reactor: its common basedir and, for each module, the path of its basedir relative to it
+ * and its standard POM. It is computed once, so that phases don't have to scan the whole reactor for every module.
+ */
+public class ReactorLayout
+{
+    private final List<MavenProject> reactorProjects;
+
+    private final String commonBasedir;
+
+    private final Map<MavenProject, Module> modules;
+
+    private ReactorLayout( List<MavenProject> reactorProjects, String commonBasedir, Map<MavenProject, Module> modules )
+    {
+        this.reactorProjects = reactorProjects;
+        this.commonBasedir = commonBasedir;
+        this.modules = modules;
+    }
+
+    /**
+     * Computes the layout of a reactor.
+     *
+     * @param reactorProjects The reactor projects.
+     * @return The layout.
+     * @throws ReleaseExecutionException If the basedir of a project could not be resolved.
+     */
+    public static ReactorLayout build( List<MavenProject> reactorProjects )
+        throws ReleaseExecutionException
+    {
+        try
+        {
+            String commonBasedir = ReleaseUtil.getCommonBasedir( reactorProjects );
+
+            Map<MavenProject, Module> modules = new IdentityHashMap<MavenProject, Module>();
+            for ( MavenProject project : reactorProjects )
+            {
+                String relativePath = null;
+                if ( commonBasedir != null && project.getBasedir() != null )
+                {
+                    relativePath = relativize( commonBasedir, project.getBasedir().getCanonicalPath() );
+                }
+                modules.put( project, new Module( ReleaseUtil.getStandardPom( project ), relativePath ) );
+            }
+
+            return new ReactorLayout( reactorProjects, commonBasedir, modules );
+        }
+        catch ( IOException e )
+        {
+            throw new ReleaseExecutionException( "Exception occurred while calculating common basedir: "
+                + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @param reactorProjects The reactor projects.
+     * @return <code>true</code> if this layout was computed for that very list of projects.
+     */
+    public boolean isLayoutOf( List<MavenProject> reactorProjects )
+    {
+        return this.reactorProjects == reactorProjects && modules.size() == reactorProjects.size();
+    }
+
+    /**
+     * @return The common basedir of all reactor projects, as returned by
+     *         {@link ReleaseUtil#getCommonBasedir(List)}.
+     */
+    public String getCommonBasedir()
+    {
+        return commonBasedir;
+    }
+
+    /**
+     * @param project A reactor project.
+     * @return The standard POM of the project.
+     */
+    public File getStandardPom( MavenProject project )
+    {
+        Module module = modules.get( project );
+        return module != null ? module.standardPom : ReleaseUtil.getStandardPom( project );
+    }
+
+    /**
+     * @param project A reactor project.
+     * @return The basedir of the project relative to the common basedir, with <code>/</code> as separator and
+     *         <code>.</code> for the common basedir itself, or <code>null</code> if it is not below it.
+     */
+    public String getRelativePath( MavenProject project )
+    {
+        Module module = modules.get( project );
+        return module != null ? module.relativePath : null;
+    }
+
+    /**
+     * Same as {@link ReleaseUtil#createBasedirAlignedReleaseDescriptor(ReleaseDescriptor, List)}, without scanning
+     * the reactor again.
+     *
+     * @param releaseDescriptor The release descriptor.
+     * @return A descriptor holding the working directory and SCM URL aligned to the common basedir.
+     */
+    public ReleaseDescriptor createBasedirAlignedReleaseDescriptor( ReleaseDescriptor releaseDescriptor )
+    {
+        String workingDirectory = FileUtils.normalize( releaseDescriptor.getWorkingDirectory() );
+        int parentLevels = ReleaseUtil.getBaseWorkingDirectoryParentCount( commonBasedir, workingDirectory );
+
+        String scmSourceUrl = ReleaseUtil.realignScmUrl( parentLevels, releaseDescriptor.getScmSourceUrl() );
+
+        ReleaseDescriptor descriptor = new ReleaseDescriptor();
+        descriptor.setWorkingDirectory( commonBasedir );
+        descriptor.setScmSourceUrl( scmSourceUrl );
+        return descriptor;
+    }
+
+    private static String relativize( String basedir, String path )
+    {
+        String prefix = basedir.endsWith( File.separator ) ? basedir : basedir + File.separator;
+        if ( path.equals( basedir ) || prefix.equals( path + File.separator ) )
+        {
+            return ".";
+        }
+        if ( !path.startsWith( prefix ) )
+        {
+            return null;
+        }
+        return path.substring( prefix.length() ).replace( File.separatorChar, '/' );
+    }
+
+    private static class Module
+    {
+        private final File standardPom;
+
+        private final String relativePath;
+
+        Module( File standardPom, String relativePath )
+        {
+            this.standardPom = standardPom;
+            this.relativePath = relativePath;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The reactor projects built from a root POM, kept across release runs.
+ * <p/>
+ * An entry is only returned while every POM of the reactor still has the content it was built from. POMs outside of
+ * the reactor, like parents from a repository, and the files profiles are activated by are not checked. Only the most
+ * recently used entries are kept.
+ */
+public class ReactorProjectCache
+{
+    private static final int MAX_ENTRIES = 16;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true );
+
+    /**
+     * @param pomFile The root POM.
+     * @return A copy of the list of reactor projects built from the root POM, or <code>null</code> if there are none or
+     *         a POM changed since they were built.
+     */
+    public synchronized List<MavenProject> get( File pomFile )
+    {
+        String key = pomFile.getAbsolutePath();
+        Entry entry = entries.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            for ( int i = 0; i < entry.projects.size(); i++ )
+            {
+                if ( !entry.digests.get( i ).equals( Sha256.of( entry.projects.get( i ).getFile() ) ) )
+                {
+                    entries.remove( key );
+                    return null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            entries.remove( key );
+            return null;
+        }
+
+        return new ArrayList<MavenProject>( entry.projects );
+    }
+
+    /**
+     * @param pomFile The root POM.
+     * @param projects The reactor projects built from the root POM.
+     * @throws IOException If a POM could not be read.
+     */
+    public synchronized void put( File pomFile, List<MavenProject> projects )
+        throws IOException
+    {
+        List<String> digests = new ArrayList<String>( projects.size() );
+        for ( MavenProject project : projects )
+        {
+            digests.add( Sha256.of( project.getFile() ) );
+        }
+        entries.put( pomFile.getAbsolutePath(), new Entry( new ArrayList<MavenProject>( projects ), digests ) );
+
+        while ( entries.size() > MAX_ENTRIES )
+        {
+            entries.remove( entries.keySet().iterator().next() );
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    private static class Entry
+    {
+        private final List<MavenProject> projects;
+
+        private final List<String> digests;
+
+        Entry( List<MavenProject> projects, List<String> digests )
+        {
+            this.projects = projects;
+            this.digests = digests;
+        }
+    }
+}
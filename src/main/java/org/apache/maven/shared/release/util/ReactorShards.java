@@ -0,0 +1,239 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * A partition of a reactor into groups which can be built by separate Maven processes at the same time.
+ * <p/>
+ * The modules with <code>pom</code> packaging, which are the parents, aggregators and BOMs every other module tends to
+ * depend on, go to a base group together with every module they depend on themselves. The base group is built first.
+ * The other modules are split into the connected components of their dependency graph, so that each component only
+ * depends on itself and on the base group, and the components are packed into at most the requested number of shards,
+ * the largest first.
+ */
+public class ReactorShards
+{
+    private final List<MavenProject> base;
+
+    private final List<List<MavenProject>> shards;
+
+    private ReactorShards( List<MavenProject> base, List<List<MavenProject>> shards )
+    {
+        this.base = base;
+        this.shards = shards;
+    }
+
+    /**
+     * @param reactorProjects The reactor projects, in build order.
+     * @param shardCount The maximum number of shards.
+     * @return The partition of the reactor.
+     */
+    public static ReactorShards plan( List<MavenProject> reactorProjects, int shardCount )
+    {
+        Map<String, MavenProject> modules = new HashMap<String, MavenProject>();
+        for ( MavenProject project : reactorProjects )
+        {
+            modules.put( ReactorLayers.key( project.getGroupId(), project.getArtifactId() ), project );
+        }
+        Map<MavenProject, List<MavenProject>> upstream = new IdentityHashMap<MavenProject, List<MavenProject>>();
+        for ( MavenProject project : reactorProjects )
+        {
+            upstream.put( project, ReactorLayers.getUpstreamModules( project, modules ) );
+        }
+
+        Set<MavenProject> baseModules = Collections.newSetFromMap( new IdentityHashMap<MavenProject, Boolean>() );
+        for ( MavenProject project : reactorProjects )
+        {
+            if ( "pom".equals( project.getPackaging() ) )
+            {
+                addWithUpstream( project, upstream, baseModules );
+            }
+        }
+
+        // union-find over the dependencies between the other modules
+        Map<MavenProject, MavenProject> roots = new IdentityHashMap<MavenProject, MavenProject>();
+        for ( MavenProject project : reactorProjects )
+        {
+            if ( !baseModules.contains( project ) )
+            {
+                roots.put( project, project );
+            }
+        }
+        for ( MavenProject project : roots.keySet().toArray( new MavenProject[roots.size()] ) )
+        {
+            for ( MavenProject dependency : upstream.get( project ) )
+            {
+                if ( roots.containsKey( dependency ) )
+                {
+                    roots.put( find( dependency, roots ), find( project, roots ) );
+                }
+            }
+        }
+
+        List<MavenProject> base = new ArrayList<MavenProject>();
+        Map<MavenProject, List<MavenProject>> components = new LinkedHashMap<MavenProject, List<MavenProject>>();
+        for ( MavenProject project : reactorProjects )
+        {
+            if ( baseModules.contains( project ) )
+            {
+                base.add( project );
+                continue;
+            }
+            MavenProject root = find( project, roots );
+            List<MavenProject> component = components.get( root );
+            if ( component == null )
+            {
+                component = new ArrayList<MavenProject>();
+                components.put( root, component );
+            }
+            component.add( project );
+        }
+
+        return new ReactorShards( base, pack( reactorProjects, components.values(), Math.max( 1, shardCount ) ) );
+    }
+
+    /**
+     * @return The modules to build before the shards, in build order.
+     */
+    public List<MavenProject> getBase()
+    {
+        return base;
+    }
+
+    /**
+     * @return The shards, each with its modules in build order.
+     */
+    public List<List<MavenProject>> getShards()
+    {
+        return shards;
+    }
+
+    /**
+     * @param projects Some reactor projects.
+     * @return The projects as a selection for the <code>-pl</code> option of Maven.
+     */
+    public static String toSelection( List<MavenProject> projects )
+    {
+        StringBuilder selection = new StringBuilder();
+        for ( MavenProject project : projects )
+        {
+            selection.append( selection.length() > 0 ? "," : "" ).append( project.getGroupId() ).append( ':' )
+                     .append( project.getArtifactId() );
+        }
+        return selection.toString();
+    }
+
+    private static void addWithUpstream( MavenProject project, Map<MavenProject, List<MavenProject>> upstream,
+                                         Set<MavenProject> modules )
+    {
+        if ( modules.add( project ) )
+        {
+            for ( MavenProject dependency : upstream.get( project ) )
+            {
+                addWithUpstream( dependency, upstream, modules );
+            }
+        }
+    }
+
+    private static MavenProject find( MavenProject project, Map<MavenProject, MavenProject> roots )
+    {
+        MavenProject root = project;
+        while ( roots.get( root ) != root )
+        {
+            root = roots.get( root );
+        }
+        // compress the path for the next lookups
+        MavenProject current = project;
+        while ( current != root )
+        {
+            MavenProject next = roots.get( current );
+            roots.put( current, root );
+            current = next;
+        }
+        return root;
+    }
+
+    private static List<List<MavenProject>> pack( List<MavenProject> reactorProjects,
+                                                  Iterable<List<MavenProject>> components, int shardCount )
+    {
+        List<List<MavenProject>> sorted = new ArrayList<List<MavenProject>>();
+        for ( List<MavenProject> component : components )
+        {
+            sorted.add( component );
+        }
+        Collections.sort( sorted, new Comparator<List<MavenProject>>()
+        {
+            public int compare( List<MavenProject> c1, List<MavenProject> c2 )
+            {
+                return c2.size() - c1.size();
+            }
+        } );
+
+        List<Set<MavenProject>> bins = new ArrayList<Set<MavenProject>>();
+        for ( List<MavenProject> component : sorted )
+        {
+            Set<MavenProject> smallest = null;
+            if ( bins.size() < shardCount )
+            {
+                smallest = Collections.newSetFromMap( new IdentityHashMap<MavenProject, Boolean>() );
+                bins.add( smallest );
+            }
+            else
+            {
+                for ( Set<MavenProject> bin : bins )
+                {
+                    if ( smallest == null || bin.size() < smallest.size() )
+                    {
+                        smallest = bin;
+                    }
+                }
+            }
+            smallest.addAll( component );
+        }
+
+        // keep the build order of the reactor within each shard
+        List<List<MavenProject>> shards = new ArrayList<List<MavenProject>>();
+        for ( Set<MavenProject> bin : bins )
+        {
+            List<MavenProject> shard = new ArrayList<MavenProject>();
+            for ( MavenProject project : reactorProjects )
+            {
+                if ( bin.contains( project ) )
+                {
+                    shard.add( project );
+                }
+            }
+            shards.add( shard );
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,497 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
+
+/**
+ * The artifacts built by the preparation goals of a release, with the checksums of their files and a hash of the
+ * sources they were built from, so that perform can deploy them instead of building the tag again.
+ * <p/>
+ * The source hash covers the POM and the <code>src</code> directory of every module, by path relative to the root
+ * project. The artifacts are the files of the build directory of each module named after its artifactId and release
+ * version, with or without a classifier.
+ */
+public class ReleaseArtifactManifest
+{
+    /**
+     * The name of the manifest, written next to <code>release.properties</code>.
+     */
+    public static final String FILE_NAME = "release-artifacts.properties";
+
+    private static final List<String> EXTENSIONS =
+        Arrays.asList( "jar", "war", "ear", "rar", "zip", "pom", "tar.gz", "tar.bz2" );
+
+    private static final List<String> JAR_PACKAGINGS =
+        Arrays.asList( "ejb", "ejb-client", "maven-plugin", "bundle", "test-jar", "java-source", "javadoc" );
+
+    private String sourceHash;
+
+    private final List<Module> modules = new ArrayList<Module>();
+
+    /**
+     * Records the artifacts the preparation goals built for the reactor.
+     *
+     * @param basedir The basedir of the root project.
+     * @param reactorProjects The reactor projects.
+     * @param releaseDescriptor The release descriptor, holding the release versions.
+     * @return The manifest.
+     * @throws IOException If a module is outside of the root project or has no artifact for its packaging, or if the
+     *             files could not be read.
+     */
+    public static ReleaseArtifactManifest record( File basedir, List<MavenProject> reactorProjects,
+                                                  ReleaseDescriptor releaseDescriptor )
+        throws IOException
+    {
+        ReleaseArtifactManifest manifest = new ReleaseArtifactManifest();
+        for ( MavenProject project : reactorProjects )
+        {
+            String key = ArtifactUtils.versionlessKey( project.getGroupId(), project.getArtifactId() );
+            String version = (String) releaseDescriptor.getReleaseVersions().get( key );
+            if ( version == null )
+            {
+                throw new IOException( "No release version for " + key );
+            }
+
+            Module module = new Module( relativize( basedir, project.getBasedir() ), project.getGroupId(),
+                                        project.getArtifactId(), version, project.getPackaging() );
+
+            File buildDirectory = new File( project.getBuild().getDirectory() );
+            String prefix = project.getArtifactId() + "-" + version;
+            if ( !"pom".equals( module.packaging ) )
+            {
+                String extension = getExtension( module.packaging );
+                File main = new File( buildDirectory, prefix + "." + extension );
+                if ( !main.isFile() )
+                {
+                    throw new IOException( "No " + main.getName() + " was built for " + key );
+                }
+                module.files.add( new ArtifactFile( relativize( basedir, main ), null, extension, Sha256.of( main ) ) );
+            }
+
+            String[] names = buildDirectory.list();
+            if ( names != null )
+            {
+                Arrays.sort( names );
+                for ( String name : names )
+                {
+                    if ( !name.startsWith( prefix + "-" ) )
+                    {
+                        continue;
+                    }
+                    for ( String extension : EXTENSIONS )
+                    {
+                        File file = new File( buildDirectory, name );
+                        if ( name.endsWith( "." + extension ) && file.isFile() )
+                        {
+                            String classifier =
+                                name.substring( prefix.length() + 1, name.length() - extension.length() - 1 );
+                            module.files.add( new ArtifactFile( relativize( basedir, file ), classifier, extension,
+                                                                Sha256.of( file ) ) );
+                            break;
+                        }
+                    }
+                }
+            }
+            manifest.modules.add( module );
+        }
+        manifest.sourceHash = hashSources( basedir, manifest.getModulePaths() );
+        return manifest;
+    }
+
+    /**
+     * @param file A manifest written by {@link #write(File)}.
+     * @return The manifest.
+     * @throws IOException If the manifest could not be read.
+     */
+    public static ReleaseArtifactManifest read( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        ReleaseArtifactManifest manifest = new ReleaseArtifactManifest();
+        manifest.sourceHash = properties.getProperty( "sourceHash" );
+        for ( int i = 0; properties.getProperty( "module." + i + ".artifactId" ) != null; i++ )
+        {
+            String prefix = "module." + i + ".";
+            Module module = new Module( properties.getProperty( prefix + "path" ),
+                                        properties.getProperty( prefix + "groupId" ),
+                                        properties.getProperty( prefix + "artifactId" ),
+                                        properties.getProperty( prefix + "version" ),
+                                        properties.getProperty( prefix + "packaging" ) );
+            for ( int j = 0; properties.getProperty( prefix + "file." + j ) != null; j++ )
+            {
+                String filePrefix = prefix + "file." + j;
+                module.files.add( new ArtifactFile( properties.getProperty( filePrefix ),
+                                                    properties.getProperty( filePrefix + ".classifier" ),
+                                                    properties.getProperty( filePrefix + ".extension" ),
+                                                    properties.getProperty( filePrefix + ".sha256" ) ) );
+            }
+            manifest.modules.add( module );
+        }
+        return manifest;
+    }
+
+    /**
+     * @param file The file to write the manifest to.
+     * @throws IOException If the manifest could not be written.
+     */
+    public void write( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty( "sourceHash", sourceHash );
+        for ( int i = 0; i < modules.size(); i++ )
+        {
+            Module module = modules.get( i );
+            String prefix = "module." + i + ".";
+            properties.setProperty( prefix + "path", module.path );
+            properties.setProperty( prefix + "groupId", module.groupId );
+            properties.setProperty( prefix + "artifactId", module.artifactId );
+            properties.setProperty( prefix + "version", module.version );
+            properties.setProperty( prefix + "packaging", module.packaging );
+            for ( int j = 0; j < module.files.size(); j++ )
+            {
+                ArtifactFile artifactFile = module.files.get( j );
+                String filePrefix = prefix + "file." + j;
+                properties.setProperty( filePrefix, artifactFile.path );
+                if ( artifactFile.classifier != null )
+                {
+                    properties.setProperty( filePrefix + ".classifier", artifactFile.classifier );
+                }
+                properties.setProperty( filePrefix + ".extension", artifactFile.extension );
+                properties.setProperty( filePrefix + ".sha256", artifactFile.sha256 );
+            }
+        }
+
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( file );
+            properties.store( out, "Artifacts built by the preparation goals of the release" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    public String getSourceHash()
+    {
+        return sourceHash;
+    }
+
+    /**
+     * @return The paths of the modules relative to the root project, <code>.</code> for the root project itself.
+     */
+    public List<String> getModulePaths()
+    {
+        List<String> paths = new ArrayList<String>();
+        for ( Module module : modules )
+        {
+            paths.add( module.path );
+        }
+        return paths;
+    }
+
+    /**
+     * Checks that the artifacts can be deployed for a checkout of the tag.
+     *
+     * @param basedir The basedir of the root project, which the artifact paths are relative to.
+     * @param checkoutDirectory The directory of the root project in the checkout of the tag.
+     * @return <code>null</code> if the checkout has the sources the artifacts were built from and the artifacts are
+     *         unchanged, otherwise the reason why they can't be reused.
+     * @throws IOException If the files could not be read.
+     */
+    public String verify( File basedir, File checkoutDirectory )
+        throws IOException
+    {
+        if ( !hashSources( checkoutDirectory, getModulePaths() ).equals( sourceHash ) )
+        {
+            return "the sources of the tag differ from the sources the artifacts were built from";
+        }
+        for ( Module module : modules )
+        {
+            for ( ArtifactFile artifactFile : module.files )
+            {
+                File file = new File( basedir, artifactFile.path );
+                if ( !file.isFile() )
+                {
+                    return file + " is missing";
+                }
+                if ( !Sha256.of( file ).equals( artifactFile.sha256 ) )
+                {
+                    return file + " changed since it was built";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a POM deploying every artifact of the manifest with the <code>deploy-file</code> goal when its
+     * <code>validate</code> phase is run, one execution per module.
+     *
+     * @param pomFile The POM to write.
+     * @param basedir The basedir of the root project, which the artifact paths are relative to.
+     * @param checkoutDirectory The directory of the root project in the checkout of the tag, holding the POMs to
+     *            deploy.
+     * @param repositoryId The id of the repository to deploy to, as used in the settings.
+     * @param repositoryUrl The URL of the repository to deploy to.
+     * @param deployPluginVersion The version of the Maven Deploy Plugin to use.
+     * @throws IOException If the POM could not be written.
+     */
+    public void writeDeployPom( File pomFile, File basedir, File checkoutDirectory, String repositoryId,
+                                String repositoryUrl, String deployPluginVersion )
+        throws IOException
+    {
+        Writer writer = null;
+        try
+        {
+            writer = WriterFactory.newXmlWriter( pomFile );
+            XMLWriter xml = new PrettyPrintXMLWriter( writer, "UTF-8", null );
+            xml.startElement( "project" );
+            element( xml, "modelVersion", "4.0.0" );
+            element( xml, "groupId", "org.apache.maven.plugins.release" );
+            element( xml, "artifactId", "release-deploy" );
+            element( xml, "version", "1" );
+            element( xml, "packaging", "pom" );
+            xml.startElement( "build" );
+            xml.startElement( "plugins" );
+            xml.startElement( "plugin" );
+            element( xml, "groupId", "org.apache.maven.plugins" );
+            element( xml, "artifactId", "maven-deploy-plugin" );
+            element( xml, "version", deployPluginVersion );
+            xml.startElement( "executions" );
+            for ( int i = 0; i < modules.size(); i++ )
+            {
+                Module module = modules.get( i );
+                File moduleDirectory =
+                    ".".equals( module.path ) ? checkoutDirectory : new File( checkoutDirectory, module.path );
+                File modulePom = new File( moduleDirectory, "pom.xml" );
+
+                xml.startElement( "execution" );
+                element( xml, "id", "deploy-" + module.artifactId + "-" + i );
+                element( xml, "phase", "validate" );
+                xml.startElement( "goals" );
+                element( xml, "goal", "deploy-file" );
+                xml.endElement();
+                xml.startElement( "configuration" );
+                element( xml, "repositoryId", repositoryId );
+                element( xml, "url", repositoryUrl );
+                element( xml, "groupId", module.groupId );
+                element( xml, "artifactId", module.artifactId );
+                element( xml, "version", module.version );
+                element( xml, "packaging", module.packaging );
+                element( xml, "pomFile", modulePom.getAbsolutePath() );
+
+                StringBuilder files = new StringBuilder();
+                StringBuilder classifiers = new StringBuilder();
+                StringBuilder types = new StringBuilder();
+                File main = modulePom;
+                for ( ArtifactFile artifactFile : module.files )
+                {
+                    File file = new File( basedir, artifactFile.path );
+                    if ( artifactFile.classifier == null )
+                    {
+                        main = file;
+                        continue;
+                    }
+                    files.append( files.length() > 0 ? "," : "" ).append( file.getAbsolutePath() );
+                    classifiers.append( classifiers.length() > 0 ? "," : "" ).append( artifactFile.classifier );
+                    types.append( types.length() > 0 ? "," : "" ).append( artifactFile.extension );
+                }
+                element( xml, "file", main.getAbsolutePath() );
+                if ( files.length() > 0 )
+                {
+                    element( xml, "files", files.toString() );
+                    element( xml, "classifiers", classifiers.toString() );
+                    element( xml, "types", types.toString() );
+                }
+                xml.endElement();
+                xml.endElement();
+            }
+            xml.endElement();
+            xml.endElement();
+            xml.endElement();
+            xml.endElement();
+            xml.endElement();
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * @return A SHA-256 hash of the paths and contents of the POM and the <code>src</code> directory of each module.
+     */
+    static String hashSources( File root, List<String> modulePaths )
+        throws IOException
+    {
+        List<String> paths = new ArrayList<String>();
+        for ( String modulePath : modulePaths )
+        {
+            String prefix = ".".equals( modulePath ) ? "" : modulePath + "/";
+            paths.add( prefix + "pom.xml" );
+            collect( new File( root, prefix + "src" ), prefix + "src", paths );
+        }
+        Collections.sort( paths );
+
+        MessageDigest digest = Sha256.newDigest();
+        for ( String path : paths )
+        {
+            File file = new File( root, path );
+            digest.update( path.getBytes( "UTF-8" ) );
+            digest.update( (byte) 0 );
+            digest.update( file.isFile() ? Sha256.of( file ).getBytes( "UTF-8" ) : new byte[0] );
+            digest.update( (byte) '\n' );
+        }
+        return Sha256.toHex( digest.digest() );
+    }
+
+    private static void collect( File directory, String path, List<String> paths )
+    {
+        String[] names = directory.list();
+        if ( names == null )
+        {
+            return;
+        }
+        for ( String name : names )
+        {
+            File file = new File( directory, name );
+            if ( file.isDirectory() )
+            {
+                if ( !name.equals( ".svn" ) && !name.equals( ".git" ) && !name.equals( "CVS" ) )
+                {
+                    collect( file, path + "/" + name, paths );
+                }
+            }
+            else
+            {
+                paths.add( path + "/" + name );
+            }
+        }
+    }
+
+    private static String getExtension( String packaging )
+    {
+        return JAR_PACKAGINGS.contains( packaging ) ? "jar" : packaging;
+    }
+
+    /**
+     * @return The path of a file relative to a directory holding it, with forward slashes.
+     */
+    private static String relativize( File basedir, File file )
+        throws IOException
+    {
+        String base = basedir.getCanonicalPath();
+        String path = file.getCanonicalPath();
+        if ( path.equals( base ) )
+        {
+            return ".";
+        }
+        if ( !path.startsWith( base + File.separator ) )
+        {
+            throw new IOException( file + " is outside of the root project " + basedir );
+        }
+        return path.substring( base.length() + 1 ).replace( File.separatorChar, '/' );
+    }
+
+    private static void element( XMLWriter xml, String name, String value )
+    {
+        xml.startElement( name );
+        xml.writeText( value );
+        xml.endElement();
+    }
+
+    private static final class Module
+    {
+        private final String path;
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String version;
+
+        private final String packaging;
+
+        private final List<ArtifactFile> files = new ArrayList<ArtifactFile>();
+
+        Module( String path, String groupId, String artifactId, String version, String packaging )
+        {
+            this.path = path;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.packaging = packaging;
+        }
+    }
+
+    private static final class ArtifactFile
+    {
+        private final String path;
+
+        private final String classifier;
+
+        private final String extension;
+
+        private final String sha256;
+
+        ArtifactFile( String path, String classifier, String extension, String sha256 )
+        {
+            this.path = path;
+            this.classifier = classifier;
+            this.extension = extension;
+            this.sha256 = sha256;
+        }
+    }
+}
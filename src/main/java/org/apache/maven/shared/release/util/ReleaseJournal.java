@@ -0,0 +1,409 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.maven.model.Scm;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.scm.IdentifiedScm;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * An append-only journal of the checkpoints of a release, next to <code>release.properties</code>.
+ * <p/>
+ * Once <code>release.properties</code> has been written in full, each checkpoint appends to the journal only the
+ * entries of <code>release.properties</code> which changed since the previous one, in a single write synced to disk.
+ * The journal covers the entries the phases change: the completed phase, the tag, the release and development
+ * versions, the original SCM information and the resolved snapshot dependencies. A checkpoint is only replayed if it
+ * was written completely, so a release interrupted while writing one resumes from the one before. Compacting replays
+ * the journal into <code>release.properties</code> and deletes it.
+ */
+public class ReleaseJournal
+{
+    /**
+     * The name of the journal, written next to <code>release.properties</code>.
+     */
+    public static final String FILE_NAME = "release.journal";
+
+    private static final String PROPERTIES_FILE_NAME = "release.properties";
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    private static final String SET = "set";
+
+    private static final String UNSET = "unset";
+
+    private static final String COMMIT = "commit";
+
+    private final File file;
+
+    private final File propertiesFile;
+
+    private Map<String, String> state;
+
+    /**
+     * @param workingDirectory The directory of <code>release.properties</code>.
+     */
+    public ReleaseJournal( File workingDirectory )
+    {
+        this.file = new File( workingDirectory, FILE_NAME );
+        this.propertiesFile = new File( workingDirectory, PROPERTIES_FILE_NAME );
+    }
+
+    /**
+     * @return <code>true</code> if the journal was opened by this instance, so checkpoints are appended to it.
+     */
+    public boolean isOpen()
+    {
+        return state != null;
+    }
+
+    /**
+     * @return <code>true</code> if there is a journal to compact.
+     */
+    public boolean exists()
+    {
+        return file.isFile();
+    }
+
+    /**
+     * Starts a new journal over <code>release.properties</code>, dropping the previous one. To be called right before
+     * writing the release descriptor to <code>release.properties</code> in full.
+     *
+     * @param releaseDescriptor The release descriptor about to be written.
+     * @throws IOException If the previous journal could not be deleted.
+     */
+    public void open( ReleaseDescriptor releaseDescriptor )
+        throws IOException
+    {
+        delete();
+        state = getEntries( releaseDescriptor );
+    }
+
+    /**
+     * Appends the entries which changed since the previous checkpoint.
+     *
+     * @param releaseDescriptor The release descriptor.
+     * @param name The name of the checkpoint, like the completed phase.
+     * @return The number of entries which changed.
+     * @throws IOException If the journal could not be written.
+     */
+    public int checkpoint( ReleaseDescriptor releaseDescriptor, String name )
+        throws IOException
+    {
+        if ( state == null )
+        {
+            throw new IllegalStateException( "The journal is not open" );
+        }
+
+        Map<String, String> entries = getEntries( releaseDescriptor );
+
+        StringBuilder record = new StringBuilder();
+        record.append( CHECKPOINT ).append( '\t' ).append( escape( name ) ).append( '\n' );
+        int changes = 0;
+        for ( Map.Entry<String, String> entry : entries.entrySet() )
+        {
+            if ( !entry.getValue().equals( state.get( entry.getKey() ) ) )
+            {
+                record.append( SET ).append( '\t' ).append( escape( entry.getKey() ) ).append( '\t' );
+                record.append( escape( entry.getValue() ) ).append( '\n' );
+                changes++;
+            }
+        }
+        for ( String key : state.keySet() )
+        {
+            if ( !entries.containsKey( key ) )
+            {
+                record.append( UNSET ).append( '\t' ).append( escape( key ) ).append( '\n' );
+                changes++;
+            }
+        }
+        record.append( COMMIT ).append( '\n' );
+
+        FileOutputStream out = new FileOutputStream( file, true );
+        try
+        {
+            out.write( record.toString().getBytes( "UTF-8" ) );
+            out.flush();
+            out.getFD().sync();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+
+        state = entries;
+        return changes;
+    }
+
+    /**
+     * Replays the complete checkpoints of the journal into <code>release.properties</code>, then deletes the journal.
+     *
+     * @return The number of checkpoints replayed.
+     * @throws IOException If the journal or <code>release.properties</code> could not be read or written.
+     */
+    public int compact()
+        throws IOException
+    {
+        Properties properties = new Properties();
+        if ( propertiesFile.isFile() )
+        {
+            InputStream in = new FileInputStream( propertiesFile );
+            try
+            {
+                properties.load( in );
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+
+        int checkpoints = replay( properties );
+
+        File temporary =
+            File.createTempFile( PROPERTIES_FILE_NAME, ".tmp", propertiesFile.getAbsoluteFile().getParentFile() );
+        FileOutputStream out = new FileOutputStream( temporary );
+        try
+        {
+            properties.store( out, "release configuration" );
+            out.flush();
+            out.getFD().sync();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        propertiesFile.delete();
+        if ( !temporary.renameTo( propertiesFile ) )
+        {
+            temporary.delete();
+            throw new IOException( "Unable to write " + propertiesFile );
+        }
+
+        delete();
+        return checkpoints;
+    }
+
+    /**
+     * Deletes the journal and closes it.
+     *
+     * @throws IOException If the journal could not be deleted.
+     */
+    public void delete()
+        throws IOException
+    {
+        state = null;
+        if ( file.exists() && !file.delete() )
+        {
+            throw new IOException( "Unable to delete " + file );
+        }
+    }
+
+    private int replay( Properties properties )
+        throws IOException
+    {
+        List<String[]> pending = null;
+        int checkpoints = 0;
+
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF-8" ) );
+        try
+        {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+            {
+                String[] fields = line.split( "\t", -1 );
+                if ( CHECKPOINT.equals( fields[0] ) && fields.length == 2 )
+                {
+                    pending = new ArrayList<String[]>();
+                }
+                else if ( pending != null && SET.equals( fields[0] ) && fields.length == 3 )
+                {
+                    pending.add( new String[] { unescape( fields[1] ), unescape( fields[2] ) } );
+                }
+                else if ( pending != null && UNSET.equals( fields[0] ) && fields.length == 2 )
+                {
+                    pending.add( new String[] { unescape( fields[1] ) } );
+                }
+                else if ( pending != null && COMMIT.equals( line ) )
+                {
+                    for ( String[] change : pending )
+                    {
+                        if ( change.length == 2 )
+                        {
+                            properties.setProperty( change[0], change[1] );
+                        }
+                        else
+                        {
+                            properties.remove( change[0] );
+                        }
+                    }
+                    pending = null;
+                    checkpoints++;
+                }
+                else
+                {
+                    // a checkpoint cut short, only possible at the end of the journal
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+
+        return checkpoints;
+    }
+
+    /**
+     * @return The entries of <code>release.properties</code> the phases change, as written by the release descriptor
+     *         store.
+     */
+    static Map<String, String> getEntries( ReleaseDescriptor releaseDescriptor )
+    {
+        Map<String, String> entries = new TreeMap<String, String>();
+        put( entries, "completedPhase", releaseDescriptor.getCompletedPhase() );
+        put( entries, "scm.tag", releaseDescriptor.getScmReleaseLabel() );
+
+        for ( Iterator<?> i = releaseDescriptor.getReleaseVersions().entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) i.next();
+            put( entries, "project.rel." + entry.getKey(), (String) entry.getValue() );
+        }
+        for ( Iterator<?> i = releaseDescriptor.getDevelopmentVersions().entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) i.next();
+            put( entries, "project.dev." + entry.getKey(), (String) entry.getValue() );
+        }
+
+        for ( Iterator<?> i = releaseDescriptor.getOriginalScmInfo().entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) i.next();
+            Scm scm = (Scm) entry.getValue();
+            String prefix = "project.scm." + entry.getKey();
+            if ( scm != null )
+            {
+                put( entries, prefix + ".connection", scm.getConnection() );
+                put( entries, prefix + ".developerConnection", scm.getDeveloperConnection() );
+                put( entries, prefix + ".url", scm.getUrl() );
+                put( entries, prefix + ".tag", scm.getTag() );
+                if ( scm instanceof IdentifiedScm )
+                {
+                    put( entries, prefix + ".id", ( (IdentifiedScm) scm ).getId() );
+                }
+            }
+            else
+            {
+                entries.put( prefix + ".empty", "true" );
+            }
+        }
+
+        Map<?, ?> resolvedSnapshotDependencies = releaseDescriptor.getResolvedSnapshotDependencies();
+        if ( resolvedSnapshotDependencies != null )
+        {
+            for ( Map.Entry<?, ?> entry : resolvedSnapshotDependencies.entrySet() )
+            {
+                Map<?, ?> versions = (Map<?, ?>) entry.getValue();
+                put( entries, "dependency." + entry.getKey() + ".release", (String) versions.get( "rel" ) );
+                put( entries, "dependency." + entry.getKey() + ".development", (String) versions.get( "dev" ) );
+            }
+        }
+
+        return entries;
+    }
+
+    private static void put( Map<String, String> entries, String key, String value )
+    {
+        if ( value != null )
+        {
+            entries.put( key, value );
+        }
+    }
+
+    private static String escape( String value )
+    {
+        StringBuilder buffer = new StringBuilder( value.length() );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '\\':
+                    buffer.append( "\\\\" );
+                    break;
+                case '\t':
+                    buffer.append( "\\t" );
+                    break;
+                case '\n':
+                    buffer.append( "\\n" );
+                    break;
+                case '\r':
+                    buffer.append( "\\r" );
+                    break;
+                default:
+                    buffer.append( c );
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static String unescape( String value )
+    {
+        StringBuilder buffer = new StringBuilder( value.length() );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c != '\\' )
+            {
+                buffer.append( c );
+                continue;
+            }
+            c = ++i < value.length() ? value.charAt( i ) : '\\';
+            switch ( c )
+            {
+                case 't':
+                    buffer.append( '\t' );
+                    break;
+                case 'n':
+                    buffer.append( '\n' );
+                    break;
+                case 'r':
+                    buffer.append( '\r' );
+                    break;
+                default:
+                    buffer.append( c );
+            }
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,220 @@
+package org.apache.maven.shared.release.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * The output of the goal runs which passed, by a hash of everything they depend on: the project tree, the goals, the
+ * arguments and the JDK. A run with the same hash can be skipped, since it would pass again.
+ * <p/>
+ * The project tree is hashed by path and content of its files, apart from the SCM metadata, the build directories
+ * and the files the release writes next to the POMs. Only the most recently used entries are kept.
+ */
+public class VerifyCache
+{
+    private static final int MAX_ENTRIES = 100;
+
+    private static final String SUFFIX = ".out";
+
+    private static final Set<String> SCM_DIRECTORIES =
+        new HashSet<String>( Arrays.asList( ".git", ".svn", "CVS", ".hg", ".bzr" ) );
+
+    private final File directory;
+
+    /**
+     * @param directory The directory of the entries.
+     */
+    public VerifyCache( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The cache of the current user, <code>~/.m2/release-verify-cache</code>.
+     */
+    public static VerifyCache getDefault()
+    {
+        return new VerifyCache( new File( System.getProperty( "user.home" ), ".m2/release-verify-cache" ) );
+    }
+
+    /**
+     * @param basedir The basedir of the root project.
+     * @param excludedDirectories The directories to leave out, like the build directories of the reactor projects.
+     * @return A SHA-256 hash of the paths and contents of the files of the project tree.
+     * @throws IOException If the files could not be read.
+     */
+    public static String hashTree( File basedir, Collection<File> excludedDirectories )
+        throws IOException
+    {
+        Set<String> excluded = new HashSet<String>();
+        for ( File excludedDirectory : excludedDirectories )
+        {
+            excluded.add( excludedDirectory.getCanonicalPath() );
+        }
+
+        List<String> paths = new ArrayList<String>();
+        collect( basedir, "", excluded, paths );
+        Collections.sort( paths );
+
+        MessageDigest digest = Sha256.newDigest();
+        for ( String path : paths )
+        {
+            digest.update( path.getBytes( "UTF-8" ) );
+            digest.update( (byte) 0 );
+            digest.update( Sha256.of( new File( basedir, path ) ).getBytes( "UTF-8" ) );
+            digest.update( (byte) '\n' );
+        }
+        return Sha256.toHex( digest.digest() );
+    }
+
+    /**
+     * @param treeHash The hash of the project tree.
+     * @param inputs The other inputs of the goal run, <code>null</code> for an absent one.
+     * @return The key of the goal run.
+     * @throws IOException If the inputs could not be encoded.
+     */
+    public static String key( String treeHash, String... inputs )
+        throws IOException
+    {
+        MessageDigest digest = Sha256.newDigest();
+        digest.update( treeHash.getBytes( "UTF-8" ) );
+        for ( String input : inputs )
+        {
+            digest.update( (byte) 0 );
+            digest.update( String.valueOf( input ).getBytes( "UTF-8" ) );
+        }
+        return Sha256.toHex( digest.digest() );
+    }
+
+    /**
+     * @param key The key of a goal run.
+     * @return The output of the goal run, or <code>null</code> if it has not passed with this key.
+     * @throws IOException If the entry could not be read.
+     */
+    public String get( String key )
+        throws IOException
+    {
+        File entry = new File( directory, key + SUFFIX );
+        if ( !entry.isFile() )
+        {
+            return null;
+        }
+        String output = FileUtils.fileRead( entry, "UTF-8" );
+        entry.setLastModified( System.currentTimeMillis() );
+        return output;
+    }
+
+    /**
+     * Records that a goal run passed.
+     *
+     * @param key The key of the goal run.
+     * @param output The output of the goal run.
+     * @throws IOException If the entry could not be written.
+     */
+    public void put( String key, String output )
+        throws IOException
+    {
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            throw new IOException( "Unable to create " + directory );
+        }
+        File entry = new File( directory, key + SUFFIX );
+        File temporary = File.createTempFile( key, ".tmp", directory );
+        FileUtils.fileWrite( temporary, "UTF-8", output );
+        entry.delete();
+        if ( !temporary.renameTo( entry ) )
+        {
+            temporary.delete();
+            throw new IOException( "Unable to write " + entry );
+        }
+        prune();
+    }
+
+    private void prune()
+    {
+        File[] entries = directory.listFiles();
+        if ( entries == null || entries.length <= MAX_ENTRIES )
+        {
+            return;
+        }
+        Arrays.sort( entries, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 > m2 ? -1 : ( m1 < m2 ? 1 : 0 );
+            }
+        } );
+        for ( int i = MAX_ENTRIES; i < entries.length; i++ )
+        {
+            entries[i].delete();
+        }
+    }
+
+    private static void collect( File directory, String path, Set<String> excluded, List<String> paths )
+        throws IOException
+    {
+        String[] names = directory.list();
+        if ( names == null )
+        {
+            return;
+        }
+        for ( String name : names )
+        {
+            File file = new File( directory, name );
+            String filePath = path.length() > 0 ? path + "/" + name : name;
+            if ( file.isDirectory() )
+            {
+                if ( !SCM_DIRECTORIES.contains( name ) && !excluded.contains( file.getCanonicalPath() ) )
+                {
+                    collect( file, filePath, excluded, paths );
+                }
+            }
+            else if ( !isReleaseFile( name ) )
+            {
+                paths.add( filePath );
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> for the files the release writes next to the POMs, which the goals don't read.
+     */
+    private static boolean isReleaseFile( String name )
+    {
+        return name.equals( "release.properties" ) || name.equals( ReleaseJournal.FILE_NAME )
+            || name.equals( ReleaseArtifactManifest.FILE_NAME )
+            || name.endsWith( ".releaseBackup" ) || name.endsWith( ".tag" ) || name.endsWith( ".next" );
+    }
+}